@@ -0,0 +1,190 @@
+package com.oidc.client.bench;
+
+import com.oidc.client.config.SecurityConfig;
+import com.oidc.client.filter.JwtTokenFilter;
+import com.oidc.client.service.IdpResilience;
+import com.oidc.client.service.InMemoryTokenStore;
+import com.oidc.client.service.OidcClientService;
+import com.oidc.client.service.OidcProviderMetadata;
+import com.oidc.client.service.RevocationService;
+import com.oidc.client.util.AuthFailureLog;
+import com.oidc.client.util.AuthMetrics;
+import com.oidc.client.util.JwksKeyResolver;
+import com.oidc.client.util.JwtTokenValidator;
+import com.oidc.client.util.PublicPathMatcher;
+import com.oidc.client.util.RateLimiter;
+import com.oidc.client.util.SessionCookieCodec;
+import com.oidc.client.util.TokenCookies;
+import com.oidc.client.util.VerifiedTokenCache;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基准测试共用的组件装配，和 application.yml 默认配置保持一致
+ */
+final class BenchmarkFixtures {
+
+    static final String SECRET = "this-is-a-very-secret-key-that-should-be-at-least-256-bits-long-for-hs256-algorithm";
+
+    private BenchmarkFixtures() {
+    }
+
+    static String token(String subject, long ttlMillis) {
+        return Jwts.builder()
+                .subject(subject)
+                .claim("username", "user-" + subject)
+                .claim("client_id", "my-app")
+                .claim("scope", "openid profile email")
+                .expiration(new Date(System.currentTimeMillis() + ttlMillis))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+
+    static final AuthMetrics METRICS = new AuthMetrics(new SimpleMeterRegistry());
+    // 固定的会话密钥：file 类型 TokenStore 和 compact 模式都要求配置 oidc.session.key
+    static final String SESSION_KEY = Base64.getEncoder().encodeToString(new byte[32]);
+    static final SessionCookieCodec SESSION_CODEC = new SessionCookieCodec(SESSION_KEY);
+    static final AuthFailureLog FAILURE_LOG = new AuthFailureLog(null, true, Duration.ofSeconds(10));
+    static final RevocationService REVOCATIONS = new RevocationService(null, event -> { }, 100_000, 0.01,
+            Duration.ofSeconds(60), Duration.ofDays(7));
+
+    static JwtTokenValidator validator(int cacheSize) {
+        return new JwtTokenValidator(new VerifiedTokenCache(cacheSize), jwksKeyResolver(new RestTemplate()), METRICS, FAILURE_LOG, SECRET, "", "sub");
+    }
+
+    static JwksKeyResolver jwksKeyResolver(RestTemplate restTemplate) {
+        return new JwksKeyResolver(restTemplate, providerMetadata(restTemplate, "http://localhost:8080"), null, false,
+                Duration.ofMinutes(5), Duration.ofSeconds(30));
+    }
+
+    /**
+     * 不做 discovery、不落盘，直接使用 serverUrl 下的默认端点
+     */
+    static OidcProviderMetadata providerMetadata(RestTemplate restTemplate, String serverUrl) {
+        return new OidcProviderMetadata(restTemplate, null, serverUrl, "/oidc/authorize", "/oidc/token",
+                "/oidc/userinfo", "/oidc/jwks", false, "", Duration.ofHours(1), Duration.ofSeconds(30));
+    }
+
+    static RestTemplate pooledRestTemplate() {
+        SecurityConfig config = new SecurityConfig();
+        PoolingHttpClientConnectionManager connectionManager = config.idpConnectionManager(
+                50, 20, Duration.ofSeconds(2), Duration.ofSeconds(5), Duration.ofMinutes(5));
+        CloseableHttpClient httpClient = config.idpHttpClient(
+                connectionManager, Duration.ofSeconds(5), Duration.ofSeconds(1), Duration.ofSeconds(30));
+        return config.restTemplate(httpClient);
+    }
+
+    static IdpResilience resilience(boolean hedge) {
+        return new IdpResilience(Duration.ofSeconds(5), 50f, Duration.ofSeconds(2), 20, Duration.ofSeconds(10),
+                64, Duration.ZERO, 3, Duration.ofMillis(100), hedge, Duration.ofMillis(50));
+    }
+
+    static OidcClientService oidcClientService(JwtTokenValidator validator, RestTemplate restTemplate, String serverUrl) {
+        return oidcClientService(validator, restTemplate, serverUrl, resilience(false));
+    }
+
+    static OidcClientService oidcClientService(JwtTokenValidator validator, RestTemplate restTemplate, String serverUrl,
+                                               IdpResilience resilience) {
+        return new OidcClientService(validator, METRICS, REVOCATIONS, resilience,
+                providerMetadata(restTemplate, serverUrl), event -> { }, restTemplate, WebClient.create(),
+                new DefaultListableBeanFactory().getBeanProvider(AsyncTaskExecutor.class),
+                "my-app", "secret123", "http://localhost:8081/callback", "openid profile email",
+                Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(5));
+    }
+
+    static JwtTokenFilter filter(JwtTokenValidator validator, OidcClientService oidcClientService) {
+        return filter(validator, oidcClientService, tokenCookies("split"));
+    }
+
+    static TokenCookies tokenCookies(String cookieMode) {
+        return new TokenCookies(SESSION_CODEC, new InMemoryTokenStore(16, 100_000), event -> { },
+                cookieMode, Duration.ofDays(7));
+    }
+
+    static JwtTokenFilter filter(JwtTokenValidator validator, OidcClientService oidcClientService,
+                                 TokenCookies tokenCookies) {
+        PublicPathMatcher publicPathMatcher = new PublicPathMatcher(List.of("/callback", "/api/auth/authorize",
+                "/api/auth/token", "/api/auth/refresh", "/api/auth/health", "/api/health", "/static/**"));
+        return new JwtTokenFilter(validator, oidcClientService, tokenCookies,
+                publicPathMatcher, METRICS, FAILURE_LOG, REVOCATIONS, rateLimiter(false), Duration.ofSeconds(60));
+    }
+
+    /**
+     * 默认配额；基准测试的所有请求来自同一个 IP，装配 Filter 时关闭
+     */
+    static RateLimiter rateLimiter(boolean enabled) {
+        return new RateLimiter(null, null, enabled, "none",
+                List.of("/callback", "/api/auth/authorize", "/api/auth/token", "/api/auth/refresh"), 5, 20, 100, 200, 20, 50, 1000, 2000, 100_000, Duration.ofMinutes(1),
+                false, Duration.ofMillis(500), 0.1, Duration.ofSeconds(5));
+    }
+
+    /**
+     * 进程内的 IdP 桩：/oidc/token 返回固定的 TokenResponse
+     */
+    static HttpServer stubIdp(String accessToken) throws IOException {
+        return stubIdp(accessToken, 0, 0, 0);
+    }
+
+    /**
+     * 注入故障的 IdP 桩：/oidc/token 和 /oidc/userinfo
+     *
+     * @param slowFraction 延迟 slowMillis 再响应的请求比例
+     * @param errorRate    返回 503 的请求比例
+     */
+    static HttpServer stubIdp(String accessToken, double slowFraction, long slowMillis, double errorRate)
+            throws IOException {
+        // 关闭 Nagle，避免小响应触发 40ms 延迟确认
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        byte[] tokenBody = ("{\"access_token\":\"" + accessToken + "\",\"token_type\":\"Bearer\",\"expires_in\":3600}")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] userInfoBody = "{\"sub\":\"42\",\"name\":\"User 42\",\"email\":\"user42@example.com\"}"
+                .getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        for (String path : List.of("/oidc/token", "/oidc/userinfo")) {
+            byte[] body = path.endsWith("token") ? tokenBody : userInfoBody;
+            server.createContext(path, exchange -> {
+                exchange.getRequestBody().readAllBytes();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                if (random.nextDouble() < slowFraction) {
+                    try {
+                        Thread.sleep(slowMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (random.nextDouble() < errorRate) {
+                    exchange.sendResponseHeaders(503, -1);
+                    exchange.close();
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+        }
+        server.start();
+        return server;
+    }
+}
@@ -0,0 +1,67 @@
+package com.oidc.client.bench;
+
+import com.oidc.client.dto.TokenResponse;
+import com.oidc.client.service.IdpOutcome;
+import com.oidc.client.service.OidcClientService;
+import com.oidc.client.util.JwtTokenValidator;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * IdP 故障下的调用耗时：健康 / 5% 请求慢 200ms / 30% 请求 503，对比是否开启对冲请求
+ *
+ * 对冲只作用于 UserInfo（幂等），看 SampleTime 的 p99 / p99.9；换 Token 不对冲。
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class IdpResilienceBenchmark {
+
+    @Param({"healthy", "slow-tail", "failing"})
+    public String idpMode;
+
+    @Param({"false", "true"})
+    public boolean hedge;
+
+    private HttpServer idp;
+    private OidcClientService oidcClientService;
+    /** 每次换取使用新的授权码，不命中重复提交缓存 */
+    private final AtomicLong codes = new AtomicLong();
+    private String accessToken;
+
+    @Setup
+    public void setUp() throws Exception {
+        accessToken = BenchmarkFixtures.token("42", 3_600_000);
+        idp = switch (idpMode) {
+            case "slow-tail" -> BenchmarkFixtures.stubIdp(accessToken, 0.05, 200, 0);
+            case "failing" -> BenchmarkFixtures.stubIdp(accessToken, 0, 0, 0.3);
+            default -> BenchmarkFixtures.stubIdp(accessToken, 0, 0, 0);
+        };
+        JwtTokenValidator validator = BenchmarkFixtures.validator(10_000);
+        oidcClientService = BenchmarkFixtures.oidcClientService(validator, BenchmarkFixtures.pooledRestTemplate(),
+                "http://127.0.0.1:" + idp.getAddress().getPort(), BenchmarkFixtures.resilience(hedge));
+    }
+
+    @TearDown
+    public void tearDown() {
+        idp.stop(0);
+    }
+
+    @Benchmark
+    public IdpOutcome<TokenResponse> exchangeCodeForToken() {
+        return oidcClientService.exchangeCodeForToken("code-" + codes.incrementAndGet(), "browser");
+    }
+
+    @Benchmark
+    public IdpOutcome<Map<String, Object>> fetchUserInfo() {
+        return oidcClientService.fetchUserInfoAsync(accessToken).block();
+    }
+}
@@ -0,0 +1,84 @@
+package com.oidc.client.bench;
+
+import com.oidc.client.filter.JwtTokenFilter;
+import com.oidc.client.util.JwtTokenValidator;
+import com.oidc.client.util.SessionCookieCodec;
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtTokenFilter 完整一次过滤：Cookie Token / 紧凑会话 Cookie / Bearer Token / 无 Token
+ *
+ * 每次调用都新建 Mock 请求和响应（OncePerRequestFilter 依赖请求属性），分配量里包含这部分。
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenFilterBenchmark {
+
+    private JwtTokenFilter filter;
+    private JwtTokenFilter compactFilter;
+    private String token;
+    private String sessionCookie;
+
+    @Setup
+    public void setUp() {
+        JwtTokenValidator validator = BenchmarkFixtures.validator(10_000);
+        filter = BenchmarkFixtures.filter(validator,
+                BenchmarkFixtures.oidcClientService(validator, new RestTemplate(), "http://127.0.0.1:1"));
+        token = BenchmarkFixtures.token("42", 3_600_000);
+
+        compactFilter = BenchmarkFixtures.filter(validator,
+                BenchmarkFixtures.oidcClientService(validator, new RestTemplate(), "http://127.0.0.1:1"),
+                BenchmarkFixtures.tokenCookies("compact"));
+        sessionCookie = BenchmarkFixtures.SESSION_CODEC.encode(
+                new SessionCookieCodec.Session(token, BenchmarkFixtures.token("42", 604_800_000)));
+    }
+
+    @Benchmark
+    public int cookieToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/resources/data");
+        request.setCookies(new Cookie("access_token", token));
+        return run(request);
+    }
+
+    @Benchmark
+    public int sessionCookie() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/resources/data");
+        request.setCookies(new Cookie("session", sessionCookie), new Cookie("username", "user42"));
+        return run(compactFilter, request);
+    }
+
+    @Benchmark
+    public int bearerToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/resources/data");
+        request.addHeader("Authorization", "Bearer " + token);
+        return run(request);
+    }
+
+    @Benchmark
+    public int missingToken() throws Exception {
+        return run(new MockHttpServletRequest("GET", "/api/resources/data"));
+    }
+
+    private int run(MockHttpServletRequest request) throws Exception {
+        return run(filter, request);
+    }
+
+    private int run(JwtTokenFilter filter, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        SecurityContextHolder.clearContext();
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,56 @@
+package com.oidc.client.bench;
+
+import com.oidc.client.dto.AuthenticatedPrincipal;
+import com.oidc.client.util.JwtTokenValidator;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtTokenValidator 验签路径：有效 / 过期 / 被篡改的 Token，以及命中缓存的 authenticate
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtValidationBenchmark {
+
+    private JwtTokenValidator validator;
+    private String validToken;
+    private String expiredToken;
+    private String tamperedToken;
+
+    @Setup
+    public void setUp() {
+        validator = BenchmarkFixtures.validator(10_000);
+        validToken = BenchmarkFixtures.token("42", 3_600_000);
+        expiredToken = BenchmarkFixtures.token("42", -60_000);
+        // 修改签名的最后一个字符
+        char last = validToken.charAt(validToken.length() - 1);
+        tamperedToken = validToken.substring(0, validToken.length() - 1) + (last == 'A' ? 'B' : 'A');
+        validator.authenticate(validToken);
+    }
+
+    @Benchmark
+    public Claims validateValid() {
+        return validator.validateAndGetClaims(validToken);
+    }
+
+    @Benchmark
+    public Claims validateExpired() {
+        return validator.validateAndGetClaims(expiredToken);
+    }
+
+    @Benchmark
+    public Claims validateTampered() {
+        return validator.validateAndGetClaims(tamperedToken);
+    }
+
+    @Benchmark
+    public AuthenticatedPrincipal authenticateCached() {
+        return validator.authenticate(validToken);
+    }
+}
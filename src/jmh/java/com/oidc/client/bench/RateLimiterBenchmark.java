@@ -0,0 +1,46 @@
+package com.oidc.client.bench;
+
+import com.oidc.client.util.RateLimiter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RateLimiter 单次判定的开销：4 线程争用同一个 key（CAS 冲突最多，且很快超限），
+ * 以及在 KEYS 个 key 中随机挑选（大多放行）
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final int KEYS = 10_000;
+
+    private RateLimiter rateLimiter;
+    private String[] keys;
+
+    @Setup
+    public void setUp() {
+        rateLimiter = BenchmarkFixtures.rateLimiter(true);
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long hotKey() {
+        return rateLimiter.acquire(RateLimiter.Scope.IP, keys[0]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long spreadKeys() {
+        return rateLimiter.acquire(RateLimiter.Scope.IP, keys[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+}
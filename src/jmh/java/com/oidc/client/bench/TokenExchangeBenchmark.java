@@ -0,0 +1,52 @@
+package com.oidc.client.bench;
+
+import com.oidc.client.dto.TokenResponse;
+import com.oidc.client.service.IdpOutcome;
+import com.oidc.client.service.OidcClientService;
+import com.oidc.client.util.JwtTokenValidator;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * OidcClientService.exchangeCodeForToken 对进程内 IdP 桩的完整往返（连接池 RestTemplate），
+ * 以及同一个浏览器重复提交同一个授权码时命中复用窗口、不访问 IdP 的开销
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenExchangeBenchmark {
+
+    private HttpServer idp;
+    private OidcClientService oidcClientService;
+    /** 每次换取使用新的授权码，不命中重复提交缓存 */
+    private final AtomicLong codes = new AtomicLong();
+
+    @Setup
+    public void setUp() throws Exception {
+        idp = BenchmarkFixtures.stubIdp(BenchmarkFixtures.token("42", 3_600_000));
+        JwtTokenValidator validator = BenchmarkFixtures.validator(10_000);
+        oidcClientService = BenchmarkFixtures.oidcClientService(validator, BenchmarkFixtures.pooledRestTemplate(),
+                "http://127.0.0.1:" + idp.getAddress().getPort());
+    }
+
+    @TearDown
+    public void tearDown() {
+        idp.stop(0);
+    }
+
+    @Benchmark
+    public IdpOutcome<TokenResponse> exchangeCodeForToken() {
+        return oidcClientService.exchangeCodeForToken("code-" + codes.incrementAndGet(), "browser");
+    }
+
+    @Benchmark
+    public IdpOutcome<TokenResponse> duplicateSubmission() {
+        return oidcClientService.exchangeCodeForToken("code", "browser");
+    }
+}
@@ -0,0 +1,98 @@
+package com.oidc.client.bench;
+
+import com.oidc.client.dto.StoredTokens;
+import com.oidc.client.service.InMemoryTokenStore;
+import com.oidc.client.service.MappedFileTokenStore;
+import com.oidc.client.service.TokenStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TokenStore 并发读写：4 线程纯读 / 纯写，以及 3 读 1 写混合
+ *
+ * 预先写入 SESSIONS 个会话，读写随机挑选其中一个会话 ID。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenStoreBenchmark {
+
+    private static final int SESSIONS = 10_000;
+
+    @Param({"memory", "file"})
+    public String type;
+
+    private TokenStore store;
+    private Path file;
+    private String[] sessionIds;
+    private StoredTokens tokens;
+
+    @Setup
+    public void setUp() throws IOException {
+        if ("file".equals(type)) {
+            file = Files.createTempFile("token-store", ".dat");
+            store = new MappedFileTokenStore(BenchmarkFixtures.SESSION_CODEC, file.toString(), SESSIONS * 2, 4096);
+        } else {
+            store = new InMemoryTokenStore(16, SESSIONS * 2);
+        }
+
+        long now = System.currentTimeMillis();
+        tokens = StoredTokens.builder()
+                .accessToken(BenchmarkFixtures.token("42", 3_600_000))
+                .refreshToken(BenchmarkFixtures.token("42", 604_800_000))
+                .username("user42")
+                .accessExpiresAtMillis(now + 3_600_000)
+                .expiresAtMillis(now + 604_800_000)
+                .build();
+        sessionIds = new String[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            sessionIds[i] = "session-" + i;
+            store.put(sessionIds[i], tokens);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public StoredTokens get() {
+        return store.get(randomId());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean put() {
+        return store.put(randomId(), tokens);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public StoredTokens mixedGet() {
+        return store.get(randomId());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public boolean mixedPut() {
+        return store.put(randomId(), tokens);
+    }
+
+    private String randomId() {
+        return sessionIds[ThreadLocalRandom.current().nextInt(SESSIONS)];
+    }
+}
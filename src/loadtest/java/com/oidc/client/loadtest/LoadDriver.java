@@ -0,0 +1,253 @@
+package com.oidc.client.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 压测驱动：concurrency 个虚拟用户，每个用户维护自己的 Cookie，按权重随机选择操作
+ *
+ *   login   - GET /api/auth/authorize 取得 state，再 GET /callback?code=…&state=…，期望 302 到前端且写入 Token Cookie
+ *   profile - GET /api/resources/profile（经 UserInfoService，可能访问 IdP）
+ *   data    - GET /api/resources/data（只验签）
+ *   logout  - POST /api/auth/logout，之后该用户重新登录
+ *   expired - 携带已过期、没有 Refresh Token 的 Access Token 访问，期望 401
+ *
+ * 没有会话的用户先登录。Token 有效期（--token-ttl）短于压测时长时，data / profile 会触发 Filter 内的自动续期。
+ */
+final class LoadDriver {
+
+    private static final String[] OPERATIONS = {"login", "profile", "data", "logout", "expired"};
+
+    private final HttpClient client;
+    private final String target;
+    private final StubIdp idp;
+    private final LoadReport report;
+    private final int[] weights = new int[OPERATIONS.length];
+    private final int totalWeight;
+    private final Duration think;
+    private final AtomicLong userIds = new AtomicLong();
+    private volatile boolean running = true;
+
+    LoadDriver(HttpClient client, String target, StubIdp idp, LoadReport report, String mix, Duration think) {
+        this.client = client;
+        this.target = target;
+        this.idp = idp;
+        this.report = report;
+        this.think = think;
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int index = List.of(OPERATIONS).indexOf(parts[0]);
+            if (index < 0 || parts.length != 2) {
+                throw new IllegalArgumentException("Unknown mix entry " + entry);
+            }
+            weights[index] = Integer.parseInt(parts[1]);
+        }
+        int sum = 0;
+        for (int weight : weights) {
+            sum += weight;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("Mix weights must not all be zero");
+        }
+        this.totalWeight = sum;
+    }
+
+    /**
+     * 预热后清空统计，再运行 duration，期间每个 reportInterval 输出一行进度
+     */
+    void run(int concurrency, Duration warmup, Duration duration, Duration reportInterval) throws InterruptedException {
+        ExecutorService users = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            users.execute(new SimulatedUser());
+        }
+
+        if (!warmup.isZero()) {
+            System.out.printf("warming up for %ds%n", warmup.toSeconds());
+            Thread.sleep(warmup.toMillis());
+            report.reset();
+        }
+
+        long end = System.nanoTime() + duration.toNanos();
+        long lastRequests = 0;
+        long lastErrors = 0;
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(reportInterval.toMillis(), TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()) + 1));
+            long requests = report.requests();
+            long errors = report.errors();
+            System.out.printf("%6.1fs  %8.1f req/s  %6d errors%n", report.elapsedSeconds(),
+                    (requests - lastRequests) / (reportInterval.toMillis() / 1000.0), errors - lastErrors);
+            lastRequests = requests;
+            lastErrors = errors;
+        }
+
+        running = false;
+        users.shutdown();
+        users.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private String pick() {
+        int r = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            r -= weights[i];
+            if (r < 0) {
+                return OPERATIONS[i];
+            }
+        }
+        return OPERATIONS[OPERATIONS.length - 1];
+    }
+
+    private final class SimulatedUser implements Runnable {
+
+        private final Map<String, String> cookies = new LinkedHashMap<>();
+        private long userId = userIds.incrementAndGet();
+
+        @Override
+        public void run() {
+            while (running) {
+                String operation = cookies.isEmpty() ? "login" : pick();
+                long start = System.nanoTime();
+                String error;
+                try {
+                    error = execute(operation);
+                } catch (IOException e) {
+                    error = e.getClass().getSimpleName();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (running) {
+                    report.record(operation, System.nanoTime() - start, error);
+                }
+                if (!think.isZero()) {
+                    try {
+                        Thread.sleep(think.toMillis());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return 失败原因；成功时返回 null
+         */
+        private String execute(String operation) throws IOException, InterruptedException {
+            return switch (operation) {
+                case "login" -> login();
+                case "profile", "data" -> read(operation);
+                case "logout" -> logout();
+                default -> expired();
+            };
+        }
+
+        private String login() throws IOException, InterruptedException {
+            if (!cookies.isEmpty()) {
+                // 已登录的用户重新登录，模拟新会话
+                cookies.clear();
+                userId = userIds.incrementAndGet();
+            }
+            HttpResponse<Void> authorize = send(HttpRequest.newBuilder(URI.create(target + "/api/auth/authorize")).GET());
+            String state = queryParameter(authorize.headers().firstValue("Location").orElse(""), "state");
+            if (authorize.statusCode() != 302 || state == null) {
+                return "authorize_" + authorize.statusCode();
+            }
+            HttpResponse<Void> response = send(HttpRequest.newBuilder(
+                    URI.create(target + "/callback?code=u" + userId + "-" + UUID.randomUUID() + "&state=" + state)).GET());
+            String location = response.headers().firstValue("Location").orElse("");
+            if (response.statusCode() != 302) {
+                return String.valueOf(response.statusCode());
+            }
+            if (location.contains("error=")) {
+                return location.substring(location.indexOf("error="));
+            }
+            return cookies.isEmpty() ? "no_cookies" : null;
+        }
+
+        private String read(String resource) throws IOException, InterruptedException {
+            HttpResponse<Void> response = send(HttpRequest.newBuilder(
+                    URI.create(target + "/api/resources/" + resource)).GET());
+            if (response.statusCode() == 401) {
+                // 会话失效（如续期失败），下一轮重新登录
+                cookies.clear();
+            }
+            return response.statusCode() == 200 ? null : String.valueOf(response.statusCode());
+        }
+
+        private String logout() throws IOException, InterruptedException {
+            HttpResponse<Void> response = send(HttpRequest.newBuilder(
+                    URI.create(target + "/api/auth/logout")).POST(HttpRequest.BodyPublishers.noBody()));
+            cookies.clear();
+            return response.statusCode() == 200 ? null : String.valueOf(response.statusCode());
+        }
+
+        private String expired() throws IOException, InterruptedException {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/api/resources/data"))
+                    .header("Cookie", "access_token=" + idp.expiredToken(userId))
+                    .GET()
+                    .build();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 401 ? null : String.valueOf(response.statusCode());
+        }
+
+        private HttpResponse<Void> send(HttpRequest.Builder builder) throws IOException, InterruptedException {
+            if (!cookies.isEmpty()) {
+                StringJoiner header = new StringJoiner("; ");
+                cookies.forEach((name, value) -> header.add(name + "=" + value));
+                builder.header("Cookie", header.toString());
+            }
+            HttpResponse<Void> response = client.send(builder.build(), HttpResponse.BodyHandlers.discarding());
+            updateCookies(response.headers().allValues("Set-Cookie"));
+            return response;
+        }
+
+        private String queryParameter(String url, String name) {
+            int query = url.indexOf('?');
+            if (query < 0) {
+                return null;
+            }
+            for (String pair : url.substring(query + 1).split("&")) {
+                if (pair.startsWith(name + "=")) {
+                    return pair.substring(name.length() + 1);
+                }
+            }
+            return null;
+        }
+
+        private void updateCookies(List<String> setCookies) {
+            for (String setCookie : setCookies) {
+                List<String> attributes = new ArrayList<>(List.of(setCookie.split(";")));
+                String pair = attributes.remove(0).trim();
+                int eq = pair.indexOf('=');
+                if (eq <= 0) {
+                    continue;
+                }
+                String name = pair.substring(0, eq);
+                String value = pair.substring(eq + 1);
+                boolean expired = value.isEmpty() || attributes.stream()
+                        .map(String::trim)
+                        .anyMatch(a -> a.equalsIgnoreCase("Max-Age=0"));
+                if (expired) {
+                    cookies.remove(name);
+                } else {
+                    cookies.put(name, value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.oidc.client.loadtest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 压测工具本身可用：桩 IdP 签发的 Token 能被应用接受，完整操作组合跑下来没有错误
+ *
+ * 只在 -Ploadtest 下编译和运行：mvn -Ploadtest test -Dtest=LoadHarnessTest
+ */
+class LoadHarnessTest {
+
+    private StubIdp idp;
+    private ConfigurableApplicationContext app;
+    private String target;
+
+    @BeforeEach
+    void start() throws Exception {
+        LoadTestOptions options = new LoadTestOptions(new String[0]);
+        String secret = LoadTest.configuredJwtSecret();
+        idp = new StubIdp(0, secret, Duration.ZERO, Duration.ZERO, 0, Duration.ofHours(1));
+        idp.start();
+        app = LoadTest.startApplication(options, idp, secret, false);
+        target = "http://127.0.0.1:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+    }
+
+    @AfterEach
+    void stop() {
+        if (app != null) {
+            app.close();
+        }
+        idp.stop();
+    }
+
+    @Test
+    void defaultMixRunsWithoutErrors() throws Exception {
+        LoadReport report = new LoadReport();
+
+        new LoadDriver(LoadTest.httpClient(), target, idp, report, new LoadTestOptions(new String[0]).mix(),
+                Duration.ZERO).run(4, Duration.ZERO, Duration.ofSeconds(2), Duration.ofSeconds(1));
+
+        assertThat(report.requests()).isPositive();
+        assertThat(report.errorCounts()).isEmpty();
+        assertThat(report.row("login")).isNotNull();
+        assertThat(idp.calls().get("/oidc/token")).isPositive();
+    }
+
+    @Test
+    void loginOnlyMixExchangesEveryCodeWithTheIdp() throws Exception {
+        LoadReport report = new LoadReport();
+
+        new LoadDriver(LoadTest.httpClient(), target, idp, report, "login:1", Duration.ZERO)
+                .run(2, Duration.ZERO, Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+        LoadReport.Row logins = report.row("login");
+        assertThat(logins.getErrors()).isZero();
+        // 每次登录都是新的授权码，换 Token 不会被合并或复用
+        assertThat(idp.calls().get("/oidc/token")).isGreaterThanOrEqualTo(logins.getCount());
+    }
+}
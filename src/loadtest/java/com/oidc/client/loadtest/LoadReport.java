@@ -0,0 +1,154 @@
+package com.oidc.client.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测结果：每种操作一个延迟直方图（微秒，3 位有效数字），以及按 操作:原因 统计的错误数
+ *
+ * 驱动是闭环模型（上一个请求返回后才发下一个），服务变慢时发送速率随之下降，
+ * 尾延迟会偏乐观；对比不同配置时以吞吐和 p99 一起看。
+ */
+final class LoadReport {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private volatile long startNanos = System.nanoTime();
+
+    void record(String operation, long elapsedNanos, String error) {
+        latencies.computeIfAbsent(operation, k -> new ConcurrentHistogram(MAX_LATENCY_MICROS, 3))
+                .recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), MAX_LATENCY_MICROS));
+        requests.increment();
+        if (error != null) {
+            errors.computeIfAbsent(operation + ":" + error, k -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * 预热结束时清空已有数据
+     */
+    void reset() {
+        latencies.values().forEach(Histogram::reset);
+        errors.clear();
+        requests.reset();
+        startNanos = System.nanoTime();
+    }
+
+    long requests() {
+        return requests.sum();
+    }
+
+    long errors() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * 操作:原因 → 次数
+     */
+    Map<String, Long> errorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        errors.forEach((k, count) -> counts.put(k, count.sum()));
+        return counts;
+    }
+
+    double elapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    void print(PrintStream out, Map<String, Long> idpCalls) {
+        double seconds = elapsedSeconds();
+        out.printf(Locale.ROOT, "%n%-10s %10s %10s %8s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Row row : rows(seconds)) {
+            out.printf(Locale.ROOT, "%-10s %10d %10.1f %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    row.getOperation(), row.getCount(), row.getThroughput(), row.getErrors(),
+                    row.getP50(), row.getP90(), row.getP99(), row.getP999(), row.getMax());
+        }
+        out.printf(Locale.ROOT, "%ntotal %d requests in %.1fs, %.1f req/s, %d errors%n",
+                requests(), seconds, requests() / seconds, errors());
+
+        if (!errors.isEmpty()) {
+            out.println("\nerrors:");
+            new TreeMap<>(errors).forEach((k, count) -> out.printf("  %-40s %d%n", k, count.sum()));
+        }
+        out.println("\nIdP calls (including warmup):");
+        new TreeMap<>(idpCalls).forEach((path, count) -> out.printf("  %-40s %d%n", path, count));
+    }
+
+    void writeCsv(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("operation,count,req_per_s,errors,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+        for (Row row : rows(elapsedSeconds())) {
+            lines.add(String.format(Locale.ROOT, "%s,%d,%.1f,%d,%.3f,%.3f,%.3f,%.3f,%.3f",
+                    row.getOperation(), row.getCount(), row.getThroughput(), row.getErrors(),
+                    row.getP50(), row.getP90(), row.getP99(), row.getP999(), row.getMax()));
+        }
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Files.write(file, lines);
+    }
+
+    /**
+     * 单个操作自 reset 以来的汇总；还没有记录时返回 null
+     */
+    Row row(String operation) {
+        return rows(elapsedSeconds()).stream()
+                .filter(row -> row.getOperation().equals(operation))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private List<Row> rows(double seconds) {
+        Map<String, Long> errorsByOperation = new TreeMap<>();
+        errors.forEach((k, count) ->
+                errorsByOperation.merge(k.substring(0, k.indexOf(':')), count.sum(), Long::sum));
+
+        List<Row> rows = new ArrayList<>();
+        new TreeMap<>(latencies).forEach((operation, histogram) -> {
+            Histogram copy = histogram.copy();
+            if (copy.getTotalCount() == 0) {
+                return;
+            }
+            rows.add(new Row(operation, copy.getTotalCount(), copy.getTotalCount() / seconds,
+                    errorsByOperation.getOrDefault(operation, 0L),
+                    millis(copy, 50), millis(copy, 90), millis(copy, 99), millis(copy, 99.9),
+                    copy.getMaxValue() / 1000.0, copy.getMean() / 1000.0));
+        });
+        return rows;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    @lombok.Value
+    static class Row {
+        String operation;
+        long count;
+        double throughput;
+        long errors;
+        double p50;
+        double p90;
+        double p99;
+        double p999;
+        double max;
+        double mean;
+    }
+}
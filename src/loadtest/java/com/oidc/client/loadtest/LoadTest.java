@@ -0,0 +1,128 @@
+package com.oidc.client.loadtest;
+
+import com.oidc.client.OidcClientApplication;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 端到端压测入口：/callback → 换 Token → Cookie → /api/resources/*，不需要真实的 OIDC 服务器
+ *
+ * 默认在本进程内启动内嵌 IdP 桩和应用（随机端口），驱动按 --mix 发送请求，结束后输出各操作的吞吐、
+ * 延迟分位数和错误分类。--target 指定外部应用时只启动 IdP 桩（用 --idp-port 固定端口）。
+ *
+ * 示例：
+ *   mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--concurrency=64 --duration=60s --idp-latency=50ms"
+ *   平台线程与虚拟线程对比（需要 Java 21 运行）：分别加 --virtual-threads=false / true，
+ *   并用 --out=target/loadtest/platform.csv 等保存结果
+ *   固定 IdP 延迟下两种线程模式能维持的最大在途登录数见 LoginCapacity
+ *
+ * 参数见 LoadTestOptions。
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = new LoadTestOptions(args);
+        String secret = options.jwtSecret().isEmpty() ? configuredJwtSecret() : options.jwtSecret();
+
+        StubIdp idp = new StubIdp(options.idpPort(), secret, options.idpLatency(), options.idpJitter(),
+                options.idpErrorRate(), options.tokenTtl());
+        idp.start();
+        System.out.printf("stub IdP at %s (latency %dms ± %dms, error rate %.2f)%n", idp.url(),
+                options.idpLatency().toMillis(), options.idpJitter().toMillis(), options.idpErrorRate());
+
+        ConfigurableApplicationContext app = null;
+        String target = options.target();
+        if (target.isEmpty()) {
+            app = startApplication(options, idp, secret, options.virtualThreads());
+            target = "http://127.0.0.1:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+        }
+        System.out.printf("target %s, concurrency %d, mix %s, Java %s, virtual threads %s%n", target,
+                options.concurrency(), options.mix(), Runtime.version(), options.virtualThreads());
+
+        HttpClient client = httpClient();
+        LoadReport report = new LoadReport();
+        try {
+            new LoadDriver(client, target, idp, report, options.mix(), options.think())
+                    .run(options.concurrency(), options.warmup(), options.duration(), options.reportInterval());
+            report.print(System.out, idp.calls());
+            if (!options.out().isEmpty()) {
+                report.writeCsv(Path.of(options.out()));
+                System.out.println("\nreport written to " + options.out());
+            }
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+            idp.stop();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 驱动用的 HTTP 客户端：HTTP/1.1，不跟随重定向（登录流程要读取 302 的 Location 和 Set-Cookie）
+     */
+    static HttpClient httpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    static ConfigurableApplicationContext startApplication(LoadTestOptions options, StubIdp idp, String secret,
+                                                           boolean virtualThreads) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("oidc.server.url", idp.url());
+        properties.put("jwt.secret", secret);
+        properties.put("spring.threads.virtual.enabled", String.valueOf(virtualThreads));
+        properties.put("oidc.session.cookie-mode", options.cookieMode());
+        // compact 模式要求配置会话密钥，每次压测用一个随机密钥
+        byte[] sessionKey = new byte[32];
+        new SecureRandom().nextBytes(sessionKey);
+        properties.put("oidc.session.key", Base64.getEncoder().encodeToString(sessionKey));
+        // 限流默认关闭（所有虚拟用户都来自 127.0.0.1，按 IP 限流会把压测本身限住）；
+        // 需要时用 --app.oidc.rate-limit.enabled=true --app.server.forward-headers-strategy=none 打开
+        // 不读写本地 discovery 快照，每次都从桩 IdP 拉取
+        properties.put("oidc.discovery.snapshot-dir", "");
+        // 每个请求的 INFO 日志会成为瓶颈，压测时只保留警告
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.oidc", "WARN");
+        properties.putAll(options.appProperties());
+
+        List<String> args = new ArrayList<>();
+        properties.forEach((k, v) -> args.add("--" + k + "=" + v));
+        SpringApplication application = new SpringApplication(OidcClientApplication.class);
+        application.setBannerMode(Banner.Mode.OFF);
+        return application.run(args.toArray(new String[0]));
+    }
+
+    static String configuredJwtSecret() {
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("application.yml"));
+        Properties properties = yaml.getObject();
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(new PropertiesPropertySource("application", properties));
+        return environment.getRequiredProperty("jwt.secret");
+    }
+}
@@ -0,0 +1,171 @@
+package com.oidc.client.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测参数，命令行格式 --name=value
+ *
+ * 以 --app. 开头的参数去掉前缀后原样传给进程内启动的应用，如 --app.oidc.session.cookie-mode=compact
+ */
+final class LoadTestOptions {
+
+    private final Map<String, String> values = new LinkedHashMap<>();
+    private final Map<String, String> appProperties = new LinkedHashMap<>();
+
+    LoadTestOptions(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            if (name.startsWith("app.")) {
+                appProperties.put(name.substring(4), value);
+            } else {
+                values.put(name, value);
+            }
+        }
+    }
+
+    /** 被测应用地址；为空时在进程内启动应用 */
+    String target() {
+        return string("target", "");
+    }
+
+    int concurrency() {
+        return integer("concurrency", 32);
+    }
+
+    Duration warmup() {
+        return duration("warmup", "10s");
+    }
+
+    Duration duration() {
+        return duration("duration", "30s");
+    }
+
+    /** 每个虚拟用户两次请求之间的停顿 */
+    Duration think() {
+        return duration("think", "0ms");
+    }
+
+    Duration reportInterval() {
+        return duration("report-interval", "5s");
+    }
+
+    /** 操作权重：login:5,profile:20,data:60,logout:5,expired:10 */
+    String mix() {
+        return string("mix", "login:5,profile:20,data:60,logout:5,expired:10");
+    }
+
+    boolean virtualThreads() {
+        return Boolean.parseBoolean(string("virtual-threads", "false"));
+    }
+
+    String cookieMode() {
+        return string("cookie-mode", "split");
+    }
+
+    /** 桩 IdP 端口，0 为随机；压测外部应用时固定端口，并把应用的 oidc.server.url 指向它 */
+    int idpPort() {
+        return integer("idp-port", 0);
+    }
+
+    Duration idpLatency() {
+        return duration("idp-latency", "20ms");
+    }
+
+    Duration idpJitter() {
+        return duration("idp-jitter", "10ms");
+    }
+
+    double idpErrorRate() {
+        return Double.parseDouble(string("idp-error-rate", "0"));
+    }
+
+    Duration tokenTtl() {
+        return duration("token-ttl", "1h");
+    }
+
+    /** 桩 IdP 签发 Token 的 HS256 密钥；为空时使用 application.yml 中的 jwt.secret */
+    String jwtSecret() {
+        return string("jwt-secret", "");
+    }
+
+    /** StartupBenchmark 启动被测应用的命令，按空白拆分，如 java -XX:SharedArchiveFile=app.jsa -jar app.jar */
+    String command() {
+        return string("command", "java -jar target/oidc-client-backend-1.0.0.jar");
+    }
+
+    /** StartupBenchmark 子进程的工作目录，为空时使用当前目录；CDS 归档需要在 target/cds 下运行 */
+    String workingDir() {
+        return string("working-dir", "");
+    }
+
+    /** StartupBenchmark 冷启动次数 */
+    int runs() {
+        return integer("runs", 5);
+    }
+
+    /** LoginCapacity 逐级使用的并发登录数 */
+    List<Integer> ramp() {
+        return Arrays.stream(string("ramp", "25,50,100,200,400,800").split(","))
+                .map(String::trim)
+                .map(Integer::valueOf)
+                .toList();
+    }
+
+    /** LoginCapacity 每级的统计时长（另有 step-warmup 预热） */
+    Duration step() {
+        return duration("step", "10s");
+    }
+
+    Duration stepWarmup() {
+        return duration("step-warmup", "3s");
+    }
+
+    /** LoginCapacity 判定可持续的登录 p99 上限 */
+    Duration slo() {
+        return duration("slo", "1s");
+    }
+
+    double maxErrorRate() {
+        return Double.parseDouble(string("max-error-rate", "0.01"));
+    }
+
+    /** LoginCapacity 依次测量的线程模式：platform、virtual */
+    List<String> threads() {
+        return Arrays.stream(string("threads", "platform,virtual").split(","))
+                .map(String::trim)
+                .toList();
+    }
+
+    /** 结果 CSV 输出路径，为空时只打印到控制台 */
+    String out() {
+        return string("out", "");
+    }
+
+    Map<String, String> appProperties() {
+        return appProperties;
+    }
+
+    private String string(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    private int integer(String name, int defaultValue) {
+        String value = values.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private Duration duration(String name, String defaultValue) {
+        return DurationStyle.detectAndParse(string(name, defaultValue));
+    }
+}
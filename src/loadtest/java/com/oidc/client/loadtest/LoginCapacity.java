@@ -0,0 +1,194 @@
+package com.oidc.client.loadtest;
+
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 登录容量：IdP 固定延迟下逐级增加并发登录，找出仍满足 SLO 的最大在途登录数，对比平台线程和虚拟线程
+ *
+ * 每种线程模式在独立的子 JVM 中启动 IdP 桩和应用（随机端口），虚拟用户只做登录（authorize → callback → 换 Token），
+ * 按 --ramp 逐级增加并发，每级先预热 --step-warmup 再统计 --step。在途登录数按 Little 定律取
+ * 吞吐 × 平均延迟；错误率不超过 --max-error-rate 且 p99 不超过 --slo 的一级视为可持续，
+ * 某一级不满足时停止该模式的爬坡。IdP 桩没有抖动，延迟全部是 --idp-latency。
+ *
+ * 默认配置下同时进行的 IdP 调用受隔离舱（oidc.resilience.bulkhead.max-concurrent-calls）和连接池（oidc.http.*）
+ * 限制，两种模式会先撞到同一个上限（表现为 error=idp_unavailable）；要比较线程模型本身，用 --app.* 放开这些限制。
+ *
+ * 示例（虚拟线程需要 Java 21 运行，用 -Dloadtest.java 指向 Java 21 的 java）：
+ *   mvn -Ploadtest test-compile exec:exec -Dloadtest.main=com.oidc.client.loadtest.LoginCapacity \
+ *       -Dloadtest.args="--idp-latency=200ms --ramp=50,100,200,400,800,1600 --out=target/loadtest/capacity.csv \
+ *       --app.oidc.http.max-total=2000 --app.oidc.http.max-per-route=2000 \
+ *       --app.oidc.resilience.bulkhead.max-concurrent-calls=2000"
+ *
+ * 其余参数（--app.*、--token-ttl 等）与 LoadTest 相同，见 LoadTestOptions。
+ */
+public final class LoginCapacity {
+
+    private static final String FORKED = "loadtest.login-capacity.forked";
+
+    private LoginCapacity() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = new LoadTestOptions(args);
+        List<String> modes = options.threads();
+        List<Step> steps = new ArrayList<>();
+        if (modes.size() == 1) {
+            steps.addAll(measure(options, modes.get(0)));
+            if (Boolean.getBoolean(FORKED)) {
+                // 子进程只输出本模式的逐级结果，汇总由父进程完成
+                writeCsv(Path.of(options.out()), steps);
+                System.exit(0);
+            }
+        } else {
+            // 每种模式在独立的 JVM 中从冷启动开始测，避免后测的模式沾上先测模式的 JIT 预热
+            for (String threads : modes) {
+                Path csv = Files.createTempFile("login-capacity-" + threads, ".csv");
+                int exit = fork(args, threads, csv);
+                if (exit != 0) {
+                    System.out.printf("%n%s threads failed with exit code %d%n", threads, exit);
+                    continue;
+                }
+                steps.addAll(readCsv(csv));
+                Files.deleteIfExists(csv);
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%nmax sustained in-flight logins (p99 <= %dms, errors <= %.1f%%):%n",
+                options.slo().toMillis(), options.maxErrorRate() * 100);
+        for (String threads : modes) {
+            List<Step> ramp = steps.stream().filter(step -> step.threads.equals(threads)).toList();
+            Step best = ramp.stream().filter(Step::sustained).reduce((first, second) -> second).orElse(null);
+            System.out.printf(Locale.ROOT, "  %-9s %s%n", threads, ramp.isEmpty()
+                    ? "skipped"
+                    : best == null
+                    ? "none"
+                    : String.format(Locale.ROOT, "%.0f (concurrency %d, %.1f logins/s)",
+                            best.inFlight, best.concurrency, best.throughput));
+        }
+        if (!options.out().isEmpty()) {
+            writeCsv(Path.of(options.out()), steps);
+            System.out.println("\nreport written to " + options.out());
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 在本进程内启动 IdP 桩和一种线程模式的应用，逐级爬坡直到某一级不满足 SLO
+     */
+    private static List<Step> measure(LoadTestOptions options, String threads) throws Exception {
+        boolean virtualThreads = threads.equals("virtual");
+        if (virtualThreads && Runtime.version().feature() < 21) {
+            System.out.println("\nskipping virtual threads: requires a Java 21 runtime");
+            return List.of();
+        }
+        String secret = options.jwtSecret().isEmpty() ? LoadTest.configuredJwtSecret() : options.jwtSecret();
+        StubIdp idp = new StubIdp(0, secret, options.idpLatency(), Duration.ZERO, 0, options.tokenTtl());
+        idp.start();
+        ConfigurableApplicationContext app = null;
+        List<Step> steps = new ArrayList<>();
+        try {
+            app = LoadTest.startApplication(options, idp, secret, virtualThreads);
+            String target = "http://127.0.0.1:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+            System.out.printf("%n%s threads, target %s, stub IdP at %s (fixed latency %dms), Java %s%n", threads,
+                    target, idp.url(), options.idpLatency().toMillis(), Runtime.version());
+            HttpClient client = LoadTest.httpClient();
+            for (int concurrency : options.ramp()) {
+                Step step = run(client, target, idp, options, threads, concurrency);
+                steps.add(step);
+                System.out.println(step.line());
+                step.errors.forEach((cause, count) -> System.out.printf("      %-40s %d%n", cause, count));
+                if (!step.sustained) {
+                    break;
+                }
+            }
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+            idp.stop();
+        }
+        return steps;
+    }
+
+    /**
+     * 用同一个 java、JVM 参数和 classpath 启动子进程测量一种线程模式，结果写入 csv
+     */
+    private static int fork(String[] args, String threads, Path csv) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-D" + FORKED + "=true");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(LoginCapacity.class.getName());
+        for (String arg : args) {
+            if (!arg.startsWith("--threads=") && !arg.startsWith("--out=")) {
+                command.add(arg);
+            }
+        }
+        command.add("--threads=" + threads);
+        command.add("--out=" + csv);
+        return new ProcessBuilder(command).inheritIO().start().waitFor();
+    }
+
+    private static List<Step> readCsv(Path file) throws IOException {
+        List<Step> steps = new ArrayList<>();
+        for (String line : Files.readAllLines(file).stream().skip(1).toList()) {
+            String[] fields = line.split(",");
+            steps.add(new Step(fields[0], Integer.parseInt(fields[1]), Double.parseDouble(fields[2]),
+                    Double.parseDouble(fields[3]), Double.parseDouble(fields[4]), Double.parseDouble(fields[5]),
+                    Double.parseDouble(fields[6]), Boolean.parseBoolean(fields[7]), Map.of()));
+        }
+        return steps;
+    }
+
+    private static Step run(HttpClient client, String target, StubIdp idp, LoadTestOptions options,
+                            String threads, int concurrency) throws InterruptedException {
+        LoadReport report = new LoadReport();
+        new LoadDriver(client, target, idp, report, "login:1", Duration.ZERO)
+                .run(concurrency, options.stepWarmup(), options.step(), options.step());
+        LoadReport.Row logins = report.row("login");
+        if (logins == null) {
+            return new Step(threads, concurrency, 0, 0, 0, 1, 0, false, report.errorCounts());
+        }
+        double errorRate = (double) logins.getErrors() / logins.getCount();
+        boolean sustained = errorRate <= options.maxErrorRate() && logins.getP99() <= options.slo().toMillis();
+        return new Step(threads, concurrency, logins.getThroughput(), logins.getP50(), logins.getP99(), errorRate,
+                logins.getThroughput() * logins.getMean() / 1000, sustained, report.errorCounts());
+    }
+
+    private static void writeCsv(Path file, List<Step> steps) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("threads,concurrency,logins_per_s,p50_ms,p99_ms,error_rate,in_flight,sustained");
+        for (Step step : steps) {
+            lines.add(String.format(Locale.ROOT, "%s,%d,%.1f,%.3f,%.3f,%.4f,%.1f,%s", step.threads, step.concurrency,
+                    step.throughput, step.p50, step.p99, step.errorRate, step.inFlight, step.sustained));
+        }
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        Files.write(file, lines);
+    }
+
+    private record Step(String threads, int concurrency, double throughput, double p50, double p99,
+                        double errorRate, double inFlight, boolean sustained, Map<String, Long> errors) {
+
+        String line() {
+            return String.format(Locale.ROOT,
+                    "  concurrency %5d  %9.1f logins/s  p50 %8.2fms  p99 %8.2fms  errors %5.2f%%  in-flight %7.1f  %s",
+                    concurrency, throughput, p50, p99, errorRate * 100, inFlight, sustained ? "ok" : "over SLO");
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.oidc.client.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冷启动基准：反复以子进程启动应用，测量从进程创建到可以处理请求的时间，以及头几个请求的延迟
+ *
+ * 每轮记录：
+ *   ready    - 进程启动到 /api/auth/health 返回 200
+ *   first    - 第一个受保护请求（/api/resources/data，验签），JIT 尚未预热
+ *   login    - 第一次登录（/api/auth/authorize + /callback，经过桩 IdP）
+ *   warm p50 - 随后 WARM_REQUESTS 个受保护请求的中位数
+ *
+ * 用 --command 分别指向 JVM jar（默认）、CDS 归档（mvn -Pcds package）和 native 可执行文件（mvn -Pnative native:compile），
+ * 对比三种启动方式：
+ *   mvn -Ploadtest test-compile exec:exec -Dloadtest.main=com.oidc.client.loadtest.StartupBenchmark \
+ *       -Dloadtest.args='--runs=10 --working-dir=target/cds "--command=java -XX:SharedArchiveFile=app.jsa -jar app.jar"'
+ *   ... -Dloadtest.args="--runs=10 --command=target/oidc-client-backend"
+ *
+ * 子进程输出写到 target/startup/run-N.log。参数见 LoadTestOptions（command、working-dir、runs、idp-*、--app.*、out）。
+ */
+public final class StartupBenchmark {
+
+    private static final int WARM_REQUESTS = 200;
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = new LoadTestOptions(args);
+        String secret = options.jwtSecret().isEmpty() ? LoadTest.configuredJwtSecret() : options.jwtSecret();
+        StubIdp idp = new StubIdp(options.idpPort(), secret, options.idpLatency(), options.idpJitter(),
+                options.idpErrorRate(), options.tokenTtl());
+        idp.start();
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+        Path logDir = Files.createDirectories(Path.of("target", "startup").toAbsolutePath());
+        System.out.printf("command: %s, runs %d, Java %s (driver)%n", options.command(), options.runs(), Runtime.version());
+
+        List<long[]> results = new ArrayList<>();
+        try {
+            for (int run = 1; run <= options.runs(); run++) {
+                long[] result = run(options, idp, secret, client, logDir.resolve("run-" + run + ".log").toFile());
+                results.add(result);
+                System.out.printf("run %2d  ready %6.1f ms  first %7.2f ms  login %7.2f ms  warm p50 %6.2f ms%n",
+                        run, millis(result[0]), millis(result[1]), millis(result[2]), millis(result[3]));
+            }
+        } finally {
+            idp.stop();
+        }
+
+        System.out.printf("%nmedian  ready %6.1f ms  first %7.2f ms  login %7.2f ms  warm p50 %6.2f ms%n",
+                millis(median(results, 0)), millis(median(results, 1)), millis(median(results, 2)),
+                millis(median(results, 3)));
+        if (!options.out().isEmpty()) {
+            writeCsv(Path.of(options.out()), options.command(), results);
+            System.out.println("\nreport written to " + options.out());
+        }
+        System.exit(0);
+    }
+
+    /**
+     * @return 纳秒：ready、first、login、warm p50
+     */
+    private static long[] run(LoadTestOptions options, StubIdp idp, String secret, HttpClient client, File log)
+            throws IOException, InterruptedException {
+        int port = freePort();
+        String target = "http://127.0.0.1:" + port;
+
+        List<String> command = new ArrayList<>(Arrays.asList(options.command().trim().split("\\s+")));
+        command.add("--server.port=" + port);
+        command.add("--oidc.server.url=" + idp.url());
+        command.add("--jwt.secret=" + secret);
+        command.add("--oidc.discovery.snapshot-dir=");
+        command.add("--logging.level.root=WARN");
+        options.appProperties().forEach((k, v) -> command.add("--" + k + "=" + v));
+
+        long start = System.nanoTime();
+        ProcessBuilder builder = new ProcessBuilder(command);
+        if (!options.workingDir().isEmpty()) {
+            builder.directory(new File(options.workingDir()));
+        }
+        Process process = builder
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        try {
+            long ready = awaitReady(client, target, process, start) - start;
+
+            HttpRequest data = HttpRequest.newBuilder(URI.create(target + "/api/resources/data"))
+                    .header("Authorization", "Bearer " + idp.validToken(1))
+                    .GET()
+                    .build();
+            long first = timed(client, data, 200);
+            long login = login(client, target);
+
+            long[] warm = new long[WARM_REQUESTS];
+            for (int i = 0; i < WARM_REQUESTS; i++) {
+                warm[i] = timed(client, data, 200);
+            }
+            Arrays.sort(warm);
+            return new long[]{ready, first, login, warm[WARM_REQUESTS / 2]};
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static long awaitReady(HttpClient client, String target, Process process, long start)
+            throws IOException, InterruptedException {
+        HttpRequest health = HttpRequest.newBuilder(URI.create(target + "/api/auth/health"))
+                .timeout(Duration.ofSeconds(1))
+                .GET()
+                .build();
+        while (System.nanoTime() - start < STARTUP_TIMEOUT.toNanos()) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue() + ", see log");
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return System.nanoTime();
+                }
+            } catch (ConnectException | HttpTimeoutException e) {
+                // 端口尚未监听
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("Application not ready after " + STARTUP_TIMEOUT.toSeconds() + "s");
+    }
+
+    /**
+     * /api/auth/authorize 取 state 和登录绑定 Cookie，再带着 Cookie 用桩 IdP 认得的授权码回调
+     */
+    private static long login(HttpClient client, String target) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<Void> authorize = client.send(HttpRequest.newBuilder(URI.create(target + "/api/auth/authorize"))
+                .GET().build(), HttpResponse.BodyHandlers.discarding());
+        String location = authorize.headers().firstValue("Location").orElse("");
+        String state = location.substring(location.indexOf("state=") + "state=".length());
+        String binding = authorize.headers().allValues("Set-Cookie").stream()
+                .filter(cookie -> cookie.startsWith("oidc_login="))
+                .map(cookie -> cookie.split(";", 2)[0])
+                .findFirst().orElse("");
+        HttpResponse<Void> callback = client.send(HttpRequest.newBuilder(
+                URI.create(target + "/callback?code=u1-startup&state=" + state)).header("Cookie", binding).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+        long elapsed = System.nanoTime() - start;
+        String redirect = callback.headers().firstValue("Location").orElse("");
+        if (callback.statusCode() != 302 || redirect.contains("error=")) {
+            throw new IllegalStateException("Login failed: " + callback.statusCode() + " " + redirect);
+        }
+        return elapsed;
+    }
+
+    private static long timed(HttpClient client, HttpRequest request, int expectedStatus)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        long elapsed = System.nanoTime() - start;
+        if (status != expectedStatus) {
+            throw new IllegalStateException(request.uri() + " returned " + status);
+        }
+        return elapsed;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(List<long[]> results, int column) {
+        long[] values = results.stream().mapToLong(r -> r[column]).sorted().toArray();
+        return values[values.length / 2];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static void writeCsv(Path path, String command, List<long[]> results) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            out.println("command,run,ready_ms,first_ms,login_ms,warm_p50_ms");
+            for (int i = 0; i < results.size(); i++) {
+                long[] r = results.get(i);
+                out.printf("\"%s\",%d,%.3f,%.3f,%.3f,%.3f%n", command, i + 1,
+                        millis(r[0]), millis(r[1]), millis(r[2]), millis(r[3]));
+            }
+        }
+    }
+}
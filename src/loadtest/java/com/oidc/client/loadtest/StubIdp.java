@@ -0,0 +1,227 @@
+package com.oidc.client.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测用的内嵌 IdP 桩
+ *
+ * - /.well-known/openid-configuration 指向自身的各端点
+ * - /oidc/token 支持 authorization_code 和 refresh_token，签发用 jwt.secret 签名的 HS256 Token；
+ *   授权码格式为 u{用户号}-{随机串}，用户号成为 Token 的 sub
+ * - /oidc/userinfo 返回固定格式的用户资料
+ * - /oidc/jwks 返回空公钥集
+ *
+ * 每个请求先等待 latency ± jitter，按 error-rate 比例返回 503，模拟 IdP 的耗时和故障。
+ */
+final class StubIdp {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final SecretKey key;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+    private final long tokenTtlMillis;
+    private final Map<String, LongAdder> calls = new HashMap<>();
+
+    StubIdp(int port, String jwtSecret, Duration latency, Duration jitter, double errorRate, Duration tokenTtl)
+            throws IOException {
+        this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.latencyMillis = latency.toMillis();
+        this.jitterMillis = jitter.toMillis();
+        this.errorRate = errorRate;
+        this.tokenTtlMillis = tokenTtl.toMillis();
+
+        // 关闭 Nagle，避免小响应触发 40ms 延迟确认
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        server.setExecutor(executor);
+        route("/.well-known/openid-configuration", this::discovery);
+        route("/oidc/token", this::token);
+        route("/oidc/userinfo", this::userInfo);
+        route("/oidc/jwks", exchange -> "{\"keys\":[]}");
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * 各端点收到的请求数
+     */
+    Map<String, Long> calls() {
+        Map<String, Long> snapshot = new HashMap<>();
+        calls.forEach((path, count) -> snapshot.put(path, count.sum()));
+        return snapshot;
+    }
+
+    /**
+     * 签发一个有效期为 token-ttl 的 Access Token，不经过 /callback 直接访问受保护接口
+     */
+    String validToken(long userId) {
+        return accessToken(userId, tokenTtlMillis);
+    }
+
+    /**
+     * 签发一个已过期的 Access Token，用于模拟过期 Token 流量
+     */
+    String expiredToken(long userId) {
+        return accessToken(userId, -60_000);
+    }
+
+    private void route(String path, Handler handler) {
+        LongAdder counter = new LongAdder();
+        calls.put(path, counter);
+        server.createContext(path, exchange -> {
+            try {
+                counter.increment();
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                exchange.setAttribute("body", body);
+                delay();
+                if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                    exchange.sendResponseHeaders(503, -1);
+                    return;
+                }
+                String json = handler.handle(exchange);
+                if (json == null) {
+                    exchange.sendResponseHeaders(400, -1);
+                    return;
+                }
+                byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (RuntimeException e) {
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    private String discovery(HttpExchange exchange) {
+        String base = url();
+        return "{\"issuer\":\"" + base + "\","
+                + "\"authorization_endpoint\":\"" + base + "/oidc/authorize\","
+                + "\"token_endpoint\":\"" + base + "/oidc/token\","
+                + "\"userinfo_endpoint\":\"" + base + "/oidc/userinfo\","
+                + "\"jwks_uri\":\"" + base + "/oidc/jwks\"}";
+    }
+
+    private String token(HttpExchange exchange) {
+        Map<String, String> form = parseForm((String) exchange.getAttribute("body"));
+        long userId;
+        if ("authorization_code".equals(form.get("grant_type"))) {
+            userId = userIdOf(form.get("code"), "u");
+        } else if ("refresh_token".equals(form.get("grant_type"))) {
+            userId = userIdOf(form.get("refresh_token"), "r");
+        } else {
+            return null;
+        }
+        if (userId < 0) {
+            return null;
+        }
+        return "{\"access_token\":\"" + accessToken(userId, tokenTtlMillis) + "\","
+                + "\"token_type\":\"Bearer\","
+                + "\"expires_in\":" + tokenTtlMillis / 1000 + ","
+                + "\"refresh_token\":\"r" + userId + "-" + UUID.randomUUID() + "\"}";
+    }
+
+    private String userInfo(HttpExchange exchange) {
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return null;
+        }
+        // 桩不验签，只根据 Token 长度生成稳定的用户资料
+        int id = authorization.length() % 1000;
+        return "{\"sub\":\"" + id + "\",\"name\":\"Load User " + id + "\",\"email\":\"user" + id + "@loadtest.local\"}";
+    }
+
+    private String accessToken(long userId, long ttlMillis) {
+        return Jwts.builder()
+                .subject(String.valueOf(userId))
+                .id(UUID.randomUUID().toString())
+                .claim("username", "user" + userId)
+                .claim("client_id", "my-app")
+                .claim("scope", "openid profile email")
+                .expiration(new Date(System.currentTimeMillis() + ttlMillis))
+                .signWith(key)
+                .compact();
+    }
+
+    private void delay() {
+        long millis = latencyMillis;
+        if (jitterMillis > 0) {
+            millis += ThreadLocalRandom.current().nextLong(-jitterMillis, jitterMillis + 1);
+        }
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static long userIdOf(String value, String prefix) {
+        if (value == null || !value.startsWith(prefix)) {
+            return -1;
+        }
+        int dash = value.indexOf('-');
+        try {
+            return Long.parseLong(value.substring(prefix.length(), dash > 0 ? dash : value.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        Map<String, String> form = new HashMap<>();
+        if (body == null || body.isEmpty()) {
+            return form;
+        }
+        for (String pair : body.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                form.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return form;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        String handle(HttpExchange exchange) throws IOException;
+    }
+}
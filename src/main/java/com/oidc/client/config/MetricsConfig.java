@@ -0,0 +1,97 @@
+package com.oidc.client.config;
+
+import com.oidc.client.service.AuthorizationStateStore;
+import com.oidc.client.service.IdpResilience;
+import com.oidc.client.service.OidcClientService;
+import com.oidc.client.service.RevocationService;
+import com.oidc.client.service.TokenStore;
+import com.oidc.client.service.UserInfoService;
+import com.oidc.client.util.JwksKeyResolver;
+import com.oidc.client.util.RateLimiter;
+import com.oidc.client.util.VerifiedTokenCache;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 缓存和连接池的 Gauge
+ *
+ * reactor-netty 连接池（WebClient）的指标由 ConnectionProvider.metrics(true) 自行注册。
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder cacheMetrics(VerifiedTokenCache verifiedTokenCache,
+                                    UserInfoService userInfoService,
+                                    JwksKeyResolver jwksKeyResolver,
+                                    OidcClientService oidcClientService,
+                                    TokenStore tokenStore,
+                                    RevocationService revocationService,
+                                    AuthorizationStateStore authorizationStateStore) {
+        return registry -> {
+            Gauge.builder("oidc.cache.size", verifiedTokenCache, VerifiedTokenCache::size)
+                    .description("Verified token cache entries")
+                    .tag("cache", "verified_tokens")
+                    .register(registry);
+            Gauge.builder("oidc.cache.size", userInfoService, UserInfoService::size)
+                    .description("UserInfo cache entries")
+                    .tag("cache", "userinfo")
+                    .register(registry);
+            Gauge.builder("oidc.cache.size", tokenStore, TokenStore::size)
+                    .description("Server-side token store sessions")
+                    .tag("cache", "token_store")
+                    .register(registry);
+            Gauge.builder("oidc.revocation.entries", revocationService, RevocationService::size)
+                    .description("Tokens on the local revocation list")
+                    .register(registry);
+            Gauge.builder("oidc.jwks.keys", jwksKeyResolver, JwksKeyResolver::size)
+                    .description("Public keys currently loaded from JWKS")
+                    .register(registry);
+            Gauge.builder("oidc.refresh.flights", oidcClientService, OidcClientService::refreshFlightCount)
+                    .description("In-flight or recently completed token refreshes")
+                    .register(registry);
+            Gauge.builder("oidc.code_exchange.flights", oidcClientService, OidcClientService::codeFlightCount)
+                    .description("In-flight or recently completed authorization code exchanges")
+                    .register(registry);
+            Gauge.builder("oidc.state.entries", authorizationStateStore, AuthorizationStateStore::size)
+                    .description("Issued authorization request states awaiting callback")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * 熔断器状态、隔离舱可用并发数和重试次数，对应 IdpResilience
+     */
+    @Bean
+    public MeterBinder idpResilienceMetrics(IdpResilience idpResilience) {
+        return registry -> {
+            TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(idpResilience.getCircuitBreakerRegistry()).bindTo(registry);
+            TaggedBulkheadMetrics.ofBulkheadRegistry(idpResilience.getBulkheadRegistry()).bindTo(registry);
+            TaggedRetryMetrics.ofRetryRegistry(idpResilience.getRetryRegistry()).bindTo(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder rateLimitMetrics(RateLimiter rateLimiter) {
+        return registry -> {
+            Gauge.builder("oidc.rate_limit.keys", rateLimiter, RateLimiter::size)
+                    .description("Keys currently tracked by RateLimiter")
+                    .register(registry);
+            Gauge.builder("oidc.rate_limit.idp_factor", rateLimiter, RateLimiter::idpFactor)
+                    .description("Fraction of the configured IdP-bound rate currently allowed")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder idpConnectionPoolMetrics(PoolingHttpClientConnectionManager idpConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(idpConnectionManager, "idp");
+    }
+}
@@ -0,0 +1,80 @@
+package com.oidc.client.config;
+
+import com.oidc.client.dto.IntrospectionResult;
+import com.oidc.client.dto.TokenExchangeRequest;
+import com.oidc.client.dto.TokenResponse;
+import com.oidc.client.dto.UserInfo;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Spring AOT / GraalVM native image 的反射和资源提示（mvn -Pnative），JVM 运行时不起作用
+ *
+ * AOT 只能从 Controller 签名推断出具体的请求 / 响应类型；经 RestTemplate / WebClient 反序列化的 TokenResponse
+ * 和以 ResponseEntity<?> 返回的 DTO 在这里登记 Jackson 绑定（含 @JsonProperty 字段名和 Lombok 生成的访问器）。
+ */
+@Configuration
+@RegisterReflectionForBinding({TokenResponse.class, TokenExchangeRequest.class, UserInfo.class, IntrospectionResult.class})
+@ImportRuntimeHints({NativeConfig.JjwtRuntimeHints.class, NativeConfig.LogbackRuntimeHints.class})
+public class NativeConfig {
+
+    /**
+     * jjwt-api 按类名反射加载 jjwt-impl 中的实现（Jwts.parser()、Jwts.SIG、Keys 等），
+     * 序列化器通过 ServiceLoader 从 jjwt-jackson 加载；Claims 由 Jackson 反序列化为 Map，不需要额外绑定
+     */
+    static class JjwtRuntimeHints implements RuntimeHintsRegistrar {
+
+        static final String[] IMPLEMENTATIONS = {
+                "io.jsonwebtoken.impl.DefaultClaimsBuilder",
+                "io.jsonwebtoken.impl.DefaultJwtBuilder",
+                "io.jsonwebtoken.impl.DefaultJwtHeaderBuilder",
+                "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+                "io.jsonwebtoken.impl.io.StandardCompressionAlgorithms",
+                "io.jsonwebtoken.impl.security.DefaultDynamicJwkBuilder",
+                "io.jsonwebtoken.impl.security.DefaultJwkParserBuilder",
+                "io.jsonwebtoken.impl.security.DefaultJwkSetBuilder",
+                "io.jsonwebtoken.impl.security.DefaultJwkSetParserBuilder",
+                "io.jsonwebtoken.impl.security.DefaultKeyOperationBuilder",
+                "io.jsonwebtoken.impl.security.DefaultKeyOperationPolicyBuilder",
+                "io.jsonwebtoken.impl.security.JwksBridge",
+                "io.jsonwebtoken.impl.security.KeysBridge",
+                "io.jsonwebtoken.impl.security.StandardCurves",
+                "io.jsonwebtoken.impl.security.StandardEncryptionAlgorithms",
+                "io.jsonwebtoken.impl.security.StandardHashAlgorithms",
+                "io.jsonwebtoken.impl.security.StandardKeyAlgorithms",
+                "io.jsonwebtoken.impl.security.StandardKeyOperations",
+                "io.jsonwebtoken.impl.security.StandardSecureDigestAlgorithms",
+                "io.jsonwebtoken.jackson.io.JacksonSerializer",
+                "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+        };
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (String type : IMPLEMENTATIONS) {
+                hints.reflection().registerType(TypeReference.of(type),
+                        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS,
+                        MemberCategory.DECLARED_FIELDS);
+            }
+            hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+        }
+    }
+
+    /**
+     * logback-spring.xml 按 LOG_FILE 拼出资源名 include 文件输出配置，AOT 看不到这个引用
+     */
+    static class LogbackRuntimeHints implements RuntimeHintsRegistrar {
+
+        static final String FILE_APPENDER_CONFIG = "logback-file-enabled.xml";
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.resources().registerPattern(FILE_APPENDER_CONFIG);
+        }
+    }
+}
@@ -1,14 +1,103 @@
 package com.oidc.client.config;
 
+import io.netty.channel.ChannelOption;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class SecurityConfig {
 
+    /**
+     * 访问 IdP 的连接池，按路由限制并发连接数，空闲连接定期回收
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager idpConnectionManager(
+            @Value("${oidc.http.max-total:50}") int maxTotal,
+            @Value("${oidc.http.max-per-route:20}") int maxPerRoute,
+            @Value("${oidc.http.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${oidc.http.read-timeout:5s}") Duration readTimeout,
+            @Value("${oidc.http.connection-ttl:5m}") Duration connectionTtl) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setTimeToLive(TimeValue.of(connectionTtl))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient idpHttpClient(
+            PoolingHttpClientConnectionManager idpConnectionManager,
+            @Value("${oidc.http.read-timeout:5s}") Duration readTimeout,
+            @Value("${oidc.http.pool-acquire-timeout:1s}") Duration poolAcquireTimeout,
+            @Value("${oidc.http.idle-eviction:30s}") Duration idleEviction) {
+        return HttpClients.custom()
+                .setConnectionManager(idpConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolAcquireTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictIdleConnections(TimeValue.of(idleEviction))
+                .evictExpiredConnections()
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient idpHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(idpHttpClient));
+    }
+
+    /**
+     * 非阻塞 IdP 客户端，连接池参数与 RestTemplate 共用 oidc.http.* 配置
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider idpConnectionProvider(
+            @Value("${oidc.http.max-total:50}") int maxTotal,
+            @Value("${oidc.http.pool-acquire-timeout:1s}") Duration poolAcquireTimeout,
+            @Value("${oidc.http.idle-eviction:30s}") Duration idleEviction,
+            @Value("${oidc.http.connection-ttl:5m}") Duration connectionTtl) {
+        return ConnectionProvider.builder("idp")
+                .maxConnections(maxTotal)
+                .pendingAcquireTimeout(poolAcquireTimeout)
+                .maxIdleTime(idleEviction)
+                .maxLifeTime(connectionTtl)
+                .evictInBackground(idleEviction)
+                .metrics(true)
+                .build();
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public WebClient idpWebClient(
+            WebClient.Builder builder,
+            ConnectionProvider idpConnectionProvider,
+            @Value("${oidc.http.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${oidc.http.read-timeout:5s}") Duration readTimeout) {
+        HttpClient httpClient = HttpClient.create(idpConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout);
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
     }
 }
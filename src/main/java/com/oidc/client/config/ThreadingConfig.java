@@ -0,0 +1,24 @@
+package com.oidc.client.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+/**
+ * 虚拟线程模式（spring.threads.virtual.enabled=true，需要 Java 21 运行时）
+ *
+ * Tomcat 请求线程由 Spring Boot 自动切换为虚拟线程；这里额外提供 IdP 调用使用的执行器，
+ * 让 Token / UserInfo 请求走连接池 RestTemplate 的同步调用，阻塞时只挂起虚拟线程。
+ */
+@Configuration
+public class ThreadingConfig {
+
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public AsyncTaskExecutor idpTaskExecutor() {
+        return new VirtualThreadTaskExecutor("idp-");
+    }
+}
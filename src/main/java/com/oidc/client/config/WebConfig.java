@@ -1,7 +1,9 @@
 package com.oidc.client.config;
 
 import com.oidc.client.filter.JwtTokenFilter;
+import com.oidc.client.util.PublicPathMatcher;
 import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -20,15 +22,25 @@ import java.util.Arrays;
 public class WebConfig {
 
     private final JwtTokenFilter jwtTokenFilter;
+    private final PublicPathMatcher publicPathMatcher;
 
+    /**
+     * /api/admin/** 需要管理权限，默认为 Token 中的 admin scope（SCOPE_admin）；
+     * 除公开的 /actuator/health 外，Actuator 端点需要监控权限，默认为 SCOPE_metrics
+     */
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(
+            HttpSecurity http,
+            @Value("${oidc.admin.authority:SCOPE_admin}") String adminAuthority,
+            @Value("${oidc.admin.actuator-authority:SCOPE_metrics}") String actuatorAuthority) throws Exception {
         http
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .csrf(csrf -> csrf.disable())
                 .addFilterBefore(jwtTokenFilter, UsernamePasswordAuthenticationFilter.class)
                 .authorizeHttpRequests(authz -> authz
-                        .requestMatchers("/callback", "/api/auth/token", "/api/auth/health", "/api/health").permitAll()
+                        .requestMatchers(publicPathMatcher).permitAll()
+                        .requestMatchers("/api/admin/**").hasAuthority(adminAuthority)
+                        .requestMatchers("/actuator/**").hasAuthority(actuatorAuthority)
                         .anyRequest().authenticated()
                 );
 
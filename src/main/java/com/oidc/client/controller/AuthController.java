@@ -1,17 +1,28 @@
 package com.oidc.client.controller;
 
+import com.oidc.client.dto.AuthenticatedPrincipal;
 import com.oidc.client.dto.TokenExchangeRequest;
 import com.oidc.client.dto.TokenResponse;
-import com.oidc.client.dto.UserInfo;
+import com.oidc.client.service.AuthorizationStateStore;
 import com.oidc.client.service.OidcClientService;
-import jakarta.servlet.http.Cookie;
+import com.oidc.client.service.RevocationService;
+import com.oidc.client.service.UserInfoService;
+import com.oidc.client.util.JsonPayload;
+import com.oidc.client.util.JsonResponse;
+import com.oidc.client.util.TokenCookies;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
-import jakarta.servlet.http.HttpServletRequest;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -20,79 +31,113 @@ import jakarta.servlet.http.HttpServletRequest;
 public class AuthController {
 
     private final OidcClientService oidcClientService;
+    private final TokenCookies tokenCookies;
+    private final UserInfoService userInfoService;
+    private final RevocationService revocationService;
+    private final AuthorizationStateStore authorizationStateStore;
+
+    /**
+     * 登录入口 - 签发 state，把浏览器随机数写入 HttpOnly Cookie，并重定向到 IdP 授权端点
+     */
+    @GetMapping("/authorize")
+    public ResponseEntity<?> authorize(HttpServletRequest request, HttpServletResponse response) {
+        AuthorizationStateStore.Issued issued = authorizationStateStore.issue(request.getRemoteAddr());
+        if (issued == null) {
+            return JsonResponse.tooManyRequests(authorizationStateStore.getTtl().toNanos()).entity();
+        }
+        TokenCookies.writeLoginBinding(response, issued.getBrowserNonce(), authorizationStateStore.getTtl());
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .location(URI.create(oidcClientService.authorizationUrl(issued.getState())))
+                .build();
+    }
 
     @PostMapping("/token")
-    public ResponseEntity<?> exchangeToken(@RequestBody TokenExchangeRequest request) {
+    public Mono<ResponseEntity<?>> exchangeToken(@RequestBody TokenExchangeRequest request,
+                                                 HttpServletRequest httpRequest) {
         if (request.getCode() == null || request.getCode().isEmpty()) {
-            return ResponseEntity.badRequest()
-                    .body("{\"error\": \"invalid_request\", \"message\": \"Missing authorization code\"}");
+            return Mono.just(JsonResponse.MISSING_CODE.entity());
         }
 
-        TokenResponse tokenResponse = oidcClientService.exchangeCodeForToken(request.getCode());
-
-        if (tokenResponse != null) {
-            log.info("✓ Token exchange successful for user: {}", tokenResponse.getUsername());
-            return ResponseEntity.ok(tokenResponse);
-        } else {
-            log.warn("✗ Token exchange failed for code: {}", request.getCode());
-            return ResponseEntity.badRequest()
-                    .body("{\"error\": \"invalid_grant\", \"message\": \"Failed to exchange authorization code\"}");
+        // state 必须由 /api/auth/authorize 签发给发起请求的这个浏览器，且未被其他授权码使用（防登录 CSRF）
+        String browserNonce = TokenCookies.read(httpRequest, TokenCookies.LOGIN_BINDING);
+        if (!authorizationStateStore.claim(request.getState(), request.getCode(), browserNonce)) {
+            return Mono.just(JsonResponse.INVALID_STATE.entity());
         }
+
+        // 异步换取 Token，等待 IdP 期间释放 Servlet 线程
+        return oidcClientService.exchangeCodeForTokenAsync(request.getCode(), browserNonce)
+                .map(outcome -> {
+                    if (outcome.isSuccess()) {
+                        log.info("✓ Token exchange successful for user: {}", outcome.getValue().getUsername());
+                        return ResponseEntity.ok(outcome.getValue());
+                    }
+                    log.warn("✗ Token exchange failed ({})", outcome.getStatus());
+                    if (outcome.isIdpUnavailable()) {
+                        return JsonResponse.idpUnavailable(outcome.getStatus()).entity();
+                    }
+                    return JsonResponse.CODE_EXCHANGE_FAILED.entity();
+                });
     }
 
     @GetMapping("/user")
-    public ResponseEntity<?> getCurrentUser(HttpServletRequest request) {
-        Long userId = (Long) request.getAttribute("userId");
-        String username = (String) request.getAttribute("username");
-
-        if (userId == null || username == null) {
-            return ResponseEntity.status(401)
-                    .body("{\"error\": \"unauthorized\", \"message\": \"User not authenticated\"}");
+    public CompletableFuture<ResponseEntity<?>> getCurrentUser(@AuthenticationPrincipal AuthenticatedPrincipal principal,
+                                                               Authentication authentication) {
+        if (principal == null) {
+            return CompletableFuture.completedFuture(JsonResponse.NOT_AUTHENTICATED.entity());
         }
 
-        UserInfo userInfo = UserInfo.builder()
-                .userId(userId)
-                .username(username)
-                .build();
-
-        return ResponseEntity.ok(userInfo);
+        return userInfoService.getUserInfo(principal, (String) authentication.getCredentials())
+                .thenApply(ResponseEntity::ok);
     }
 
     @GetMapping("/health")
     public ResponseEntity<?> health() {
-        return ResponseEntity.ok("{\"status\": \"ok\"}");
+        return JsonResponse.HEALTH_OK.entity();
     }
 
     /**
-     * 登出端点 - 清除 HttpOnly Cookies
+     * 刷新端点 - 用 refresh_token Cookie 续期 Access Token
      */
-    @PostMapping("/logout")
-    public ResponseEntity<?> logout(HttpServletResponse response) {
-        // 清除 access_token Cookie
-        Cookie accessTokenCookie = new Cookie("access_token", null);
-        accessTokenCookie.setHttpOnly(true);
-        accessTokenCookie.setSecure(false);
-        accessTokenCookie.setPath("/");
-        accessTokenCookie.setMaxAge(0);  // 立即过期
-        response.addCookie(accessTokenCookie);
-
-        // 清除 id_token Cookie
-        Cookie idTokenCookie = new Cookie("id_token", null);
-        idTokenCookie.setHttpOnly(true);
-        idTokenCookie.setSecure(false);
-        idTokenCookie.setPath("/");
-        idTokenCookie.setMaxAge(0);
-        response.addCookie(idTokenCookie);
+    @PostMapping("/refresh")
+    public Mono<ResponseEntity<?>> refresh(HttpServletRequest request, HttpServletResponse response) {
+        String refreshToken = tokenCookies.refreshToken(request);
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            return Mono.just(JsonResponse.MISSING_REFRESH_TOKEN.entity());
+        }
 
-        // 清除 username Cookie
-        Cookie usernameCookie = new Cookie("username", null);
-        usernameCookie.setHttpOnly(false);
-        usernameCookie.setSecure(false);
-        usernameCookie.setPath("/");
-        usernameCookie.setMaxAge(0);
-        response.addCookie(usernameCookie);
+        return oidcClientService.refreshAccessTokenAsync(refreshToken)
+                .map(outcome -> {
+                    if (!outcome.isSuccess()) {
+                        log.warn("✗ Token refresh failed ({})", outcome.getStatus());
+                        if (outcome.isIdpUnavailable()) {
+                            return JsonResponse.idpUnavailable(outcome.getStatus()).entity();
+                        }
+                        return JsonResponse.REFRESH_FAILED.entity();
+                    }
+                    TokenResponse tokenResponse = outcome.getValue();
+                    tokenCookies.write(request, response, tokenResponse);
+                    log.info("✓ Access token refreshed for user: {}", tokenResponse.getUsername());
+                    long expiresIn = tokenResponse.getExpiresIn() != null ? tokenResponse.getExpiresIn() : 0L;
+                    return ResponseEntity.ok(JsonPayload.object(json -> {
+                        json.writeStringField("username", String.valueOf(tokenResponse.getUsername()));
+                        json.writeNumberField("expires_in", expiresIn);
+                    }));
+                });
+    }
 
-        log.info("✓ User logged out, cookies cleared");
-        return ResponseEntity.ok("{\"message\": \"Logged out successfully\"}");
+    /**
+     * 登出端点 - 吊销当前 Token 并清除 HttpOnly Cookies
+     *
+     * 被复制走的 Access Token / Refresh Token 在过期前也无法再使用
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@AuthenticationPrincipal AuthenticatedPrincipal principal,
+                                    HttpServletRequest request, HttpServletResponse response) {
+        revocationService.revoke(principal);
+        revocationService.revokeRefreshToken(tokenCookies.refreshToken(request));
+        tokenCookies.clear(request, response);
+
+        log.info("✓ User logged out, tokens revoked and cookies cleared");
+        return JsonResponse.LOGGED_OUT.entity();
     }
 }
@@ -1,14 +1,17 @@
 package com.oidc.client.controller;
 
 import com.oidc.client.dto.TokenResponse;
+import com.oidc.client.service.AuthorizationStateStore;
 import com.oidc.client.service.OidcClientService;
-import jakarta.servlet.http.Cookie;
+import com.oidc.client.util.TokenCookies;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import reactor.core.publisher.Mono;
 
 @Controller
 @AllArgsConstructor
@@ -16,69 +19,54 @@ import org.springframework.web.bind.annotation.RequestParam;
 public class CallbackController {
 
     private final OidcClientService oidcClientService;
+    private final TokenCookies tokenCookies;
+    private final AuthorizationStateStore authorizationStateStore;
 
     @GetMapping("/callback")
-    public String handleCallback(@RequestParam String code,
+    public Mono<String> handleCallback(@RequestParam String code,
                                   @RequestParam(required = false) String state,
+                                  HttpServletRequest request,
                                   HttpServletResponse response) {
-        log.info("Received authorization code: {} with state: {}", code, state);
+        // 授权码和 state 都是一次性凭据，不写入日志
+        log.info("Received authorization callback");
 
-        // 验证 state 参数是否存在（CSRF 防护）
-        if (state == null || state.isEmpty()) {
-            log.warn("✗ Missing state parameter - potential CSRF attack");
-            return "redirect:http://localhost:5173/?error=invalid_state";
+        // 验证 state 由 /api/auth/authorize 签发给这个浏览器（登录绑定 Cookie）、未过期且未被其他授权码使用
+        String browserNonce = TokenCookies.read(request, TokenCookies.LOGIN_BINDING);
+        if (!authorizationStateStore.claim(state, code, browserNonce)) {
+            log.warn("✗ Invalid state parameter - potential login CSRF");
+            return Mono.just("redirect:http://localhost:5173/?error=invalid_state");
         }
 
-        try {
-            // 用授权码换取 token
-            TokenResponse tokenResponse = oidcClientService.exchangeCodeForToken(code);
+        // 用授权码换取 token（异步，等待 IdP 期间不占用 Servlet 线程）
+        return oidcClientService.exchangeCodeForTokenAsync(code, browserNonce)
+                .map(outcome -> {
+                        if (!outcome.isSuccess()) {
+                            log.error("✗ Token exchange failed: {}", outcome.getStatus());
+                            // IdP 不可用时提示稍后重试，与授权码无效区分
+                            return outcome.isIdpUnavailable()
+                                    ? "redirect:http://localhost:5173/?error=idp_unavailable"
+                                    : "redirect:http://localhost:5173/?error=token_exchange_failed";
+                        }
+                        TokenResponse tokenResponse = outcome.getValue();
+                        log.info("✓ Token exchange successful for user: {}", tokenResponse.getUsername());
 
-            if (tokenResponse != null) {
-                log.info("✓ Token exchange successful for user: {}", tokenResponse.getUsername());
+                        // Token 写入 HttpOnly Cookie（防 XSS 攻击），有效期跟随 expires_in；登录时总是换新会话
+                        tokenCookies.writeLogin(request, response, tokenResponse);
+                        TokenCookies.clearLoginBinding(response);
 
-                // 设置 Access Token 为 HttpOnly Cookie（防 XSS 攻击）
-                Cookie accessTokenCookie = new Cookie("access_token", tokenResponse.getAccessToken());
-                accessTokenCookie.setHttpOnly(true);  // JavaScript 无法访问
-                accessTokenCookie.setSecure(false);    // 开发环境用 false，生产环境改为 true（需要 HTTPS）
-                accessTokenCookie.setPath("/");
-                accessTokenCookie.setMaxAge(3600);     // 1 小时
-                // accessTokenCookie.setAttribute("SameSite", "Strict"); // Spring Boot 2.6+ 支持
-                response.addCookie(accessTokenCookie);
+                        log.info("✓ Tokens stored in HttpOnly cookies");
 
-                // 设置 ID Token 为 HttpOnly Cookie（如果存在）
-                if (tokenResponse.getIdToken() != null && !tokenResponse.getIdToken().isEmpty()) {
-                    Cookie idTokenCookie = new Cookie("id_token", tokenResponse.getIdToken());
-                    idTokenCookie.setHttpOnly(true);
-                    idTokenCookie.setSecure(false);
-                    idTokenCookie.setPath("/");
-                    idTokenCookie.setMaxAge(3600);
-                    response.addCookie(idTokenCookie);
-                }
+                        // 重定向到前端 callback 页面（只传递 state，不传递 Token）
+                        String frontendUrl = String.format(
+                            "http://localhost:5173/callback?state=%s",
+                            state
+                        );
 
-                // 设置用户名为普通 Cookie（前端需要显示）
-                Cookie usernameCookie = new Cookie("username", tokenResponse.getUsername());
-                usernameCookie.setHttpOnly(false);  // 允许 JavaScript 读取
-                usernameCookie.setSecure(false);
-                usernameCookie.setPath("/");
-                usernameCookie.setMaxAge(3600);
-                response.addCookie(usernameCookie);
-
-                log.info("✓ Tokens stored in HttpOnly cookies");
-
-                // 重定向到前端 callback 页面（只传递 state，不传递 Token）
-                String frontendUrl = String.format(
-                    "http://localhost:5173/callback?state=%s",
-                    state
-                );
-
-                return "redirect:" + frontendUrl;
-            } else {
-                log.error("✗ Token exchange failed");
-                return "redirect:http://localhost:5173/?error=token_exchange_failed";
-            }
-        } catch (Exception e) {
-            log.error("Error during callback processing", e);
-            return "redirect:http://localhost:5173/?error=internal_error";
-        }
+                        return "redirect:" + frontendUrl;
+                })
+                .onErrorResume(e -> {
+                    log.error("Error during callback processing", e);
+                    return Mono.just("redirect:http://localhost:5173/?error=internal_error");
+                });
     }
 }
@@ -0,0 +1,134 @@
+package com.oidc.client.controller;
+
+import com.oidc.client.dto.AuthenticatedPrincipal;
+import com.oidc.client.dto.IntrospectionResult;
+import com.oidc.client.service.RevocationService;
+import com.oidc.client.util.AuthFailureLog;
+import com.oidc.client.util.JsonResponse;
+import com.oidc.client.util.JwtTokenValidator;
+import com.oidc.client.util.RateLimiter;
+import com.oidc.client.util.TokenVerification;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量 Token introspection，供网关等下游服务一次校验多个 Token
+ *
+ * 请求体为 Token 数组；Token 按 chunk-size 分块在 parallel 调度器上并行验签，
+ * 每块完成后立即以 NDJSON（每行一个 IntrospectionResult）写回，结果按完成顺序返回，用 index 对应请求。
+ * 调用方本身需要携带有效 Token（与 /api/auth/user 相同）。
+ *
+ * 验签按条计费：除 Filter 已经为请求本身取的一个令牌外，批量中的每个 Token 再从调用方的 CLIENT 维度
+ * （没有 client_id 时为 IP 维度）取一个令牌，一次大批量与逐个调用消耗相同的配额。
+ */
+@RestController
+@RequestMapping("/api/auth")
+@Slf4j
+public class IntrospectionController {
+
+    private final JwtTokenValidator jwtTokenValidator;
+    private final RevocationService revocationService;
+    private final RateLimiter rateLimiter;
+    private final AuthFailureLog authFailureLog;
+    private final int maxBatch;
+    private final int chunkSize;
+
+    public IntrospectionController(
+            JwtTokenValidator jwtTokenValidator,
+            RevocationService revocationService,
+            RateLimiter rateLimiter,
+            AuthFailureLog authFailureLog,
+            @Value("${oidc.introspection.max-batch:100}") int maxBatch,
+            @Value("${oidc.introspection.chunk-size:64}") int chunkSize) {
+        this.jwtTokenValidator = jwtTokenValidator;
+        this.revocationService = revocationService;
+        this.rateLimiter = rateLimiter;
+        this.authFailureLog = authFailureLog;
+        this.maxBatch = maxBatch;
+        this.chunkSize = chunkSize;
+    }
+
+    @PostMapping(value = "/introspect", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<IntrospectionResult> introspect(@RequestBody List<String> tokens,
+                                                @AuthenticationPrincipal AuthenticatedPrincipal caller,
+                                                HttpServletRequest request,
+                                                HttpServletResponse response) throws IOException {
+        if (tokens.size() > maxBatch) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "At most " + maxBatch + " tokens per request");
+        }
+        long retryAfterNanos = chargeBatch(tokens.size(), caller, request);
+        if (retryAfterNanos > 0) {
+            authFailureLog.record("rate_limited", "Introspection batch exceeds rate limit");
+            // 直接写出与 Filter 相同的 429 响应，流式结果为空
+            JsonResponse.tooManyRequests(retryAfterNanos).write(response);
+            return Flux.empty();
+        }
+        log.debug("Introspecting {} tokens", tokens.size());
+
+        return Flux.range(0, (tokens.size() + chunkSize - 1) / chunkSize)
+                .flatMap(chunk -> Flux.defer(() -> Flux.fromIterable(introspectChunk(tokens, chunk)))
+                        .subscribeOn(Schedulers.parallel()));
+    }
+
+    /**
+     * 为批量中除第一个以外的 Token 取令牌（第一个已由 Filter 按请求计入）
+     */
+    private long chargeBatch(int size, AuthenticatedPrincipal caller, HttpServletRequest request) {
+        if (caller != null && caller.getClientId() != null) {
+            return rateLimiter.acquire(RateLimiter.Scope.CLIENT, caller.getClientId(), size - 1);
+        }
+        return rateLimiter.acquire(RateLimiter.Scope.IP, request.getRemoteAddr(), size - 1);
+    }
+
+    private List<IntrospectionResult> introspectChunk(List<String> tokens, int chunk) {
+        int from = chunk * chunkSize;
+        int to = Math.min(tokens.size(), from + chunkSize);
+        List<IntrospectionResult> results = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            results.add(introspect(i, tokens.get(i)));
+        }
+        return results;
+    }
+
+    private IntrospectionResult introspect(int index, String token) {
+        TokenVerification verification = jwtTokenValidator.verify(token);
+        AuthenticatedPrincipal principal = verification.getPrincipal();
+        if (principal == null) {
+            return inactive(index, verification.getFailure().tag());
+        }
+        if (revocationService.isRevoked(principal)) {
+            return inactive(index, "revoked");
+        }
+        return IntrospectionResult.builder()
+                .index(index)
+                .active(true)
+                .sub(principal.getSubject())
+                .username(principal.getUsername())
+                .clientId(principal.getClientId())
+                .scope(principal.getScopes().isEmpty() ? null : String.join(" ", principal.getScopes()))
+                .exp(principal.getExpiresAt() != null ? principal.getExpiresAt().getEpochSecond() : null)
+                .build();
+    }
+
+    private static IntrospectionResult inactive(int index, String error) {
+        return IntrospectionResult.builder()
+                .index(index)
+                .active(false)
+                .error(error)
+                .build();
+    }
+}
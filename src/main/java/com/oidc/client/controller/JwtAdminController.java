@@ -0,0 +1,87 @@
+package com.oidc.client.controller;
+
+import com.oidc.client.util.JsonResponse;
+import com.oidc.client.util.JwtTokenValidator;
+import io.jsonwebtoken.security.WeakKeyException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * JWT 密钥轮换端点，默认关闭（jwt.reload.enabled=true 时启用）
+ *
+ * 只有持有 oidc.admin.authority（默认 SCOPE_admin）的调用方可以访问，见 WebConfig。
+ *
+ * 轮换只作用于处理该请求的节点，不经 ClusterReplicator 同步（集群报文里不传递签名密钥）。
+ * 多节点部署时把同一个 Secret 挂载为 jwt.secret-file，更新后对每个节点调用 reload；
+ * 节点重启时也从 jwt.secret-file 读取，不会退回 jwt.secret 中的旧密钥。
+ */
+@RestController
+@RequestMapping("/api/admin/jwt")
+@ConditionalOnProperty(name = "jwt.reload.enabled", havingValue = "true")
+@Slf4j
+public class JwtAdminController {
+
+    private static final JsonResponse NO_SECRET = JsonResponse.of(HttpStatus.BAD_REQUEST,
+            "{\"error\": \"invalid_request\", \"message\": \"No secret provided and jwt.secret-file not configured\"}");
+    private static final JsonResponse SECRET_FILE_UNREADABLE = JsonResponse.of(HttpStatus.INTERNAL_SERVER_ERROR,
+            "{\"error\": \"server_error\", \"message\": \"Failed to read secret file\"}");
+    private static final JsonResponse WEAK_SECRET = JsonResponse.of(HttpStatus.BAD_REQUEST,
+            "{\"error\": \"invalid_request\", \"message\": \"Secret must be at least 256 bits\"}");
+    private static final JsonResponse RELOADED = JsonResponse.of(HttpStatus.OK,
+            "{\"message\": \"JWT signing key reloaded\"}");
+
+    /** HS256 要求密钥至少 256 位 */
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final JwtTokenValidator jwtTokenValidator;
+    private final String secretFile;
+
+    public JwtAdminController(
+            JwtTokenValidator jwtTokenValidator,
+            @Value("${jwt.secret-file:}") String secretFile) {
+        this.jwtTokenValidator = jwtTokenValidator;
+        this.secretFile = secretFile;
+    }
+
+    /**
+     * 请求体带 secret 时直接使用；否则重新读取 jwt.secret-file（例如挂载的 Kubernetes Secret）
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<?> reload(@RequestBody(required = false) Map<String, String> body) {
+        String secret = body != null ? body.get("secret") : null;
+
+        if (secret == null || secret.isEmpty()) {
+            if (secretFile.isEmpty()) {
+                return NO_SECRET.entity();
+            }
+            try {
+                secret = JwtTokenValidator.readSecretFile(secretFile);
+            } catch (IOException e) {
+                log.error("✗ Failed to read JWT secret file {}: {}", secretFile, e.getMessage());
+                return SECRET_FILE_UNREADABLE.entity();
+            }
+        }
+
+        if (secret.getBytes(StandardCharsets.UTF_8).length < MIN_SECRET_BYTES) {
+            log.warn("✗ Rejected JWT secret rotation: secret shorter than 256 bits");
+            return WEAK_SECRET.entity();
+        }
+        try {
+            jwtTokenValidator.rotateSecret(secret);
+        } catch (WeakKeyException e) {
+            return WEAK_SECRET.entity();
+        }
+        return RELOADED.entity();
+    }
+}
@@ -1,46 +1,65 @@
 package com.oidc.client.controller;
 
+import com.oidc.client.dto.AuthenticatedPrincipal;
+import com.oidc.client.service.UserInfoService;
+import com.oidc.client.util.JsonPayload;
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import jakarta.servlet.http.HttpServletRequest;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/resources")
+@AllArgsConstructor
 @Slf4j
 public class ResourceController {
 
+    private final UserInfoService userInfoService;
+
     @GetMapping("/profile")
-    public ResponseEntity<?> getProfile(HttpServletRequest request) {
-        Long userId = (Long) request.getAttribute("userId");
-        String username = (String) request.getAttribute("username");
-
-        Map<String, Object> profile = new HashMap<>();
-        profile.put("userId", userId);
-        profile.put("username", username);
-        profile.put("email", username + "@example.com");
-        profile.put("role", "user");
-        profile.put("createdAt", "2025-01-01T00:00:00Z");
-
-        log.info("✓ User profile retrieved: {}", username);
-        return ResponseEntity.ok(profile);
+    public CompletableFuture<ResponseEntity<?>> getProfile(@AuthenticationPrincipal AuthenticatedPrincipal principal,
+                                                           Authentication authentication) {
+        // 资料来自 IdP UserInfo（按 sub 缓存）
+        return userInfoService.getUserInfo(principal, (String) authentication.getCredentials())
+                .thenApply(userInfo -> {
+                    if (log.isDebugEnabled()) {
+                        log.debug("✓ User profile retrieved: {}", userInfo.getUsername());
+                    }
+                    // 直接写入响应流，不构造中间 Map
+                    return ResponseEntity.ok(JsonPayload.object(json -> {
+                        json.writeObjectField("userId", userInfo.getUserId());
+                        json.writeStringField("username", userInfo.getUsername());
+                        json.writeStringField("name", userInfo.getName());
+                        json.writeStringField("email", userInfo.getEmail());
+                        json.writeStringField("role", "user");
+                        json.writeStringField("createdAt", "2025-01-01T00:00:00Z");
+                    }));
+                });
     }
 
     @GetMapping("/data")
-    public ResponseEntity<?> getData(HttpServletRequest request) {
-        String username = (String) request.getAttribute("username");
+    public ResponseEntity<?> getData(@AuthenticationPrincipal AuthenticatedPrincipal principal) {
+        String username = principal.getUsername();
 
-        Map<String, Object> data = new HashMap<>();
-        data.put("message", "This is protected data for user: " + username);
-        data.put("timestamp", System.currentTimeMillis());
-        data.put("items", new String[]{"item1", "item2", "item3"});
+        long timestamp = System.currentTimeMillis();
 
-        log.info("✓ Protected data retrieved by user: {}", username);
-        return ResponseEntity.ok(data);
+        if (log.isDebugEnabled()) {
+            log.debug("✓ Protected data retrieved by user: {}", username);
+        }
+        return ResponseEntity.ok(JsonPayload.object(json -> {
+            json.writeStringField("message", "This is protected data for user: " + username);
+            json.writeNumberField("timestamp", timestamp);
+            json.writeArrayFieldStart("items");
+            json.writeString("item1");
+            json.writeString("item2");
+            json.writeString("item3");
+            json.writeEndArray();
+        }));
     }
 }
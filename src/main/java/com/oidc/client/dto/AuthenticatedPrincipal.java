@@ -0,0 +1,31 @@
+package com.oidc.client.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * 已认证用户，验签时从 Claims 中一次性提取，放入 SecurityContext 供 Controller 直接注入
+ */
+@Value
+@Builder
+public class AuthenticatedPrincipal {
+    /** sub claim */
+    String subject;
+
+    /** jti claim；Token 没有 jti 时为 Token 的 SHA-256 摘要，用于吊销 */
+    String tokenId;
+
+    /** sub 为数字时的用户 ID，否则为 null */
+    Long userId;
+
+    String username;
+
+    String clientId;
+
+    Instant expiresAt;
+
+    Set<String> scopes;
+}
@@ -0,0 +1,34 @@
+package com.oidc.client.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * 批量 introspection 中单个 Token 的结果，字段命名参考 RFC 7662
+ */
+@Value
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IntrospectionResult {
+    /** Token 在请求数组中的下标，结果按完成顺序返回 */
+    int index;
+
+    boolean active;
+
+    String sub;
+
+    String username;
+
+    @JsonProperty("client_id")
+    String clientId;
+
+    String scope;
+
+    /** 过期时刻，epoch 秒 */
+    Long exp;
+
+    /** active 为 false 时的原因：expired / malformed / bad_signature / revoked 等 */
+    String error;
+}
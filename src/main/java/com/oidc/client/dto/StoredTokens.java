@@ -0,0 +1,24 @@
+package com.oidc.client.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * 服务端保存的一次登录会话的 Token
+ */
+@Value
+@Builder(toBuilder = true)
+public class StoredTokens {
+    String accessToken;
+
+    /** IdP 未下发时为 null */
+    String refreshToken;
+
+    String username;
+
+    /** Access Token 过期时刻（expires_in 换算） */
+    long accessExpiresAtMillis;
+
+    /** 条目过期时刻：有 Refresh Token 时跟随 Refresh Token 的保留时长，否则等于 Access Token 过期时刻 */
+    long expiresAtMillis;
+}
@@ -12,6 +12,7 @@ import lombok.NoArgsConstructor;
 public class UserInfo {
     private Long userId;
     private String username;
+    private String name;
     private String email;
     private String clientId;
 }
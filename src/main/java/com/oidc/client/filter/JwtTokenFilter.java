@@ -1,9 +1,26 @@
 package com.oidc.client.filter;
 
+import com.oidc.client.dto.AuthenticatedPrincipal;
+import com.oidc.client.dto.TokenResponse;
+import com.oidc.client.service.IdpOutcome;
+import com.oidc.client.service.OidcClientService;
+import com.oidc.client.service.RevocationService;
+import com.oidc.client.util.AuthFailureLog;
+import com.oidc.client.util.AuthMetrics;
+import com.oidc.client.util.JsonResponse;
 import com.oidc.client.util.JwtTokenValidator;
-import jakarta.servlet.http.Cookie;
-import lombok.AllArgsConstructor;
+import com.oidc.client.util.PublicPathMatcher;
+import com.oidc.client.util.RateLimiter;
+import com.oidc.client.util.TokenCookies;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextHolderStrategy;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -12,83 +29,190 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 
 @Component
-@AllArgsConstructor
 @Slf4j
 public class JwtTokenFilter extends OncePerRequestFilter {
 
     private final JwtTokenValidator jwtTokenValidator;
+    private final OidcClientService oidcClientService;
+    private final TokenCookies tokenCookies;
+    private final PublicPathMatcher publicPathMatcher;
+    private final AuthMetrics authMetrics;
+    private final AuthFailureLog authFailureLog;
+    private final RevocationService revocationService;
+    private final RateLimiter rateLimiter;
+    private final Duration refreshSkew;
+
+    private final SecurityContextHolderStrategy securityContextHolderStrategy =
+            SecurityContextHolder.getContextHolderStrategy();
+
+    // 保存到请求属性，异步分派（Mono/CompletableFuture 返回值）时仍能取到认证信息
+    private final SecurityContextRepository securityContextRepository =
+            new RequestAttributeSecurityContextRepository();
+
+    public JwtTokenFilter(
+            JwtTokenValidator jwtTokenValidator,
+            OidcClientService oidcClientService,
+            TokenCookies tokenCookies,
+            PublicPathMatcher publicPathMatcher,
+            AuthMetrics authMetrics,
+            AuthFailureLog authFailureLog,
+            RevocationService revocationService,
+            RateLimiter rateLimiter,
+            @Value("${oidc.refresh.skew:60s}") Duration refreshSkew) {
+        this.jwtTokenValidator = jwtTokenValidator;
+        this.oidcClientService = oidcClientService;
+        this.tokenCookies = tokenCookies;
+        this.publicPathMatcher = publicPathMatcher;
+        this.authMetrics = authMetrics;
+        this.authFailureLog = authFailureLog;
+        this.revocationService = revocationService;
+        this.rateLimiter = rateLimiter;
+        this.refreshSkew = refreshSkew;
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
-        String path = request.getRequestURI();
+        long start = System.nanoTime();
+        boolean tokenPresent;
+        boolean refreshed = false;
 
-        // 跳过无需认证的端点
-        if (path.equals("/api/auth/token") ||
-            path.equals("/api/auth/health") ||
-            path.equals("/api/health") ||
-            path.equals("/callback") ||
-            path.startsWith("/static/")) {
+        // 限流先于读取 Cookie 和解析 Token，超限请求只花一次哈希查找
+        String clientIp = request.getRemoteAddr();
+        if (rateLimiter.isIdpBound(request)) {
+            if (rejectIfLimited(RateLimiter.Scope.IDP, clientIp, start, response)) {
+                return;
+            }
+            authMetrics.filterPublic(System.nanoTime() - start);
             filterChain.doFilter(request, response);
             return;
         }
-
-        String token = null;
+        if (rejectIfLimited(RateLimiter.Scope.IP, clientIp, start, response)) {
+            return;
+        }
 
         // 优先从 Cookie 中读取 Token（HttpOnly Cookie 方式）
-        Cookie[] cookies = request.getCookies();
-        if (cookies != null) {
-            for (Cookie cookie : cookies) {
-                if ("access_token".equals(cookie.getName())) {
-                    token = cookie.getValue();
-                    log.debug("Token extracted from HttpOnly cookie");
-                    break;
-                }
-            }
-        }
+        String token = tokenCookies.accessToken(request);
 
         // 如果 Cookie 中没有，尝试从 Authorization header 读取（向后兼容）
         if (token == null) {
             String authHeader = request.getHeader("Authorization");
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 token = authHeader.substring(7);
-                log.debug("Token extracted from Authorization header");
             }
         }
 
-        // 验证 Token
-        if (token != null) {
-            if (jwtTokenValidator.validateToken(token)) {
-                String username = jwtTokenValidator.getUsernameFromToken(token);
-                Long userId = jwtTokenValidator.getUserIdFromToken(token);
+        tokenPresent = token != null;
 
-                request.setAttribute("userId", userId);
-                request.setAttribute("username", username);
+        // 验证 Token（只解析一次，认证结果放入 SecurityContext）
+        AuthenticatedPrincipal principal = token != null ? jwtTokenValidator.authenticate(token) : null;
 
-                log.debug("✓ Token validated for user: {}", username);
+        // 已登出的 Token 在 exp 之前仍能验签通过，查本地吊销列表（绝大多数情况只过一次 Bloom 过滤器）
+        boolean revoked = principal != null && revocationService.isRevoked(principal);
+        if (revoked) {
+            principal = null;
+        }
+
+        // Access Token 缺失、失效或即将过期时，用 refresh_token Cookie 透明续期
+        if (principal == null || expiresSoon(principal)) {
+            String refreshToken = tokenCookies.refreshToken(request);
+            if (refreshToken != null && !refreshToken.isEmpty()) {
+                // 透明续期同样访问 IdP，与 /api/auth/refresh 共用按 IP 的配额
+                if (rejectIfLimited(RateLimiter.Scope.IDP, clientIp, start, response)) {
+                    return;
+                }
+                IdpOutcome<TokenResponse> outcome = oidcClientService.refreshAccessToken(refreshToken);
+                TokenResponse refreshedTokens = outcome.getValue();
+                AuthenticatedPrincipal renewed = refreshedTokens != null
+                        ? jwtTokenValidator.authenticate(refreshedTokens.getAccessToken()) : null;
+                if (outcome.getStatus() == IdpOutcome.Status.REJECTED) {
+                    // IdP 拒绝了 refresh_token（已吊销、过期或无效），会话无法续期：清除 Cookie 和服务端会话，
+                    // 之后的请求不再带着它访问 IdP
+                    tokenCookies.clear(request, response);
+                } else if (renewed != null) {
+                    tokenCookies.write(request, response, refreshedTokens);
+                    principal = renewed;
+                    token = refreshedTokens.getAccessToken();
+                    refreshed = true;
+                    if (log.isDebugEnabled()) {
+                        log.debug("✓ Access token transparently refreshed for user: {}", renewed.getUsername());
+                    }
+                }
+            }
+        }
+
+        if (token != null) {
+            if (principal != null) {
+                if (rejectIfLimited(RateLimiter.Scope.USER, principal.getUsername(), start, response)
+                        || rejectIfLimited(RateLimiter.Scope.CLIENT, principal.getClientId(), start, response)) {
+                    return;
+                }
+                setAuthentication(principal, token, request, response);
+
+                if (log.isDebugEnabled()) {
+                    log.debug("✓ Token validated for user: {}", principal.getUsername());
+                }
+                authMetrics.filterAuthenticated(System.nanoTime() - start, refreshed);
                 filterChain.doFilter(request, response);
                 return;
             } else {
-                log.warn("✗ Invalid token provided");
+                authFailureLog.record(revoked ? "revoked_token" : "invalid_token",
+                        revoked ? "Revoked token provided" : "Invalid token provided");
             }
         } else {
-            log.warn("✗ No token found in cookies or Authorization header");
+            authFailureLog.record("missing_token", "No token found in cookies or Authorization header");
+        }
+
+        authMetrics.filterRejected(System.nanoTime() - start, tokenPresent);
+        JsonResponse.TOKEN_REQUIRED.write(response);
+    }
+
+    /**
+     * 超限时直接写出预先编码好的 429
+     */
+    private boolean rejectIfLimited(RateLimiter.Scope scope, String key, long start, HttpServletResponse response)
+            throws IOException {
+        long retryAfterNanos = rateLimiter.acquire(scope, key);
+        if (retryAfterNanos == 0) {
+            return false;
         }
+        authFailureLog.record("rate_limited", "Rate limit exceeded");
+        authMetrics.filterRateLimited(scope, System.nanoTime() - start);
+        JsonResponse.tooManyRequests(retryAfterNanos).write(response);
+        return true;
+    }
 
-        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-        response.setContentType("application/json");
-        response.getWriter().write("{\"error\": \"Unauthorized\", \"message\": \"Missing or invalid token\"}");
+    private boolean expiresSoon(AuthenticatedPrincipal principal) {
+        return principal.getExpiresAt() != null
+                && principal.getExpiresAt().minus(refreshSkew).isBefore(Instant.now());
+    }
+
+    private void setAuthentication(AuthenticatedPrincipal principal, String token,
+                                   HttpServletRequest request, HttpServletResponse response) {
+        List<SimpleGrantedAuthority> authorities = principal.getScopes().stream()
+                .map(scope -> new SimpleGrantedAuthority("SCOPE_" + scope))
+                .toList();
+
+        SecurityContext context = securityContextHolderStrategy.createEmptyContext();
+        context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(principal, token, authorities));
+        securityContextHolderStrategy.setContext(context);
+        securityContextRepository.saveContext(context, request, response);
     }
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
-        String path = request.getRequestURI();
-        return path.equals("/api/auth/token") ||
-               path.equals("/api/health") ||
-               path.equals("/callback") ||
-               path.startsWith("/static/");
+        // 跳过无需认证的端点；经过 IdP 的公开端点仍要进入 Filter 做限流
+        long start = System.nanoTime();
+        if (publicPathMatcher.matches(request) && !rateLimiter.isIdpBound(request)) {
+            authMetrics.filterPublic(System.nanoTime() - start);
+            return true;
+        }
+        return false;
     }
 }
@@ -0,0 +1,70 @@
+package com.oidc.client.service;
+
+import com.oidc.client.dto.StoredTokens;
+import lombok.Value;
+
+/**
+ * 本节点认证状态的变化，集群模式下由 ClusterReplicator 广播给其他节点
+ *
+ * 只在本地产生的变化上发布；从其他节点收到的变化直接应用，不再发布，避免循环广播。
+ *
+ * version 为变化产生时的时间戳（毫秒），接收方按 key 只应用比已知版本更新的变化，
+ * 乱序或重放的旧 SESSION_STORED 不会让已删除的会话复活。
+ */
+@Value
+public class AuthStateEvent {
+
+    public enum Type {
+        /** Token 被吊销，key 为 RevocationService 的吊销 key */
+        REVOKED,
+        /** TokenStore 写入或刷新了一个会话 */
+        SESSION_STORED,
+        /** TokenStore 删除了一个会话 */
+        SESSION_REMOVED,
+        /** 一个 refresh_token 刚被用来续期，key 为 refresh_token 摘要，其他节点在复用窗口内直接复用结果 */
+        REFRESHED
+    }
+
+    Type type;
+
+    String key;
+
+    /** REVOKED：吊销记录的过期时刻；REFRESHED：续期结果可复用到的时刻 */
+    long expiresAtMillis;
+
+    /** SESSION_STORED：会话内容；REFRESHED：续期得到的 Token */
+    StoredTokens tokens;
+
+    /** 变化产生的时刻（毫秒），同一 key 上的先后顺序 */
+    long version;
+
+    public static AuthStateEvent revoked(String key, long expiresAtMillis) {
+        return new AuthStateEvent(Type.REVOKED, key, expiresAtMillis, null, System.currentTimeMillis());
+    }
+
+    public static AuthStateEvent sessionStored(String sessionId, StoredTokens tokens) {
+        return new AuthStateEvent(Type.SESSION_STORED, sessionId, tokens.getExpiresAtMillis(), tokens,
+                System.currentTimeMillis());
+    }
+
+    public static AuthStateEvent sessionRemoved(String sessionId) {
+        return new AuthStateEvent(Type.SESSION_REMOVED, sessionId, 0, null, System.currentTimeMillis());
+    }
+
+    public static AuthStateEvent refreshed(String refreshTokenDigest, StoredTokens tokens, long reusableUntilMillis) {
+        return new AuthStateEvent(Type.REFRESHED, refreshTokenDigest, reusableUntilMillis, tokens,
+                System.currentTimeMillis());
+    }
+
+    /**
+     * 批量发送前的合并 key，也是接收方比较版本的 key：同一个会话的写入 / 删除只保留最后一次
+     */
+    String compactionKey() {
+        String prefix = switch (type) {
+            case REVOKED -> "r:";
+            case SESSION_STORED, SESSION_REMOVED -> "s:";
+            case REFRESHED -> "f:";
+        };
+        return prefix + key;
+    }
+}
@@ -0,0 +1,251 @@
+package com.oidc.client.service;
+
+import com.oidc.client.util.VerifiedTokenCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 服务端签发的授权请求 state，与发起登录的浏览器绑定，回调时校验（防登录 CSRF）
+ *
+ * /api/auth/authorize 签发随机 state 和一个浏览器随机数，随机数写入 HttpOnly Cookie，服务端只保存它的摘要；
+ * 回调时 state 必须由本服务签发、未过期，且请求带着同一个随机数 —— 攻击者把自己的授权码和 state
+ * 发给受害者时，受害者浏览器里没有对应的 Cookie，登录被拒绝。
+ * 第一次带着 state 换 Token 时把它绑定到授权码，之后只有同一个授权码、且在 oidc.code-exchange.reuse-window 内的
+ * 重复提交（/callback 和 /api/auth/token 各一次）才能通过。
+ *
+ * 签发顺序即过期顺序，用一个 FIFO 队列按先后清理过期项；超过 max-size 时淘汰最早签发的 state，内存有上限。
+ * 已绑定授权码的 state 在重复提交窗口过后即删除，不必等到 ttl。
+ *
+ * max-per-client 大于 0 时限制每个客户端 IP 同时持有的未完成登录数，匿名请求无法靠大量签发把其他用户的 state
+ * 挤出队列；登录完成（第一次绑定授权码）即归还名额。客户端 IP 取 request.getRemoteAddr()，部署在负载均衡或
+ * NAT 之后时所有用户共用一个地址，因此默认关闭，开启时必须显式设置 server.forward-headers-strategy，否则启动失败。
+ *
+ * oidc.state.validation=false 时退回只检查 state 是否存在（前端自行生成 state 的部署），不做浏览器绑定。
+ */
+@Component
+@Slf4j
+public class AuthorizationStateStore {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> issueOrder = new ConcurrentLinkedQueue<>();
+    /** 已绑定授权码的 state，按绑定先后排列，重复提交窗口过后删除 */
+    private final Queue<Entry> claimOrder = new ConcurrentLinkedQueue<>();
+    /** issueOrder 的长度，包含已提前删除、尚未出队的 state */
+    private final AtomicInteger queued = new AtomicInteger();
+    /** 客户端 IP → 未完成的登录数（max-per-client 大于 0 时） */
+    private final Map<String, Integer> perClient = new ConcurrentHashMap<>();
+    private final ReentrantLock purgeLock = new ReentrantLock();
+    private final boolean validation;
+    private final long ttlNanos;
+    private final long duplicateWindowNanos;
+    private final int maxSize;
+    private final int maxPerClient;
+
+    public AuthorizationStateStore(
+            @Value("${oidc.state.validation:true}") boolean validation,
+            @Value("${oidc.state.ttl:10m}") Duration ttl,
+            @Value("${oidc.code-exchange.reuse-window:5s}") Duration duplicateWindow,
+            @Value("${oidc.state.max-size:10000}") int maxSize,
+            @Value("${oidc.state.max-per-client:0}") int maxPerClient,
+            @Value("${server.forward-headers-strategy:}") String forwardHeadersStrategy) {
+        if (maxPerClient > 0 && (forwardHeadersStrategy == null || forwardHeadersStrategy.isBlank())) {
+            throw new IllegalStateException("oidc.state.max-per-client requires server.forward-headers-strategy "
+                    + "(native or framework behind a proxy, none when clients connect directly)");
+        }
+        this.validation = validation;
+        this.ttlNanos = ttl.toNanos();
+        this.duplicateWindowNanos = duplicateWindow.toNanos();
+        this.maxSize = maxSize;
+        this.maxPerClient = maxPerClient;
+    }
+
+    /**
+     * 签发一个新的 state
+     *
+     * @param client 发起登录的客户端 IP
+     * @return state 和需要写入浏览器 Cookie 的随机数；该客户端未完成的登录已达 max-per-client 时返回 null
+     */
+    public Issued issue(String client) {
+        long now = System.nanoTime();
+        purge(now);
+        if (maxPerClient <= 0) {
+            return add(null, now);
+        }
+
+        boolean[] admitted = new boolean[1];
+        perClient.compute(client, (k, count) -> {
+            int current = count != null ? count : 0;
+            if (current >= maxPerClient) {
+                return count;
+            }
+            admitted[0] = true;
+            return current + 1;
+        });
+        if (!admitted[0]) {
+            log.warn("✗ Too many outstanding login states for client {}", client);
+            return null;
+        }
+        return add(client, now);
+    }
+
+    private Issued add(String client, long now) {
+        String state = randomToken();
+        String browserNonce = randomToken();
+        Entry entry = new Entry(state, client, digest(browserNonce), now);
+        entries.put(state, entry);
+        issueOrder.add(entry);
+        queued.incrementAndGet();
+        purge(now);
+        return new Issued(state, browserNonce);
+    }
+
+    /**
+     * 校验 state 并绑定授权码
+     *
+     * @param browserNonce 请求 Cookie 中的浏览器随机数
+     * @return state 由本服务签发给这个浏览器、未过期，且未被其他授权码使用过
+     */
+    public boolean claim(String state, String code, String browserNonce) {
+        if (!validation) {
+            // 前端自行生成 state 时由前端校验，服务端不要求请求带 state
+            return true;
+        }
+        if (state == null || state.isEmpty()) {
+            return false;
+        }
+        long now = System.nanoTime();
+        Entry entry = entries.get(state);
+        if (entry == null || now - entry.issuedAt > ttlNanos) {
+            log.warn("✗ Unknown or expired state");
+            return false;
+        }
+        if (browserNonce == null || !MessageDigest.isEqual(entry.nonceDigest, digest(browserNonce))) {
+            log.warn("✗ State presented by a different browser - potential login CSRF");
+            return false;
+        }
+        String codeDigest = VerifiedTokenCache.digest(code);
+        Binding binding = new Binding(codeDigest, now);
+        if (entry.binding.compareAndSet(null, binding)) {
+            // 登录已完成，归还该客户端的名额；state 留到重复提交窗口结束
+            release(entry);
+            claimOrder.add(entry);
+            purge(now);
+            return true;
+        }
+        Binding existing = entry.binding.get();
+        if (existing.getCodeDigest().equals(codeDigest) && now - existing.getBoundAt() <= duplicateWindowNanos) {
+            log.debug("Duplicate submission of authorization code for the same state");
+            return true;
+        }
+        log.warn("✗ State already used - potential replay");
+        return false;
+    }
+
+    public boolean isValidation() {
+        return validation;
+    }
+
+    public Duration getTtl() {
+        return Duration.ofNanos(ttlNanos);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 删除重复提交窗口已过的已用 state，再从签发队列队首移除过期、超出容量或已删除的 state；
+     * 同一时刻只有一个线程清理，peek 到的队首就是 poll 出的元素
+     */
+    private void purge(long now) {
+        if (!purgeLock.tryLock()) {
+            return;
+        }
+        try {
+            Entry claimed;
+            while ((claimed = claimOrder.peek()) != null
+                    && now - claimed.binding.get().getBoundAt() > duplicateWindowNanos) {
+                claimOrder.poll();
+                entries.remove(claimed.state, claimed);
+            }
+            Entry head;
+            while ((head = issueOrder.peek()) != null
+                    && (now - head.issuedAt > ttlNanos || entries.size() > maxSize
+                    || entries.get(head.state) != head || queued.get() > 2L * maxSize)) {
+                issueOrder.poll();
+                queued.decrementAndGet();
+                entries.remove(head.state, head);
+                release(head);
+            }
+        } finally {
+            purgeLock.unlock();
+        }
+    }
+
+    /**
+     * 归还 state 占用的客户端名额，每个 state 只归还一次
+     */
+    private void release(Entry entry) {
+        if (entry.client != null && entry.counted.compareAndSet(true, false)) {
+            perClient.computeIfPresent(entry.client, (k, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private static String randomToken() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static byte[] digest(String value) {
+        return VerifiedTokenCache.digest(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 新签发的 state，browserNonce 由调用方写入 HttpOnly Cookie
+     */
+    @lombok.Value
+    public static class Issued {
+        String state;
+        String browserNonce;
+    }
+
+    private static final class Entry {
+        private final String state;
+        private final String client;
+        private final byte[] nonceDigest;
+        private final long issuedAt;
+        private final AtomicReference<Binding> binding = new AtomicReference<>();
+        private final AtomicBoolean counted = new AtomicBoolean(true);
+
+        private Entry(String state, String client, byte[] nonceDigest, long issuedAt) {
+            this.state = state;
+            this.client = client;
+            this.nonceDigest = nonceDigest;
+            this.issuedAt = issuedAt;
+        }
+    }
+
+    @lombok.Value
+    private static class Binding {
+        String codeDigest;
+        long boundAt;
+    }
+}
@@ -0,0 +1,386 @@
+package com.oidc.client.service;
+
+import com.oidc.client.dto.StoredTokens;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 节点之间通过 UDP 同步认证状态（吊销、reference 模式下的会话），不依赖外部服务
+ *
+ * - 本地的 AuthStateEvent 先放入待发送表，按 compactionKey 合并（同一会话只发最后一次），
+ *   每个 flush-interval 批量发给所有 peers
+ * - 报文用 cluster secret 派生的密钥做 AES-GCM 加密认证，超过 max-skew 的报文丢弃；
+ *   每个报文带随机消息 ID，max-skew 窗口内重复收到的报文（重放）丢弃
+ * - 会话事件带版本（产生时刻 + 节点 ID），按会话 ID 只应用更新的版本，删除留下墓碑：
+ *   乱序到达的旧 SESSION_STORED 不会让已删除的会话复活。版本和消息 ID 只需保留 2 × max-skew，
+ *   更早的报文已被时间窗口拒绝
+ * - 续期结果（REFRESHED）也会同步：其他节点在 oidc.refresh.reuse-window 内收到同一个 refresh_token 时直接复用；
+ *   两个节点恰好同时续期仍会各自请求 IdP，这种情况需要负载均衡的会话粘滞
+ * - UDP 可能丢包，每个 anti-entropy-interval 全量广播一次吊销列表作为兜底；会话不做全量同步
+ * - 发送和清理运行在自己的单线程调度器上，不与 Spring 共享的 TaskScheduler（JWKS、discovery 刷新等）互相阻塞
+ *
+ * 本机多实例测试：各实例使用不同的 oidc.cluster.port，并把其他实例配置为 peers。
+ */
+@Component
+@ConditionalOnProperty(name = "oidc.cluster.enabled", havingValue = "true")
+@Slf4j
+public class ClusterReplicator {
+
+    private static final byte VERSION = 2;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    // 单个 UDP 报文的明文上限，留出加密和 IP/UDP 头的余量
+    private static final int MAX_PAYLOAD = 48 * 1024;
+    private static final int MAX_DATAGRAM = 64 * 1024;
+
+    private final RevocationService revocationService;
+    private final TokenStore tokenStore;
+    private final OidcClientService oidcClientService;
+    private final int port;
+    private final List<InetSocketAddress> peers;
+    private final Duration flushInterval;
+    private final Duration antiEntropyInterval;
+    private final long maxSkewMillis;
+    private final SecretKeySpec key;
+    private final long nodeId;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, AuthStateEvent> pending = new ConcurrentHashMap<>();
+    /** 最近收到的报文 ID → 收到时刻，用于丢弃重放 */
+    private final Map<Long, Long> seenMessages = new ConcurrentHashMap<>();
+    /** compactionKey → 最近应用的版本（含删除的墓碑） */
+    private final Map<String, Version> versions = new ConcurrentHashMap<>();
+    private ThreadPoolTaskScheduler scheduler;
+    private DatagramSocket socket;
+    private Thread receiver;
+
+    public ClusterReplicator(
+            RevocationService revocationService,
+            TokenStore tokenStore,
+            OidcClientService oidcClientService,
+            @Value("${oidc.cluster.port:7946}") int port,
+            @Value("${oidc.cluster.peers:}") List<String> peers,
+            @Value("${oidc.cluster.secret:}") String secret,
+            @Value("${oidc.cluster.flush-interval:200ms}") Duration flushInterval,
+            @Value("${oidc.cluster.anti-entropy-interval:30s}") Duration antiEntropyInterval,
+            @Value("${oidc.cluster.max-skew:30s}") Duration maxSkew) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("oidc.cluster.secret is required when oidc.cluster.enabled=true");
+        }
+        this.revocationService = revocationService;
+        this.tokenStore = tokenStore;
+        this.oidcClientService = oidcClientService;
+        this.port = port;
+        this.peers = new ArrayList<>();
+        for (String peer : peers) {
+            if (!peer.isBlank()) {
+                int colon = peer.lastIndexOf(':');
+                this.peers.add(new InetSocketAddress(peer.substring(0, colon).trim(),
+                        Integer.parseInt(peer.substring(colon + 1).trim())));
+            }
+        }
+        this.flushInterval = flushInterval;
+        this.antiEntropyInterval = antiEntropyInterval;
+        this.maxSkewMillis = maxSkew.toMillis();
+        this.key = new SecretKeySpec(sha256(secret), "AES");
+        this.nodeId = random.nextLong();
+    }
+
+    @PostConstruct
+    void start() throws SocketException {
+        socket = new DatagramSocket(port);
+        receiver = new Thread(this::receiveLoop, "cluster-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("cluster-");
+        scheduler.setDaemon(true);
+        scheduler.initialize();
+        scheduler.scheduleWithFixedDelay(this::flush, Instant.now().plus(flushInterval), flushInterval);
+        scheduler.scheduleWithFixedDelay(this::antiEntropy,
+                Instant.now().plus(antiEntropyInterval), antiEntropyInterval);
+        log.info("✓ Cluster replication listening on UDP {} with {} peers", port, peers.size());
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdown();
+        flush();
+        socket.close();
+    }
+
+    @EventListener
+    public void onAuthStateChanged(AuthStateEvent event) {
+        String k = event.compactionKey();
+        if (event.getType() == AuthStateEvent.Type.SESSION_STORED || event.getType() == AuthStateEvent.Type.SESSION_REMOVED) {
+            // 本地变化也记录版本，之后到达的更早的远端变化不会覆盖它
+            advance(k, event.getVersion(), nodeId);
+        }
+        pending.put(k, event);
+    }
+
+    void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<AuthStateEvent> batch = new ArrayList<>(pending.size());
+        for (String k : pending.keySet()) {
+            AuthStateEvent event = pending.remove(k);
+            if (event != null) {
+                batch.add(event);
+            }
+        }
+        send(batch);
+    }
+
+    void antiEntropy() {
+        purgeSeen(System.currentTimeMillis());
+        List<AuthStateEvent> batch = new ArrayList<>();
+        revocationService.snapshot().forEach((k, expiresAt) -> batch.add(AuthStateEvent.revoked(k, expiresAt)));
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private void send(List<AuthStateEvent> batch) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            int count = 0;
+            for (AuthStateEvent event : batch) {
+                int mark = buffer.size();
+                writeEvent(out, event);
+                count++;
+                if (buffer.size() >= MAX_PAYLOAD) {
+                    // 当前事件之前的部分先发出，当前事件放到下一个报文开头
+                    byte[] all = buffer.toByteArray();
+                    sendPacket(all, 0, mark, count - 1);
+                    buffer.reset();
+                    buffer.write(all, mark, all.length - mark);
+                    count = 1;
+                }
+            }
+            if (count > 0) {
+                sendPacket(buffer.toByteArray(), 0, buffer.size(), count);
+            }
+            log.debug("Replicated {} auth state events to {} peers", batch.size(), peers.size());
+        } catch (IOException | GeneralSecurityException e) {
+            log.warn("✗ Failed to replicate auth state: {}", e.getMessage());
+        }
+    }
+
+    private void sendPacket(byte[] events, int offset, int length, int count)
+            throws IOException, GeneralSecurityException {
+        if (count == 0) {
+            return;
+        }
+        ByteArrayOutputStream plain = new ByteArrayOutputStream(length + 20);
+        DataOutputStream out = new DataOutputStream(plain);
+        out.writeLong(nodeId);
+        out.writeLong(System.currentTimeMillis());
+        out.writeLong(random.nextLong());
+        out.writeInt(count);
+        out.write(events, offset, length);
+
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+        byte[] sealed = cipher.doFinal(plain.toByteArray());
+
+        byte[] datagram = new byte[1 + IV_LENGTH + sealed.length];
+        datagram[0] = VERSION;
+        System.arraycopy(iv, 0, datagram, 1, IV_LENGTH);
+        System.arraycopy(sealed, 0, datagram, 1 + IV_LENGTH, sealed.length);
+        for (InetSocketAddress peer : peers) {
+            socket.send(new DatagramPacket(datagram, datagram.length, peer));
+        }
+    }
+
+    private void receiveLoop() {
+        byte[] buffer = new byte[MAX_DATAGRAM];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                receive(packet.getData(), packet.getLength());
+            } catch (SocketException e) {
+                // 关闭时退出
+            } catch (Exception e) {
+                log.warn("✗ Dropped cluster packet from {}: {}", packet.getSocketAddress(), e.getMessage());
+            }
+        }
+    }
+
+    private void receive(byte[] data, int length) throws IOException, GeneralSecurityException {
+        if (length <= 1 + IV_LENGTH || data[0] != VERSION) {
+            return;
+        }
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, data, 1, IV_LENGTH));
+        byte[] plain = cipher.doFinal(data, 1 + IV_LENGTH, length - 1 - IV_LENGTH);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(plain));
+        long sender = in.readLong();
+        long sentAt = in.readLong();
+        if (sender == nodeId) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (Math.abs(now - sentAt) > maxSkewMillis) {
+            log.warn("✗ Dropped stale cluster packet sent at {}", Instant.ofEpochMilli(sentAt));
+            return;
+        }
+        long messageId = in.readLong();
+        if (seenMessages.putIfAbsent(messageId, now) != null) {
+            log.warn("✗ Dropped replayed cluster packet sent at {}", Instant.ofEpochMilli(sentAt));
+            return;
+        }
+        int count = in.readInt();
+        Map<String, AuthStateEvent> events = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            AuthStateEvent event = readEvent(in);
+            events.put(event.compactionKey(), event);
+        }
+        for (AuthStateEvent event : events.values()) {
+            apply(event, sender);
+        }
+    }
+
+    private void apply(AuthStateEvent event, long sender) {
+        switch (event.getType()) {
+            case REVOKED -> revocationService.applyReplicated(event.getKey(), event.getExpiresAtMillis());
+            case SESSION_STORED -> {
+                if (advance(event.compactionKey(), event.getVersion(), sender)) {
+                    tokenStore.put(event.getKey(), event.getTokens());
+                }
+            }
+            case SESSION_REMOVED -> {
+                if (advance(event.compactionKey(), event.getVersion(), sender)) {
+                    tokenStore.remove(event.getKey());
+                }
+            }
+            case REFRESHED -> oidcClientService.applyReplicatedRefresh(event.getKey(), event.getTokens(),
+                    event.getExpiresAtMillis());
+        }
+    }
+
+    /**
+     * 记录 key 的新版本
+     *
+     * @return 版本比已知的更新（应当应用）；旧的或相同的版本返回 false
+     */
+    private boolean advance(String k, long version, long node) {
+        Version next = new Version(version, node, System.currentTimeMillis());
+        return versions.merge(k, next, (current, candidate) -> candidate.isAfter(current) ? candidate : current) == next;
+    }
+
+    /**
+     * 清理超出 2 × max-skew 的报文 ID 和版本，这些时刻之前发出的报文已被时间窗口拒绝
+     */
+    private void purgeSeen(long now) {
+        long cutoff = now - 2 * maxSkewMillis;
+        seenMessages.values().removeIf(receivedAt -> receivedAt < cutoff);
+        versions.values().removeIf(v -> v.seenAtMillis < cutoff);
+    }
+
+    private static void writeEvent(DataOutputStream out, AuthStateEvent event) throws IOException {
+        out.writeByte(event.getType().ordinal());
+        out.writeUTF(event.getKey());
+        out.writeLong(event.getExpiresAtMillis());
+        out.writeLong(event.getVersion());
+        if (event.getType() == AuthStateEvent.Type.SESSION_STORED || event.getType() == AuthStateEvent.Type.REFRESHED) {
+            StoredTokens tokens = event.getTokens();
+            writeNullable(out, tokens.getAccessToken());
+            writeNullable(out, tokens.getRefreshToken());
+            writeNullable(out, tokens.getUsername());
+            out.writeLong(tokens.getAccessExpiresAtMillis());
+        }
+    }
+
+    private static AuthStateEvent readEvent(DataInputStream in) throws IOException {
+        AuthStateEvent.Type type = AuthStateEvent.Type.values()[in.readUnsignedByte()];
+        String k = in.readUTF();
+        long expiresAt = in.readLong();
+        long version = in.readLong();
+        StoredTokens tokens = null;
+        if (type == AuthStateEvent.Type.SESSION_STORED || type == AuthStateEvent.Type.REFRESHED) {
+            tokens = StoredTokens.builder()
+                    .accessToken(readNullable(in))
+                    .refreshToken(readNullable(in))
+                    .username(readNullable(in))
+                    .accessExpiresAtMillis(in.readLong())
+                    .expiresAtMillis(expiresAt)
+                    .build();
+        }
+        return new AuthStateEvent(type, k, expiresAt, tokens, version);
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static byte[] sha256(String secret) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 一个 key 上已应用的版本：产生时刻相同时按节点 ID 决出先后，各节点结论一致
+     */
+    private static final class Version {
+        private final long millis;
+        private final long node;
+        private final long seenAtMillis;
+
+        private Version(long millis, long node, long seenAtMillis) {
+            this.millis = millis;
+            this.node = node;
+            this.seenAtMillis = seenAtMillis;
+        }
+
+        private boolean isAfter(Version other) {
+            return millis > other.millis || (millis == other.millis && node > other.node);
+        }
+    }
+}
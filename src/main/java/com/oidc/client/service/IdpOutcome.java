@@ -0,0 +1,100 @@
+package com.oidc.client.service;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.Value;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 一次 IdP 调用的结果，区分 IdP 拒绝请求和 IdP 不可用，取代原来的 null / 空 Mono
+ */
+@Value
+public class IdpOutcome<T> {
+
+    public enum Status {
+        SUCCESS,
+        /** IdP 返回 4xx，如 invalid_grant；重试无意义 */
+        REJECTED,
+        /** 熔断器打开，未发出请求 */
+        CIRCUIT_OPEN,
+        /** 并发 IdP 调用已达上限，未发出请求 */
+        BULKHEAD_FULL,
+        TIMEOUT,
+        /** 连接失败、5xx 或响应为空 */
+        UNAVAILABLE
+    }
+
+    Status status;
+
+    T value;
+
+    /** IdP 返回的 HTTP 状态码，未收到响应时为 null */
+    Integer httpStatus;
+
+    String message;
+
+    public boolean isSuccess() {
+        return status == Status.SUCCESS;
+    }
+
+    /**
+     * IdP 侧的问题（而不是请求本身无效），调用方应返回 503 一类的响应
+     */
+    public boolean isIdpUnavailable() {
+        return status != Status.SUCCESS && status != Status.REJECTED;
+    }
+
+    public static <T> IdpOutcome<T> success(T value) {
+        return new IdpOutcome<>(Status.SUCCESS, value, null, null);
+    }
+
+    public static <T> IdpOutcome<T> rejected(String message) {
+        return new IdpOutcome<>(Status.REJECTED, null, null, message);
+    }
+
+    public static <T> IdpOutcome<T> unavailable(String message) {
+        return new IdpOutcome<>(Status.UNAVAILABLE, null, null, message);
+    }
+
+    public static <T> IdpOutcome<T> failure(Throwable error) {
+        Throwable e = unwrap(error);
+        if (e instanceof CallNotPermittedException) {
+            return new IdpOutcome<>(Status.CIRCUIT_OPEN, null, null, e.getMessage());
+        }
+        if (e instanceof BulkheadFullException) {
+            return new IdpOutcome<>(Status.BULKHEAD_FULL, null, null, e.getMessage());
+        }
+        if (e instanceof TimeoutException) {
+            return new IdpOutcome<>(Status.TIMEOUT, null, null, e.getMessage());
+        }
+        Integer status = httpStatusOf(e);
+        if (status != null) {
+            return new IdpOutcome<>(status < 500 ? Status.REJECTED : Status.UNAVAILABLE, null, status, e.getMessage());
+        }
+        return new IdpOutcome<>(Status.UNAVAILABLE, null, null, e.getMessage());
+    }
+
+    /**
+     * 对冲请求全部失败时 Reactor 抛出 NoSuchElementException，真正的原因在 suppressed 中
+     */
+    static Throwable unwrap(Throwable e) {
+        if (e instanceof NoSuchElementException && e.getSuppressed().length > 0) {
+            return e.getSuppressed()[0];
+        }
+        return e;
+    }
+
+    static Integer httpStatusOf(Throwable e) {
+        if (e instanceof RestClientResponseException responseException) {
+            return responseException.getStatusCode().value();
+        }
+        if (e instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().value();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,149 @@
+package com.oidc.client.service;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * IdP 调用的容错：超时、隔离舱（限制并发）、熔断、带抖动的重试、对冲请求
+ *
+ * 装饰顺序（由内到外）：超时 → 隔离舱 → 熔断 → 重试，每次重试都重新经过熔断和隔离舱。
+ *
+ * - 熔断只统计 IdP 侧故障（连接失败、超时、5xx），4xx 不计入
+ * - 幂等调用（UserInfo GET）在 IdP 侧故障时重试；
+ *   换 Token 的 POST 不幂等（授权码只能用一次、refresh_token 可能被轮换），只在连接建立失败（请求未发出）时重试
+ * - 对冲请求只用于幂等调用：hedge-delay 内未返回时再发一个相同请求，取先成功的结果
+ */
+@Component
+@Slf4j
+public class IdpResilience {
+
+    @Getter
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    @Getter
+    private final BulkheadRegistry bulkheadRegistry;
+    @Getter
+    private final RetryRegistry retryRegistry;
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Retry idempotentRetry;
+    private final Retry connectRetry;
+    private final Duration timeout;
+    private final boolean hedgeEnabled;
+    private final Duration hedgeDelay;
+
+    public IdpResilience(
+            @Value("${oidc.resilience.timeout:5s}") Duration timeout,
+            @Value("${oidc.resilience.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${oidc.resilience.circuit-breaker.slow-call-threshold:2s}") Duration slowCallThreshold,
+            @Value("${oidc.resilience.circuit-breaker.window-size:20}") int windowSize,
+            @Value("${oidc.resilience.circuit-breaker.open-duration:10s}") Duration openDuration,
+            @Value("${oidc.resilience.bulkhead.max-concurrent-calls:64}") int maxConcurrentCalls,
+            @Value("${oidc.resilience.bulkhead.max-wait:0ms}") Duration bulkheadMaxWait,
+            @Value("${oidc.resilience.retry.max-attempts:3}") int maxAttempts,
+            @Value("${oidc.resilience.retry.initial-backoff:100ms}") Duration initialBackoff,
+            @Value("${oidc.resilience.hedge.enabled:false}") boolean hedgeEnabled,
+            @Value("${oidc.resilience.hedge.delay:300ms}") Duration hedgeDelay) {
+        this.timeout = timeout;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeDelay = hedgeDelay;
+
+        this.circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(100)
+                .slowCallDurationThreshold(slowCallThreshold)
+                .slidingWindowSize(windowSize)
+                .minimumNumberOfCalls(Math.max(1, windowSize / 2))
+                .waitDurationInOpenState(openDuration)
+                .permittedNumberOfCallsInHalfOpenState(2)
+                .recordException(IdpResilience::isIdpFailure)
+                .build());
+        this.bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(bulkheadMaxWait)
+                .build());
+
+        // 指数退避 + 50% 随机抖动，避免大量客户端同时重试
+        IntervalFunction backoff = IntervalFunction.ofExponentialRandomBackoff(initialBackoff, 2.0, 0.5);
+        this.retryRegistry = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(maxAttempts)
+                .intervalFunction(backoff)
+                .retryOnException(IdpResilience::isIdpFailure)
+                .build());
+
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("idp");
+        this.bulkhead = bulkheadRegistry.bulkhead("idp");
+        this.idempotentRetry = retryRegistry.retry("idp-idempotent");
+        this.connectRetry = retryRegistry.retry("idp-connect", RetryConfig.custom()
+                .maxAttempts(maxAttempts)
+                .intervalFunction(backoff)
+                .retryOnException(IdpResilience::isConnectFailure)
+                .build());
+
+        circuitBreaker.getEventPublisher().onStateTransition(event ->
+                log.warn("IdP circuit breaker {}", event.getStateTransition()));
+    }
+
+    /**
+     * 装饰一次 IdP 调用
+     *
+     * @param call       每次订阅发出一次请求
+     * @param idempotent 是否可以在 IdP 侧故障后重试 / 对冲
+     */
+    public <T> Mono<T> decorate(Mono<T> call, boolean idempotent) {
+        Mono<T> guarded = call
+                .timeout(timeout)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+        Mono<T> attempt = idempotent && hedgeEnabled
+                ? Mono.firstWithValue(guarded, Mono.delay(hedgeDelay).then(guarded))
+                : guarded;
+        return attempt.transformDeferred(RetryOperator.of(idempotent ? idempotentRetry : connectRetry));
+    }
+
+    /**
+     * IdP 侧故障：连接失败、超时、5xx；熔断、隔离舱拒绝和 4xx 不算
+     */
+    static boolean isIdpFailure(Throwable error) {
+        Throwable e = IdpOutcome.unwrap(error);
+        if (e instanceof CallNotPermittedException || e instanceof BulkheadFullException) {
+            return false;
+        }
+        if (e instanceof TimeoutException) {
+            return true;
+        }
+        Integer status = IdpOutcome.httpStatusOf(e);
+        return status == null || status >= 500;
+    }
+
+    static boolean isConnectFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,122 @@
+package com.oidc.client.service;
+
+import com.oidc.client.dto.StoredTokens;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存 Token 存储，进程重启后丢失
+ *
+ * 按会话 ID 的哈希分成若干段，每段一个 HashMap 和一把读写锁；
+ * 不同段之间互不阻塞，同一段内的读可以并发。
+ */
+@Component
+@ConditionalOnProperty(name = "oidc.token-store.type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTokenStore implements TokenStore {
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final int maxSize;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public InMemoryTokenStore(
+            @Value("${oidc.token-store.stripes:16}") int stripes,
+            @Value("${oidc.token-store.max-size:100000}") int maxSize) {
+        // 段数取 2 的幂，用位运算定位
+        int count = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = count - 1;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public boolean put(String sessionId, StoredTokens tokens) {
+        Stripe stripe = stripe(sessionId);
+        stripe.lock.writeLock().lock();
+        try {
+            boolean exists = stripe.entries.containsKey(sessionId);
+            if (!exists && size.get() >= maxSize) {
+                return false;
+            }
+            stripe.entries.put(sessionId, tokens);
+            if (!exists) {
+                size.incrementAndGet();
+            }
+            return true;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public StoredTokens get(String sessionId) {
+        Stripe stripe = stripe(sessionId);
+        StoredTokens tokens;
+        stripe.lock.readLock().lock();
+        try {
+            tokens = stripe.entries.get(sessionId);
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+        return tokens != null && tokens.getExpiresAtMillis() > System.currentTimeMillis() ? tokens : null;
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        Stripe stripe = stripe(sessionId);
+        stripe.lock.writeLock().lock();
+        try {
+            if (stripe.entries.remove(sessionId) != null) {
+                size.decrementAndGet();
+            }
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int sweep(long nowMillis) {
+        int removed = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.writeLock().lock();
+            try {
+                Iterator<StoredTokens> it = stripe.entries.values().iterator();
+                while (it.hasNext()) {
+                    if (it.next().getExpiresAtMillis() <= nowMillis) {
+                        it.remove();
+                        removed++;
+                    }
+                }
+            } finally {
+                stripe.lock.writeLock().unlock();
+            }
+        }
+        size.addAndGet(-removed);
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    private Stripe stripe(String sessionId) {
+        int h = sessionId.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    private static final class Stripe {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, StoredTokens> entries = new HashMap<>();
+    }
+}
@@ -0,0 +1,316 @@
+package com.oidc.client.service;
+
+import com.oidc.client.dto.StoredTokens;
+import com.oidc.client.util.SessionCookieCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于内存映射文件的 Token 存储，进程重启后会话仍然有效，不需要数据库
+ *
+ * 文件由固定大小的槽位组成，一个会话占一个槽位：
+ *   state(1) | expiresAt(8) | accessExpiresAt(8) | sessionId | username | sealedTokens
+ * 字符串按 长度(2) + 字节 存放，长度 -1 表示 null。
+ *
+ * Access Token 和 Refresh Token 不以明文落盘：sealedTokens 是 SessionCookieCodec 用 oidc.session.key
+ * 加密（AES-GCM）后的值，因此必须配置固定的 oidc.session.key：随机密钥下重启后旧会话全部无法解密，
+ * 文件存储就失去了意义，未配置时启动失败。文件新建时权限为 0600（POSIX 文件系统）。
+ *
+ * 会话 ID → 槽位的索引只在堆内，启动时扫描文件重建；读写槽位按槽位号分段加锁，写入和释放都在槽位锁下
+ * 核对索引，槽位不会同时属于两个会话，也不会在释放后被写回已用状态。
+ * 写入只落到页缓存，由操作系统回写；关闭时 force 一次。
+ */
+@Component
+@ConditionalOnProperty(name = "oidc.token-store.type", havingValue = "file")
+@Slf4j
+public class MappedFileTokenStore implements TokenStore {
+
+    private static final int MAGIC = 0x4F544B32;    // "OTK2"
+    private static final int HEADER_SIZE = 64;
+    private static final byte FREE = 0;
+    private static final byte USED = 1;
+    private static final int LOCK_STRIPES = 64;
+
+    private final SessionCookieCodec codec;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotSize;
+    private final int slotCount;
+    private final Map<String, Integer> index = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Integer> freeSlots = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public MappedFileTokenStore(
+            SessionCookieCodec codec,
+            @Value("${oidc.token-store.file.path:data/token-store.dat}") String path,
+            @Value("${oidc.token-store.file.slots:16384}") int slotCount,
+            @Value("${oidc.token-store.file.slot-size:4096}") int slotSize) {
+        if ((long) slotCount * slotSize + HEADER_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Token store file must be smaller than 2GB");
+        }
+        if (!codec.isKeyConfigured()) {
+            throw new IllegalStateException("oidc.token-store.type=file requires oidc.session.key, "
+                    + "sessions sealed with a random key cannot be read after a restart");
+        }
+        this.codec = codec;
+        this.slotSize = slotSize;
+        this.slotCount = slotCount;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+
+        try {
+            Path file = Path.of(path).toAbsolutePath();
+            Files.createDirectories(file.getParent());
+            if (!Files.exists(file) && FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            }
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slotCount * slotSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open token store file " + path, e);
+        }
+
+        if (buffer.getInt(0) == MAGIC && buffer.getInt(4) == slotSize && buffer.getInt(8) == slotCount) {
+            load();
+        } else {
+            // 新文件或槽位布局变化，旧数据无法解读，整体重置
+            for (int slot = 0; slot < slotCount; slot++) {
+                buffer.put(offset(slot), FREE);
+                freeSlots.add(slot);
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, slotSize);
+            buffer.putInt(8, slotCount);
+        }
+        log.info("✓ Token store file {} opened, {} sessions restored", path, index.size());
+    }
+
+    @Override
+    public boolean put(String sessionId, StoredTokens tokens) {
+        String sealed = codec.encode(new SessionCookieCodec.Session(tokens.getAccessToken(), tokens.getRefreshToken()));
+        byte[][] fields = {bytes(sessionId), bytes(tokens.getUsername()), bytes(sealed)};
+        int length = 17;
+        for (byte[] field : fields) {
+            length += 2 + (field != null ? field.length : 0);
+        }
+        if (length > slotSize) {
+            log.warn("✗ Session of {} bytes does not fit token store slot size {}", length, slotSize);
+            return false;
+        }
+
+        while (true) {
+            Integer slot = index.get(sessionId);
+            if (slot == null) {
+                slot = allocate();
+                if (slot == null) {
+                    return false;
+                }
+                if (index.putIfAbsent(sessionId, slot) != null) {
+                    // 并发写入同一个会话，新槽位还没写过，直接归还后写入已有槽位
+                    freeSlots.add(slot);
+                    continue;
+                }
+            }
+
+            ReentrantLock lock = lock(slot);
+            lock.lock();
+            try {
+                if (!slot.equals(index.get(sessionId))) {
+                    // 取到槽位后会话被 remove / sweep 释放，槽位可能已分给其他会话，重新分配
+                    continue;
+                }
+                int pos = offset(slot);
+                // 先写内容，最后写 state，崩溃时不会留下半写的已用槽位
+                buffer.put(pos, FREE);
+                buffer.putLong(pos + 1, tokens.getExpiresAtMillis());
+                buffer.putLong(pos + 9, tokens.getAccessExpiresAtMillis());
+                pos += 17;
+                for (byte[] field : fields) {
+                    pos = writeField(pos, field);
+                }
+                buffer.put(offset(slot), USED);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public StoredTokens get(String sessionId) {
+        Integer slot = index.get(sessionId);
+        if (slot == null) {
+            return null;
+        }
+        StoredTokens tokens;
+        ReentrantLock lock = lock(slot);
+        lock.lock();
+        try {
+            tokens = read(slot, sessionId);
+        } finally {
+            lock.unlock();
+        }
+        return tokens != null && tokens.getExpiresAtMillis() > System.currentTimeMillis() ? tokens : null;
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        Integer slot = index.get(sessionId);
+        if (slot != null) {
+            release(sessionId, slot, Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public int sweep(long nowMillis) {
+        int removed = 0;
+        for (Map.Entry<String, Integer> entry : index.entrySet()) {
+            if (release(entry.getKey(), entry.getValue(), nowMillis)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void load() {
+        long now = System.currentTimeMillis();
+        for (int slot = 0; slot < slotCount; slot++) {
+            int pos = offset(slot);
+            // 同一个会话出现在多个槽位时只保留第一个
+            boolean restored = buffer.get(pos) == USED && buffer.getLong(pos + 1) > now
+                    && index.putIfAbsent(readString(pos + 17), slot) == null;
+            if (!restored) {
+                buffer.put(pos, FREE);
+                freeSlots.add(slot);
+            }
+        }
+    }
+
+    private Integer allocate() {
+        Integer slot = freeSlots.poll();
+        if (slot == null && sweep(System.currentTimeMillis()) > 0) {
+            slot = freeSlots.poll();
+        }
+        if (slot == null) {
+            log.warn("✗ Token store is full ({} slots)", slotCount);
+        }
+        return slot;
+    }
+
+    /**
+     * 槽位仍属于该会话、且在 nowMillis 时已过期时释放；与 put 在同一把槽位锁下比较并释放，
+     * 不会把正在写入或已分给其他会话的槽位标记为空闲
+     */
+    private boolean release(String sessionId, int slot, long nowMillis) {
+        ReentrantLock lock = lock(slot);
+        lock.lock();
+        try {
+            if (buffer.getLong(offset(slot) + 1) > nowMillis || !index.remove(sessionId, slot)) {
+                return false;
+            }
+            buffer.put(offset(slot), FREE);
+        } finally {
+            lock.unlock();
+        }
+        freeSlots.add(slot);
+        return true;
+    }
+
+    private StoredTokens read(int slot, String sessionId) {
+        int pos = offset(slot);
+        if (buffer.get(pos) != USED) {
+            return null;
+        }
+        long expiresAt = buffer.getLong(pos + 1);
+        long accessExpiresAt = buffer.getLong(pos + 9);
+        pos += 17;
+        String storedId = readString(pos);
+        if (!sessionId.equals(storedId)) {
+            // 槽位已被释放并复用
+            return null;
+        }
+        pos += fieldLength(pos);
+        String username = readString(pos);
+        pos += fieldLength(pos);
+        String sealed = readString(pos);
+        SessionCookieCodec.Session session = sealed != null ? codec.decode(sealed) : null;
+        if (session == null) {
+            // 密钥已更换（例如未配置 oidc.session.key 时重启）
+            return null;
+        }
+        return StoredTokens.builder()
+                .accessToken(session.getAccessToken())
+                .refreshToken(session.getRefreshToken())
+                .username(username)
+                .accessExpiresAtMillis(accessExpiresAt)
+                .expiresAtMillis(expiresAt)
+                .build();
+    }
+
+    private int writeField(int pos, byte[] field) {
+        if (field == null) {
+            buffer.putShort(pos, (short) -1);
+            return pos + 2;
+        }
+        buffer.putShort(pos, (short) field.length);
+        buffer.put(pos + 2, field);
+        return pos + 2 + field.length;
+    }
+
+    private String readString(int pos) {
+        short length = buffer.getShort(pos);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(pos + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int fieldLength(int pos) {
+        return 2 + Math.max(0, buffer.getShort(pos));
+    }
+
+    private int offset(int slot) {
+        return HEADER_SIZE + slot * slotSize;
+    }
+
+    private ReentrantLock lock(int slot) {
+        return locks[slot & (LOCK_STRIPES - 1)];
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+}
@@ -1,96 +1,283 @@
 package com.oidc.client.service;
 
+import com.oidc.client.dto.StoredTokens;
 import com.oidc.client.dto.TokenResponse;
+import com.oidc.client.util.AuthMetrics;
 import com.oidc.client.util.JwtTokenValidator;
+import com.oidc.client.util.SingleFlight;
+import com.oidc.client.util.VerifiedTokenCache;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
-import java.util.HashMap;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
 public class OidcClientService {
 
+    private static final ParameterizedTypeReference<Map<String, Object>> USER_INFO_TYPE =
+            new ParameterizedTypeReference<>() {};
+    private static final String USERINFO = "userinfo";
+
     private final JwtTokenValidator jwtTokenValidator;
+    private final AuthMetrics authMetrics;
+    private final RevocationService revocationService;
+    private final IdpResilience idpResilience;
     private final RestTemplate restTemplate;
-    private final String oidcServerUrl;
-    private final String tokenEndpoint;
+    private final WebClient webClient;
+    /** 虚拟线程模式下执行同步 IdP 调用，平台线程模式下为 null */
+    private final Scheduler idpScheduler;
+    private final OidcProviderMetadata providerMetadata;
+    private final ApplicationEventPublisher eventPublisher;
     private final String clientId;
     private final String clientSecret;
     private final String redirectUri;
+    private final String scope;
+    /** 按授权码 + 浏览器随机数合并，结果在 reuse-window 内只复用给同一个浏览器 */
+    private final SingleFlight<String, IdpOutcome<TokenResponse>> codeFlights;
+    /** 没有浏览器随机数时只合并进行中的调用，完成后的结果不复用 */
+    private final SingleFlight<String, IdpOutcome<TokenResponse>> codeInFlight;
+    private final SingleFlight<String, IdpOutcome<TokenResponse>> refreshFlights;
+    private final Duration refreshReuseWindow;
+    private final Duration refreshTimeout;
 
     public OidcClientService(
             JwtTokenValidator jwtTokenValidator,
+            AuthMetrics authMetrics,
+            RevocationService revocationService,
+            IdpResilience idpResilience,
+            OidcProviderMetadata providerMetadata,
+            ApplicationEventPublisher eventPublisher,
             RestTemplate restTemplate,
-            @Value("${oidc.server.url:http://localhost:8080}") String oidcServerUrl,
-            @Value("${oidc.server.token-endpoint:/oidc/token}") String tokenEndpoint,
+            WebClient idpWebClient,
+            @Qualifier("idpTaskExecutor") ObjectProvider<AsyncTaskExecutor> idpTaskExecutor,
             @Value("${oidc.client.id:my-app}") String clientId,
             @Value("${oidc.client.secret:secret123}") String clientSecret,
-            @Value("${oidc.client.redirect-uri:http://localhost:8081/callback}") String redirectUri) {
+            @Value("${oidc.client.redirect-uri:http://localhost:8081/callback}") String redirectUri,
+            @Value("${oidc.client.scope:openid profile email}") String scope,
+            @Value("${oidc.code-exchange.reuse-window:5s}") Duration codeReuseWindow,
+            @Value("${oidc.refresh.reuse-window:10s}") Duration refreshReuseWindow,
+            @Value("${oidc.refresh.timeout:5s}") Duration refreshTimeout) {
         this.jwtTokenValidator = jwtTokenValidator;
+        this.authMetrics = authMetrics;
+        this.revocationService = revocationService;
+        this.idpResilience = idpResilience;
+        this.providerMetadata = providerMetadata;
+        this.eventPublisher = eventPublisher;
         this.restTemplate = restTemplate;
-        this.oidcServerUrl = oidcServerUrl;
-        this.tokenEndpoint = tokenEndpoint;
+        this.webClient = idpWebClient;
+        AsyncTaskExecutor executor = idpTaskExecutor.getIfAvailable();
+        this.idpScheduler = executor != null ? Schedulers.fromExecutor(executor) : null;
         this.clientId = clientId;
         this.clientSecret = clientSecret;
         this.redirectUri = redirectUri;
+        this.scope = scope;
+        // IdP 明确拒绝的授权码也保留：授权码只能用一次，重放不会变成成功，不必再问 IdP
+        this.codeFlights = new SingleFlight<>(codeReuseWindow,
+                outcome -> outcome.isSuccess() || outcome.getStatus() == IdpOutcome.Status.REJECTED);
+        this.codeInFlight = new SingleFlight<>(Duration.ZERO);
+        this.refreshFlights = new SingleFlight<>(refreshReuseWindow,
+                outcome -> outcome.isSuccess() || outcome.getStatus() == IdpOutcome.Status.REJECTED);
+        this.refreshReuseWindow = refreshReuseWindow;
+        this.refreshTimeout = refreshTimeout;
     }
 
-    public TokenResponse exchangeCodeForToken(String code) {
-        try {
-            String tokenUrl = oidcServerUrl + tokenEndpoint;
+    /**
+     * IdP 授权端点地址，带上本客户端的 client_id、redirect_uri、scope 和服务端签发的 state
+     */
+    public String authorizationUrl(String state) {
+        return UriComponentsBuilder.fromHttpUrl(providerMetadata.authorizationEndpoint())
+                .queryParam("response_type", "code")
+                .queryParam("client_id", clientId)
+                .queryParam("redirect_uri", redirectUri)
+                .queryParam("scope", scope)
+                .queryParam("state", state)
+                .encode()
+                .toUriString();
+    }
 
-            Map<String, String> params = new HashMap<>();
-            params.put("grant_type", "authorization_code");
-            params.put("code", code);
-            params.put("redirect_uri", redirectUri);
-            params.put("client_id", clientId);
-            params.put("client_secret", clientSecret);
+    /**
+     * 同步换取 Token，在调用线程上完成 IdP 请求
+     */
+    public IdpOutcome<TokenResponse> exchangeCodeForToken(String code, String browserNonce) {
+        return exchange(code, browserNonce, true).join();
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+    /**
+     * 非阻塞换取 Token，等待 IdP 响应期间不占用 Servlet 线程
+     *
+     * 虚拟线程模式下在虚拟线程上执行同步调用，否则使用 WebClient。
+     *
+     * 同一个浏览器对同一个授权码的并发请求（如 /callback 和 /api/auth/token 各提交一次）只向 IdP 发起一次，
+     * 结果在 oidc.code-exchange.reuse-window 内复用给这个浏览器；别人拿到同一个授权码也取不到这份 Token。
+     * 没有浏览器随机数（登录绑定 Cookie）时只合并进行中的调用，不复用已完成的结果。
+     *
+     * @param browserNonce 登录绑定 Cookie 中的浏览器随机数，可以为 null
+     * @return 总是发出一个结果；失败时区分 IdP 拒绝（REJECTED）和 IdP 不可用（熔断、超时等）
+     */
+    public Mono<IdpOutcome<TokenResponse>> exchangeCodeForTokenAsync(String code, String browserNonce) {
+        return Mono.fromFuture(() -> exchange(code, browserNonce, false));
+    }
 
-            StringBuilder body = new StringBuilder();
-            params.forEach((key, value) -> {
-                if (body.length() > 0) body.append("&");
-                body.append(key).append("=").append(value);
-            });
+    private CompletableFuture<IdpOutcome<TokenResponse>> exchange(String code, String browserNonce, boolean blocking) {
+        Supplier<CompletableFuture<IdpOutcome<TokenResponse>>> call =
+                () -> requestToken(authorizationCodeForm(code), "exchange code for token", blocking).toFuture();
+        if (browserNonce == null || browserNonce.isEmpty()) {
+            return codeInFlight.execute(VerifiedTokenCache.digest(code), call);
+        }
+        return codeFlights.execute(VerifiedTokenCache.digest(code + '\n' + browserNonce), call);
+    }
 
-            HttpEntity<String> request = new HttpEntity<>(body.toString(), headers);
+    /**
+     * 用 refresh_token 续期 Access Token
+     *
+     * 同一个 refresh_token 的并发刷新只向 IdP 发起一次请求，成功结果在 oidc.refresh.reuse-window 内复用，
+     * 避免 IdP 轮换 refresh_token 后并发请求拿旧值刷新失败；被 IdP 拒绝的结果同样在窗口内复用，
+     * 无效的 refresh_token 不会每个请求都访问一次 IdP。
+     * 成功结果同时发布为 AuthStateEvent.REFRESHED，集群模式下其他节点在窗口内也复用它，不再拿旧值去问 IdP。
+     */
+    public Mono<IdpOutcome<TokenResponse>> refreshAccessTokenAsync(String refreshToken) {
+        if (revocationService.isRefreshTokenRevoked(refreshToken)) {
+            log.warn("✗ Refresh rejected: refresh token was revoked by logout");
+            return Mono.just(IdpOutcome.rejected("Refresh token revoked"));
+        }
+        String digest = VerifiedTokenCache.digest(refreshToken);
+        return Mono.fromFuture(() -> refreshFlights.execute(digest,
+                () -> requestToken(refreshTokenForm(refreshToken), "refresh access token", false)
+                        .doOnNext(outcome -> publishRefreshed(digest, outcome))
+                        .toFuture()));
+    }
 
-            org.springframework.http.ResponseEntity<TokenResponse> response = restTemplate.postForEntity(
-                    tokenUrl,
-                    request,
-                    TokenResponse.class
-            );
+    /**
+     * 应用其他节点的续期结果：同一个 refresh_token 在本节点的续期直接复用，不再请求 IdP
+     */
+    public void applyReplicatedRefresh(String refreshTokenDigest, StoredTokens tokens, long reusableUntilMillis) {
+        long now = System.currentTimeMillis();
+        if (reusableUntilMillis <= now) {
+            return;
+        }
+        TokenResponse tokenResponse = TokenResponse.builder()
+                .accessToken(tokens.getAccessToken())
+                .refreshToken(tokens.getRefreshToken())
+                .username(tokens.getUsername())
+                .tokenType("Bearer")
+                .expiresIn(Math.max(0, (tokens.getAccessExpiresAtMillis() - now) / 1000))
+                .build();
+        refreshFlights.offer(refreshTokenDigest, IdpOutcome.success(tokenResponse));
+    }
+
+    private void publishRefreshed(String digest, IdpOutcome<TokenResponse> outcome) {
+        if (!outcome.isSuccess()) {
+            return;
+        }
+        TokenResponse tokenResponse = outcome.getValue();
+        long now = System.currentTimeMillis();
+        long expiresIn = tokenResponse.getExpiresIn() != null ? tokenResponse.getExpiresIn() : 0L;
+        StoredTokens tokens = StoredTokens.builder()
+                .accessToken(tokenResponse.getAccessToken())
+                .refreshToken(tokenResponse.getRefreshToken())
+                .username(tokenResponse.getUsername())
+                .accessExpiresAtMillis(now + expiresIn * 1000)
+                .expiresAtMillis(now + refreshReuseWindow.toMillis())
+                .build();
+        eventPublisher.publishEvent(AuthStateEvent.refreshed(digest, tokens, now + refreshReuseWindow.toMillis()));
+    }
 
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                TokenResponse tokenResponse = response.getBody();
-
-                // 从 access token 中提取用户名
-                if (tokenResponse.getAccessToken() != null) {
-                    String username = jwtTokenValidator.getUsernameFromToken(tokenResponse.getAccessToken());
-                    tokenResponse.setUsername(username);
-                }
-
-                log.info("✓ Successfully exchanged code for token");
-                return tokenResponse;
-            } else {
-                log.error("✗ Failed to exchange code: {}", response.getStatusCode());
-                return null;
-            }
+    /**
+     * 同步续期，供 Filter 在请求线程上使用
+     */
+    public IdpOutcome<TokenResponse> refreshAccessToken(String refreshToken) {
+        try {
+            return refreshAccessTokenAsync(refreshToken).block(refreshTimeout);
         } catch (Exception e) {
-            log.error("✗ Error exchanging code for token: {}", e.getMessage());
-            return null;
+            log.error("✗ Error refreshing access token: {}", e.getMessage());
+            return IdpOutcome.failure(e);
+        }
+    }
+
+    /**
+     * 从 IdP 的 UserInfo 端点获取用户资料
+     *
+     * GET 是幂等的：IdP 侧故障时带抖动重试，开启 oidc.resilience.hedge 时发出对冲请求。
+     */
+    public Mono<IdpOutcome<Map<String, Object>>> fetchUserInfoAsync(String accessToken) {
+        Mono<ResponseEntity<Map<String, Object>>> call = idpScheduler != null
+                ? Mono.fromCallable(() -> fetchUserInfo(accessToken)).subscribeOn(idpScheduler)
+                : Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return webClient.get()
+                            .uri(providerMetadata.userinfoEndpoint())
+                            .headers(headers -> headers.setBearerAuth(accessToken))
+                            .retrieve()
+                            .toEntity(USER_INFO_TYPE)
+                            .doOnNext(entity -> authMetrics.idpCall(USERINFO, statusOf(entity), System.nanoTime() - start))
+                            .doOnError(e -> authMetrics.idpCall(USERINFO, statusOf(e), System.nanoTime() - start));
+                });
+
+        return idpResilience.decorate(call, true)
+                .map(entity -> entity.getBody() != null
+                        ? IdpOutcome.success(entity.getBody())
+                        : IdpOutcome.<Map<String, Object>>unavailable("Empty userinfo response"))
+                .onErrorResume(e -> Mono.just(IdpOutcome.failure(e)))
+                .doOnNext(outcome -> {
+                    if (!outcome.isSuccess()) {
+                        log.error("✗ Error fetching user info: {} {}", outcome.getStatus(), outcome.getMessage());
+                    }
+                });
+    }
+
+    private ResponseEntity<Map<String, Object>> fetchUserInfo(String accessToken) {
+        long start = System.nanoTime();
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBearerAuth(accessToken);
+            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(providerMetadata.userinfoEndpoint(),
+                    HttpMethod.GET, new HttpEntity<>(headers), USER_INFO_TYPE);
+            authMetrics.idpCall(USERINFO, statusOf(response), System.nanoTime() - start);
+            return response;
+        } catch (RuntimeException e) {
+            authMetrics.idpCall(USERINFO, statusOf(e), System.nanoTime() - start);
+            throw e;
         }
     }
 
+    /**
+     * 进行中及在复用窗口内的授权码换取数量（指标用）
+     */
+    public int codeFlightCount() {
+        return codeFlights.size();
+    }
+
+    /**
+     * 进行中及在复用窗口内的刷新数量（指标用）
+     */
+    public int refreshFlightCount() {
+        return refreshFlights.size();
+    }
+
     public boolean validateToken(String token) {
         return jwtTokenValidator.validateToken(token);
     }
@@ -102,4 +289,103 @@ public class OidcClientService {
     public Long getUserIdFromToken(String token) {
         return jwtTokenValidator.getUserIdFromToken(token);
     }
+
+    /**
+     * 向 Token 端点发起请求
+     *
+     * 换 Token 不幂等，只在连接建立失败时重试，不发对冲请求。
+     *
+     * @param blocking 在调用线程上同步执行（供同步 API 使用）
+     */
+    private Mono<IdpOutcome<TokenResponse>> requestToken(MultiValueMap<String, String> form, String action,
+                                                         boolean blocking) {
+        String operation = form.getFirst("grant_type");
+        Mono<ResponseEntity<TokenResponse>> call;
+        if (blocking) {
+            call = Mono.fromCallable(() -> postTokenRequest(form, operation));
+        } else if (idpScheduler != null) {
+            call = Mono.fromCallable(() -> postTokenRequest(form, operation)).subscribeOn(idpScheduler);
+        } else {
+            call = Mono.defer(() -> {
+                long start = System.nanoTime();
+                return webClient.post()
+                        .uri(providerMetadata.tokenEndpoint())
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .body(BodyInserters.fromFormData(form))
+                        .retrieve()
+                        .toEntity(TokenResponse.class)
+                        .doOnNext(entity -> authMetrics.idpCall(operation, statusOf(entity), System.nanoTime() - start))
+                        .doOnError(e -> authMetrics.idpCall(operation, statusOf(e), System.nanoTime() - start));
+            });
+        }
+
+        return idpResilience.decorate(call, false)
+                .map(entity -> entity.getBody() != null
+                        ? IdpOutcome.success(withUsername(entity.getBody()))
+                        : IdpOutcome.<TokenResponse>unavailable("Empty token response"))
+                .onErrorResume(e -> Mono.just(IdpOutcome.failure(e)))
+                .doOnNext(outcome -> {
+                    if (outcome.isSuccess()) {
+                        log.info("✓ Successfully {}", action);
+                    } else {
+                        log.error("✗ Failed to {}: {} {}", action, outcome.getStatus(), outcome.getMessage());
+                    }
+                });
+    }
+
+    private ResponseEntity<TokenResponse> postTokenRequest(MultiValueMap<String, String> form, String operation) {
+        long start = System.nanoTime();
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+
+            ResponseEntity<TokenResponse> response = restTemplate.postForEntity(
+                    providerMetadata.tokenEndpoint(),
+                    new HttpEntity<>(form, headers),
+                    TokenResponse.class
+            );
+            authMetrics.idpCall(operation, statusOf(response), System.nanoTime() - start);
+            return response;
+        } catch (RuntimeException e) {
+            authMetrics.idpCall(operation, statusOf(e), System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private MultiValueMap<String, String> refreshTokenForm(String refreshToken) {
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("grant_type", "refresh_token");
+        params.add("refresh_token", refreshToken);
+        params.add("client_id", clientId);
+        params.add("client_secret", clientSecret);
+        return params;
+    }
+
+    private MultiValueMap<String, String> authorizationCodeForm(String code) {
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("grant_type", "authorization_code");
+        params.add("code", code);
+        params.add("redirect_uri", redirectUri);
+        params.add("client_id", clientId);
+        params.add("client_secret", clientSecret);
+        return params;
+    }
+
+    private static String statusOf(ResponseEntity<?> response) {
+        return String.valueOf(response.getStatusCode().value());
+    }
+
+    private static String statusOf(Throwable e) {
+        Integer status = IdpOutcome.httpStatusOf(e);
+        return status != null ? String.valueOf(status) : "IO_ERROR";
+    }
+
+    private TokenResponse withUsername(TokenResponse tokenResponse) {
+        // 从 access token 中提取用户名
+        if (tokenResponse.getAccessToken() != null) {
+            String username = jwtTokenValidator.getUsernameFromToken(tokenResponse.getAccessToken());
+            tokenResponse.setUsername(username);
+        }
+        return tokenResponse;
+    }
 }
@@ -0,0 +1,184 @@
+package com.oidc.client.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oidc.client.util.SnapshotDocument;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * IdP 的 OIDC discovery 元数据（/.well-known/openid-configuration）
+ *
+ * 启动时：
+ *   - 本地有快照时直接使用快照，立即可以处理请求，随后在随机延迟（startup-jitter 内）后后台重新验证，
+ *     避免发布时所有节点同时拉取
+ *   - 没有快照时同步拉取一次；失败则使用 oidc.server.* 中配置的端点，后台继续重试
+ * 运行期间每个 refresh-interval 用 If-None-Match 重新验证，未变化时 IdP 返回 304。
+ *
+ * 文档中的 issuer 必须与 oidc.server.url 完全一致（OpenID Connect Discovery 4.3），否则整份文档被拒绝，
+ * 防止被替换的 discovery 文档把 Token 端点指向别处；从其他 discovery 地址拉取的快照同样不会被使用。
+ *
+ * oidc.discovery.enabled=false 时只使用配置的端点。
+ */
+@Component
+@Slf4j
+public class OidcProviderMetadata {
+
+    static final String WELL_KNOWN_PATH = "/.well-known/openid-configuration";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final TaskScheduler taskScheduler;
+    private final boolean enabled;
+    private final String expectedIssuer;
+    private final String discoveryUrl;
+    private final Path snapshotDir;
+    private final Duration refreshInterval;
+    private final Duration startupJitter;
+    private final SnapshotDocument document;
+
+    private volatile Endpoints endpoints;
+
+    public OidcProviderMetadata(
+            RestTemplate restTemplate,
+            TaskScheduler taskScheduler,
+            @Value("${oidc.server.url:http://localhost:8080}") String oidcServerUrl,
+            @Value("${oidc.server.authorization-endpoint:/oidc/authorize}") String authorizationEndpoint,
+            @Value("${oidc.server.token-endpoint:/oidc/token}") String tokenEndpoint,
+            @Value("${oidc.server.userinfo-endpoint:/oidc/userinfo}") String userinfoEndpoint,
+            @Value("${oidc.server.jwks-endpoint:/oidc/jwks}") String jwksEndpoint,
+            @Value("${oidc.discovery.enabled:true}") boolean enabled,
+            @Value("${oidc.discovery.snapshot-dir:data/oidc}") String snapshotDir,
+            @Value("${oidc.discovery.refresh-interval:1h}") Duration refreshInterval,
+            @Value("${oidc.discovery.startup-jitter:30s}") Duration startupJitter) {
+        this.taskScheduler = taskScheduler;
+        this.enabled = enabled;
+        this.expectedIssuer = oidcServerUrl;
+        this.discoveryUrl = oidcServerUrl + WELL_KNOWN_PATH;
+        this.snapshotDir = snapshotDir != null && !snapshotDir.isBlank() ? Path.of(snapshotDir) : null;
+        this.refreshInterval = refreshInterval;
+        this.startupJitter = startupJitter;
+        this.document = new SnapshotDocument(restTemplate, snapshot("openid-configuration.json"));
+        this.endpoints = new Endpoints(oidcServerUrl, oidcServerUrl + authorizationEndpoint, oidcServerUrl + tokenEndpoint,
+                oidcServerUrl + userinfoEndpoint, oidcServerUrl + jwksEndpoint);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        String cached = document.loadSnapshot(discoveryUrl);
+        if (cached != null && apply(cached, "snapshot")) {
+            taskScheduler.scheduleWithFixedDelay(this::refresh, Instant.now().plus(startupDelay()), refreshInterval);
+            return;
+        }
+        refresh();
+        taskScheduler.scheduleWithFixedDelay(this::refresh, Instant.now().plus(refreshInterval), refreshInterval);
+    }
+
+    public String authorizationEndpoint() {
+        return endpoints.getAuthorizationEndpoint();
+    }
+
+    public String tokenEndpoint() {
+        return endpoints.getTokenEndpoint();
+    }
+
+    public String userinfoEndpoint() {
+        return endpoints.getUserinfoEndpoint();
+    }
+
+    public String jwksUri() {
+        return endpoints.getJwksUri();
+    }
+
+    public String issuer() {
+        return endpoints.getIssuer();
+    }
+
+    /**
+     * IdP 文档的本地快照路径，未配置 snapshot-dir 时返回 null（不落盘）
+     */
+    public Path snapshot(String fileName) {
+        return snapshotDir != null ? snapshotDir.resolve(fileName) : null;
+    }
+
+    /**
+     * 从快照启动后第一次后台重新验证的延迟，在 startup-jitter 内随机，错开各节点
+     */
+    public Duration startupDelay() {
+        long jitter = startupJitter.toMillis();
+        return Duration.ofMillis(jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter) : 0);
+    }
+
+    void refresh() {
+        try {
+            String body = document.fetch(discoveryUrl, this::parse);
+            if (body == null) {
+                log.debug("OIDC discovery metadata not modified");
+                return;
+            }
+            apply(body, discoveryUrl);
+        } catch (Exception e) {
+            // 拉取失败时继续使用现有端点
+            log.warn("✗ Failed to refresh OIDC discovery metadata from {}: {}", discoveryUrl, e.getMessage());
+        }
+    }
+
+    private boolean apply(String json, String source) {
+        try {
+            endpoints = parse(json);
+            log.info("✓ OIDC discovery metadata loaded from {}, issuer {}", source, endpoints.getIssuer());
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("✗ Ignoring invalid OIDC discovery metadata from {}: {}", source, e.getMessage());
+            return false;
+        }
+    }
+
+    private Endpoints parse(String json) {
+        JsonNode root;
+        try {
+            root = MAPPER.readTree(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Endpoints fallback = endpoints;
+        String issuer = text(root, "issuer", null);
+        String tokenEndpoint = text(root, "token_endpoint", null);
+        if (issuer == null || tokenEndpoint == null) {
+            throw new IllegalArgumentException("issuer and token_endpoint are required");
+        }
+        if (!issuer.equals(expectedIssuer)) {
+            throw new IllegalArgumentException("issuer " + issuer + " does not match " + expectedIssuer);
+        }
+        return new Endpoints(issuer, text(root, "authorization_endpoint", fallback.getAuthorizationEndpoint()), tokenEndpoint,
+                text(root, "userinfo_endpoint", fallback.getUserinfoEndpoint()),
+                text(root, "jwks_uri", fallback.getJwksUri()));
+    }
+
+    private static String text(JsonNode root, String field, String defaultValue) {
+        JsonNode node = root.get(field);
+        return node != null && node.isTextual() && !node.asText().isBlank() ? node.asText() : defaultValue;
+    }
+
+    @lombok.Value
+    private static class Endpoints {
+        String issuer;
+        String authorizationEndpoint;
+        String tokenEndpoint;
+        String userinfoEndpoint;
+        String jwksUri;
+    }
+}
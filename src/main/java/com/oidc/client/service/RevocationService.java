@@ -0,0 +1,163 @@
+package com.oidc.client.service;
+
+import com.oidc.client.dto.AuthenticatedPrincipal;
+import com.oidc.client.util.BloomFilter;
+import com.oidc.client.util.VerifiedTokenCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本地吊销列表，记录登出的 Access Token（jti 或摘要）和 Refresh Token（摘要），保留到 Token 过期
+ *
+ * 查询先过 Bloom 过滤器：绝大多数未吊销的 Token 在这一步返回，不查 Map、不加锁；
+ * 过滤器命中时再查精确集合排除误判。
+ *
+ * Bloom 过滤器不能删除，定期清理过期条目时按剩余条目重建，内存占用受 max-size 约束。
+ *
+ * 本地吊销会发布 AuthStateEvent，集群模式下同步到其他节点。
+ */
+@Service
+@Slf4j
+public class RevocationService {
+
+    private static final String REFRESH_TOKEN_PREFIX = "rt:";
+
+    private final TaskScheduler taskScheduler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxSize;
+    private final double falsePositiveRate;
+    private final Duration sweepInterval;
+    private final long refreshTokenRetentionMillis;
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+
+    public RevocationService(
+            TaskScheduler taskScheduler,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${oidc.revocation.max-size:100000}") int maxSize,
+            @Value("${oidc.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${oidc.revocation.sweep-interval:60s}") Duration sweepInterval,
+            @Value("${oidc.refresh.cookie-max-age:7d}") Duration refreshTokenRetention) {
+        this.taskScheduler = taskScheduler;
+        this.eventPublisher = eventPublisher;
+        this.maxSize = maxSize;
+        this.falsePositiveRate = falsePositiveRate;
+        this.sweepInterval = sweepInterval;
+        this.refreshTokenRetentionMillis = refreshTokenRetention.toMillis();
+        this.filter = new BloomFilter(maxSize, falsePositiveRate);
+    }
+
+    @PostConstruct
+    void start() {
+        taskScheduler.scheduleWithFixedDelay(this::sweep, Instant.now().plus(sweepInterval), sweepInterval);
+    }
+
+    /**
+     * 吊销 Access Token，保留到它的 exp
+     */
+    public void revoke(AuthenticatedPrincipal principal) {
+        if (principal == null || principal.getTokenId() == null || principal.getExpiresAt() == null) {
+            return;
+        }
+        publish(principal.getTokenId(), principal.getExpiresAt().toEpochMilli());
+    }
+
+    /**
+     * 吊销 Refresh Token；有效期未知，按 Refresh Token Cookie 的保留时长记录
+     */
+    public void revokeRefreshToken(String refreshToken) {
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            return;
+        }
+        publish(refreshTokenKey(refreshToken), System.currentTimeMillis() + refreshTokenRetentionMillis);
+    }
+
+    /**
+     * 应用其他节点同步过来的吊销，不再发布事件
+     */
+    public void applyReplicated(String key, long expiresAtMillis) {
+        add(key, expiresAtMillis);
+    }
+
+    /**
+     * 当前所有未过期的吊销记录，用于集群节点之间的全量对账
+     */
+    public Map<String, Long> snapshot() {
+        return Map.copyOf(revoked);
+    }
+
+    public boolean isRevoked(AuthenticatedPrincipal principal) {
+        return principal.getTokenId() != null && contains(principal.getTokenId());
+    }
+
+    public boolean isRefreshTokenRevoked(String refreshToken) {
+        return contains(refreshTokenKey(refreshToken));
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    private boolean contains(String key) {
+        if (!filter.mightContain(key)) {
+            return false;
+        }
+        Long expiresAt = revoked.get(key);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    private void publish(String key, long expiresAtMillis) {
+        if (add(key, expiresAtMillis)) {
+            eventPublisher.publishEvent(AuthStateEvent.revoked(key, expiresAtMillis));
+        }
+    }
+
+    /**
+     * 写入很少（只在登出时），加锁保证与重建过滤器互斥，不会漏掉新吊销的条目
+     *
+     * @return 是否新增了记录（已存在或已过期时返回 false）
+     */
+    private synchronized boolean add(String key, long expiresAtMillis) {
+        if (expiresAtMillis <= System.currentTimeMillis() || revoked.containsKey(key)) {
+            return false;
+        }
+        if (revoked.size() >= maxSize) {
+            sweep();
+            if (revoked.size() >= maxSize) {
+                // 超出上限时拒绝而不是淘汰，已吊销的 Token 不能因为容量原因重新生效
+                log.warn("✗ Revocation list is full ({} entries), token not revoked locally", maxSize);
+                return false;
+            }
+        }
+        revoked.put(key, expiresAtMillis);
+        filter.add(key);
+        return true;
+    }
+
+    synchronized void sweep() {
+        long now = System.currentTimeMillis();
+        int before = revoked.size();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        if (revoked.size() == before) {
+            return;
+        }
+        BloomFilter rebuilt = new BloomFilter(maxSize, falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::add);
+        filter = rebuilt;
+        log.debug("Revocation list swept, {} expired entries removed, {} remaining", before - revoked.size(), revoked.size());
+    }
+
+    private static String refreshTokenKey(String refreshToken) {
+        return REFRESH_TOKEN_PREFIX + VerifiedTokenCache.digest(refreshToken);
+    }
+}
@@ -0,0 +1,37 @@
+package com.oidc.client.service;
+
+import com.oidc.client.dto.StoredTokens;
+
+/**
+ * 服务端 Token 存储
+ *
+ * key 为随机生成的会话 ID（oidc.session.cookie-mode=reference 时写入 session Cookie），
+ * 条目在 StoredTokens.expiresAtMillis 之后不再返回，并由 TokenStoreSweeper 定期清理。
+ *
+ * 由 oidc.token-store.type 选择实现：memory（默认）/ file。
+ */
+public interface TokenStore {
+
+    /**
+     * 写入或覆盖一个会话
+     *
+     * @return 存储已满或条目过大无法写入时返回 false
+     */
+    boolean put(String sessionId, StoredTokens tokens);
+
+    /**
+     * @return 不存在或已过期时返回 null
+     */
+    StoredTokens get(String sessionId);
+
+    void remove(String sessionId);
+
+    /**
+     * 清理在 nowMillis 之前过期的条目
+     *
+     * @return 清理的条目数
+     */
+    int sweep(long nowMillis);
+
+    int size();
+}
@@ -0,0 +1,43 @@
+package com.oidc.client.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 定期清理 TokenStore 中已过期的会话
+ */
+@Component
+@Slf4j
+public class TokenStoreSweeper {
+
+    private final TokenStore tokenStore;
+    private final TaskScheduler taskScheduler;
+    private final Duration interval;
+
+    public TokenStoreSweeper(
+            TokenStore tokenStore,
+            TaskScheduler taskScheduler,
+            @Value("${oidc.token-store.sweep-interval:60s}") Duration interval) {
+        this.tokenStore = tokenStore;
+        this.taskScheduler = taskScheduler;
+        this.interval = interval;
+    }
+
+    @PostConstruct
+    void start() {
+        taskScheduler.scheduleWithFixedDelay(this::sweep, Instant.now().plus(interval), interval);
+    }
+
+    void sweep() {
+        int removed = tokenStore.sweep(System.currentTimeMillis());
+        if (removed > 0) {
+            log.debug("Token store swept, {} expired sessions removed, {} remaining", removed, tokenStore.size());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.oidc.client.service;
+
+import com.oidc.client.dto.AuthenticatedPrincipal;
+import com.oidc.client.dto.UserInfo;
+import com.oidc.client.util.SingleFlight;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按 sub 缓存 IdP UserInfo
+ *
+ * - 未过期（cache-ttl 内）直接返回缓存
+ * - 过期但仍在 stale-window 内：返回旧数据，同时后台重新获取
+ * - 同一个 sub 的并发未命中只向 IdP 请求一次
+ * - IdP 不可用时退回旧数据，没有旧数据时只返回 Token 中的信息
+ * - UserInfo 响应的 sub 必须与 Token 的 sub 一致（OIDC Core 5.3.2），不一致的响应不使用也不缓存；
+ *   Token 没有 sub 时无法核对，不请求 IdP，只返回 Token 中的信息
+ */
+@Service
+@Slf4j
+public class UserInfoService {
+
+    private final OidcClientService oidcClientService;
+    private final long ttlMillis;
+    private final long staleMillis;
+    private final int maxSize;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final SingleFlight<String, Map<String, Object>> fetches = new SingleFlight<>(Duration.ZERO);
+
+    public UserInfoService(
+            OidcClientService oidcClientService,
+            @Value("${oidc.userinfo.cache-ttl:5m}") Duration ttl,
+            @Value("${oidc.userinfo.stale-window:30m}") Duration staleWindow,
+            @Value("${oidc.userinfo.max-size:10000}") int maxSize) {
+        this.oidcClientService = oidcClientService;
+        this.ttlMillis = ttl.toMillis();
+        this.staleMillis = ttl.plus(staleWindow).toMillis();
+        this.maxSize = maxSize;
+    }
+
+    public CompletableFuture<UserInfo> getUserInfo(AuthenticatedPrincipal principal, String accessToken) {
+        String sub = principal.getSubject();
+        if (sub == null || sub.isEmpty()) {
+            return CompletableFuture.completedFuture(toUserInfo(principal, Collections.emptyMap()));
+        }
+        Entry entry = entries.get(sub);
+        long age = entry != null ? System.currentTimeMillis() - entry.fetchedAtMillis : Long.MAX_VALUE;
+
+        if (age < ttlMillis) {
+            return CompletableFuture.completedFuture(toUserInfo(principal, entry.claims));
+        }
+        if (age < staleMillis) {
+            // 先返回旧数据，后台重新验证
+            fetch(sub, accessToken);
+            return CompletableFuture.completedFuture(toUserInfo(principal, entry.claims));
+        }
+
+        return fetch(sub, accessToken).thenApply(claims -> {
+            if (claims != null) {
+                return toUserInfo(principal, claims);
+            }
+            return toUserInfo(principal, entry != null ? entry.claims : Collections.emptyMap());
+        });
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private CompletableFuture<Map<String, Object>> fetch(String sub, String accessToken) {
+        return fetches.execute(sub, () -> oidcClientService.fetchUserInfoAsync(accessToken)
+                .mapNotNull(IdpOutcome::getValue)
+                .filter(claims -> subjectMatches(sub, claims))
+                .doOnNext(claims -> put(sub, claims))
+                .toFuture());
+    }
+
+    private static boolean subjectMatches(String sub, Map<String, Object> claims) {
+        if (sub.equals(claims.get("sub"))) {
+            return true;
+        }
+        log.warn("✗ UserInfo response sub {} does not match token sub {}, ignored", claims.get("sub"), sub);
+        return false;
+    }
+
+    private void put(String sub, Map<String, Object> claims) {
+        if (maxSize <= 0) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        entries.put(sub, new Entry(claims, System.currentTimeMillis()));
+    }
+
+    /**
+     * 先清理超过 stale-window 的条目；仍然超限时按迭代顺序淘汰约 10% 的条目
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> now - entry.fetchedAtMillis >= staleMillis);
+
+        int excess = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        Iterator<String> it = entries.keySet().iterator();
+        while (excess-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static UserInfo toUserInfo(AuthenticatedPrincipal principal, Map<String, Object> claims) {
+        return UserInfo.builder()
+                .userId(principal.getUserId())
+                .username(principal.getUsername())
+                .name(stringClaim(claims, "name"))
+                .email(stringClaim(claims, "email"))
+                .clientId(principal.getClientId())
+                .build();
+    }
+
+    private static String stringClaim(Map<String, Object> claims, String name) {
+        Object value = claims.get(name);
+        return value != null ? value.toString() : null;
+    }
+
+    private static final class Entry {
+        private final Map<String, Object> claims;
+        private final long fetchedAtMillis;
+
+        private Entry(Map<String, Object> claims, long fetchedAtMillis) {
+            this.claims = claims;
+            this.fetchedAtMillis = fetchedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.oidc.client.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 认证失败日志聚合
+ *
+ * 大量客户端带着过期 Cookie 访问时，逐条记录会产生大量同步日志 I/O。
+ * 开启聚合（默认）后只按原因计数，每个周期输出一行汇总；单条详情只在 DEBUG 级别输出。
+ */
+@Component
+@Slf4j
+public class AuthFailureLog {
+
+    private final TaskScheduler taskScheduler;
+    private final boolean aggregate;
+    private final Duration interval;
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    public AuthFailureLog(
+            TaskScheduler taskScheduler,
+            @Value("${oidc.logging.auth-failures.aggregate:true}") boolean aggregate,
+            @Value("${oidc.logging.auth-failures.interval:10s}") Duration interval) {
+        this.taskScheduler = taskScheduler;
+        this.aggregate = aggregate;
+        this.interval = interval;
+    }
+
+    @PostConstruct
+    void start() {
+        if (aggregate) {
+            taskScheduler.scheduleAtFixedRate(this::flush, Instant.now().plus(interval), interval);
+        }
+    }
+
+    /**
+     * 记录一次认证失败
+     *
+     * @param reason 失败原因（与指标 tag 一致）
+     * @param detail 详情，聚合模式下只在 DEBUG 级别输出
+     */
+    public void record(String reason, String detail) {
+        if (!aggregate) {
+            log.warn("✗ Authentication failed ({}): {}", reason, detail);
+            return;
+        }
+        counts.computeIfAbsent(reason, r -> new LongAdder()).increment();
+        if (log.isDebugEnabled()) {
+            log.debug("✗ Authentication failed ({}): {}", reason, detail);
+        }
+    }
+
+    void flush() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counts.forEach((reason, count) -> {
+            long n = count.sumThenReset();
+            if (n > 0) {
+                snapshot.put(reason, n);
+            }
+        });
+        if (!snapshot.isEmpty()) {
+            log.warn("✗ Authentication failures in the last {}s: {}", interval.toSeconds(), snapshot);
+        }
+    }
+}
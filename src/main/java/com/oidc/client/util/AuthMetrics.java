@@ -0,0 +1,114 @@
+package com.oidc.client.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 认证相关指标，通过 Actuator 的 /actuator/prometheus 暴露
+ *
+ * 热路径上用到的 Timer / Counter 在启动时注册好，记录时不再查找 Meter。
+ */
+@Component
+public class AuthMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Timer validationSuccess;
+    private final Map<TokenFailureReason, Timer> validationFailures = new EnumMap<>(TokenFailureReason.class);
+    private final Map<TokenFailureReason, Counter> rejectedTokens = new EnumMap<>(TokenFailureReason.class);
+
+    private final Timer filterPublic;
+    private final Timer filterAuthenticated;
+    private final Timer filterRefreshed;
+    private final Timer filterMissingToken;
+    private final Timer filterInvalidToken;
+    private final Timer filterRateLimited;
+    private final Map<RateLimiter.Scope, Counter> rateLimited = new EnumMap<>(RateLimiter.Scope.class);
+
+    public AuthMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        this.validationSuccess = validationTimer("valid");
+        for (TokenFailureReason reason : TokenFailureReason.values()) {
+            validationFailures.put(reason, validationTimer(reason.tag()));
+            rejectedTokens.put(reason, Counter.builder("oidc.token.rejected")
+                    .description("Tokens rejected by JwtTokenValidator")
+                    .tag("reason", reason.tag())
+                    .register(registry));
+        }
+
+        this.filterPublic = filterTimer("public", "none");
+        this.filterAuthenticated = filterTimer("authenticated", "none");
+        this.filterRefreshed = filterTimer("authenticated", "refreshed");
+        this.filterMissingToken = filterTimer("rejected", "missing_token");
+        this.filterInvalidToken = filterTimer("rejected", "invalid_token");
+        this.filterRateLimited = filterTimer("rejected", "rate_limited");
+        for (RateLimiter.Scope scope : RateLimiter.Scope.values()) {
+            rateLimited.put(scope, Counter.builder("oidc.rate_limit.rejected")
+                    .description("Requests rejected by RateLimiter")
+                    .tag("scope", scope.tag())
+                    .register(registry));
+        }
+    }
+
+    public void tokenValidated(long nanos) {
+        validationSuccess.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void tokenRejected(TokenFailureReason reason, long nanos) {
+        validationFailures.get(reason).record(nanos, TimeUnit.NANOSECONDS);
+        rejectedTokens.get(reason).increment();
+    }
+
+    public void filterPublic(long nanos) {
+        filterPublic.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void filterAuthenticated(long nanos, boolean refreshed) {
+        (refreshed ? filterRefreshed : filterAuthenticated).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void filterRejected(long nanos, boolean tokenPresent) {
+        (tokenPresent ? filterInvalidToken : filterMissingToken).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void filterRateLimited(RateLimiter.Scope scope, long nanos) {
+        filterRateLimited.record(nanos, TimeUnit.NANOSECONDS);
+        rateLimited.get(scope).increment();
+    }
+
+    /**
+     * IdP 调用耗时，按操作（authorization_code / refresh_token / userinfo）和 HTTP 状态分组
+     *
+     * @param status HTTP 状态码；没有拿到响应时为 IO_ERROR 等
+     */
+    public void idpCall(String operation, String status, long nanos) {
+        Timer.builder("oidc.idp.requests")
+                .description("Calls to the OIDC provider")
+                .tag("operation", operation)
+                .tag("status", status)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer validationTimer(String outcome) {
+        return Timer.builder("oidc.token.validation")
+                .description("JWT signature verification and claims parsing")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Timer filterTimer(String decision, String reason) {
+        return Timer.builder("oidc.filter.decisions")
+                .description("JwtTokenFilter decisions")
+                .tag("decision", decision)
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
@@ -0,0 +1,26 @@
+package com.oidc.client.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * 按用户生成的 JSON 响应体，由 JsonPayloadHttpMessageConverter 用 JsonGenerator 直接写入响应输出流，
+ * 不经过中间的 Map 和树模型
+ */
+@FunctionalInterface
+public interface JsonPayload {
+
+    void writeTo(JsonGenerator json) throws IOException;
+
+    /**
+     * 一个 JSON 对象，fields 只需要写字段
+     */
+    static JsonPayload object(JsonPayload fields) {
+        return json -> {
+            json.writeStartObject();
+            fields.writeTo(json);
+            json.writeEndObject();
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package com.oidc.client.util;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 写出 JsonPayload：在响应输出流上创建 UTF-8 JsonGenerator，由 payload 逐个字段写入
+ *
+ * 使用应用 ObjectMapper 的 JsonFactory（复用其缓冲区回收和特性配置），只写不读。
+ * 作为 Bean 由 Spring Boot 加入 Spring MVC 的消息转换器列表。
+ */
+@Component
+public class JsonPayloadHttpMessageConverter extends AbstractHttpMessageConverter<JsonPayload> {
+
+    private final JsonFactory jsonFactory;
+
+    public JsonPayloadHttpMessageConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON);
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return JsonPayload.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected JsonPayload readInternal(Class<? extends JsonPayload> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("JsonPayload is write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(JsonPayload payload, HttpOutputMessage outputMessage) throws IOException {
+        try (JsonGenerator json = jsonFactory.createGenerator(outputMessage.getBody(), JsonEncoding.UTF8)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            payload.writeTo(json);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.oidc.client.util;
+
+import com.oidc.client.service.IdpOutcome;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内容固定的 JSON 响应（健康检查、登出、标准认证错误），启动时编码为字节
+ *
+ * 每个常量持有一个只读的 ResponseEntity<byte[]>，由 ByteArrayHttpMessageConverter 原样写出，
+ * 带 application/json 和 Content-Length；Filter 中直接写入输出流，不创建 Writer 和字符串。
+ */
+public final class JsonResponse {
+
+    public static final JsonResponse HEALTH_OK = of(HttpStatus.OK, "{\"status\": \"ok\"}");
+    public static final JsonResponse LOGGED_OUT = of(HttpStatus.OK, "{\"message\": \"Logged out successfully\"}");
+    public static final JsonResponse TOKEN_REQUIRED = of(HttpStatus.UNAUTHORIZED,
+            "{\"error\": \"Unauthorized\", \"message\": \"Missing or invalid token\"}");
+    public static final JsonResponse NOT_AUTHENTICATED = of(HttpStatus.UNAUTHORIZED,
+            "{\"error\": \"unauthorized\", \"message\": \"User not authenticated\"}");
+    public static final JsonResponse MISSING_CODE = of(HttpStatus.BAD_REQUEST,
+            "{\"error\": \"invalid_request\", \"message\": \"Missing authorization code\"}");
+    public static final JsonResponse INVALID_STATE = of(HttpStatus.BAD_REQUEST,
+            "{\"error\": \"invalid_request\", \"message\": \"Invalid or expired state\"}");
+    public static final JsonResponse CODE_EXCHANGE_FAILED = of(HttpStatus.BAD_REQUEST,
+            "{\"error\": \"invalid_grant\", \"message\": \"Failed to exchange authorization code\"}");
+    public static final JsonResponse MISSING_REFRESH_TOKEN = of(HttpStatus.UNAUTHORIZED,
+            "{\"error\": \"unauthorized\", \"message\": \"Missing refresh token\"}");
+    public static final JsonResponse REFRESH_FAILED = of(HttpStatus.UNAUTHORIZED,
+            "{\"error\": \"invalid_grant\", \"message\": \"Failed to refresh token\"}");
+
+    private static final Map<IdpOutcome.Status, JsonResponse> IDP_UNAVAILABLE = new EnumMap<>(IdpOutcome.Status.class);
+
+    /** 下标为 Retry-After 秒数 */
+    private static final JsonResponse[] TOO_MANY_REQUESTS = new JsonResponse[61];
+
+    static {
+        for (int seconds = 1; seconds < TOO_MANY_REQUESTS.length; seconds++) {
+            TOO_MANY_REQUESTS[seconds] = new JsonResponse(HttpStatus.TOO_MANY_REQUESTS,
+                    "{\"error\": \"rate_limited\", \"message\": \"Too many requests\"}", String.valueOf(seconds));
+        }
+
+        for (IdpOutcome.Status status : IdpOutcome.Status.values()) {
+            IDP_UNAVAILABLE.put(status, new JsonResponse(HttpStatus.SERVICE_UNAVAILABLE,
+                    "{\"error\": \"temporarily_unavailable\", \"message\": \"Identity provider unavailable ("
+                            + status + ")\"}", "5"));
+        }
+    }
+
+    private final int status;
+    private final byte[] body;
+    private final String retryAfter;
+    private final ResponseEntity<byte[]> entity;
+
+    private JsonResponse(HttpStatus status, String json, String retryAfter) {
+        this.status = status.value();
+        this.body = json.getBytes(StandardCharsets.UTF_8);
+        this.retryAfter = retryAfter;
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(body.length);
+        if (retryAfter != null) {
+            builder.header("Retry-After", retryAfter);
+        }
+        this.entity = builder.body(body);
+    }
+
+    public static JsonResponse of(HttpStatus status, String json) {
+        return new JsonResponse(status, json, null);
+    }
+
+    /**
+     * IdP 故障（熔断打开、并发已满、超时等）时的 503，带 Retry-After
+     */
+    public static JsonResponse idpUnavailable(IdpOutcome.Status status) {
+        return IDP_UNAVAILABLE.get(status);
+    }
+
+    /**
+     * 超出限流时的 429，Retry-After 向上取整到秒（1 到 60 秒）
+     *
+     * @param retryAfterNanos RateLimiter 返回的等待时间
+     */
+    public static JsonResponse tooManyRequests(long retryAfterNanos) {
+        long seconds = (retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+        return TOO_MANY_REQUESTS[(int) Math.max(1, Math.min(TOO_MANY_REQUESTS.length - 1, seconds))];
+    }
+
+    /**
+     * 供 Controller 返回；实例只读，可以在请求之间共享
+     */
+    public ResponseEntity<byte[]> entity() {
+        return entity;
+    }
+
+    /**
+     * 在 Filter 等 Spring MVC 之外直接写入响应
+     */
+    public void write(HttpServletResponse response) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        if (retryAfter != null) {
+            response.setHeader("Retry-After", retryAfter);
+        }
+        response.getOutputStream().write(body);
+    }
+}
@@ -0,0 +1,158 @@
+package com.oidc.client.util;
+
+import com.oidc.client.service.OidcProviderMetadata;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * IdP 公钥集（JWKS），用于 RS256 / ES256 等非对称签名的验证
+ *
+ * 公钥按 kid 索引在内存中，后台定时刷新；验签时只读内存，不会在请求线程上拉取 JWKS。
+ * 遇到未知 kid 时触发一次后台拉取（受 min-refetch-interval 限流），当前请求按验签失败处理。
+ *
+ * JWKS 地址取自 discovery 元数据的 jwks_uri。公钥集同样保存本地快照：重启时先用快照，
+ * 随机延迟后再带 If-None-Match 重新验证。
+ */
+@Component
+@Slf4j
+public class JwksKeyResolver {
+
+    private final OidcProviderMetadata providerMetadata;
+    private final TaskScheduler taskScheduler;
+    private final boolean enabled;
+    private final SnapshotDocument document;
+    private final Duration refreshInterval;
+    private final long minRefetchIntervalMillis;
+
+    private volatile Map<String, Key> keys = Collections.emptyMap();
+    private final AtomicLong lastFetchMillis = new AtomicLong();
+    private final AtomicBoolean fetching = new AtomicBoolean();
+
+    public JwksKeyResolver(
+            RestTemplate restTemplate,
+            OidcProviderMetadata providerMetadata,
+            TaskScheduler taskScheduler,
+            @Value("${jwt.jwks.enabled:false}") boolean enabled,
+            @Value("${jwt.jwks.refresh-interval:5m}") Duration refreshInterval,
+            @Value("${jwt.jwks.min-refetch-interval:30s}") Duration minRefetchInterval) {
+        this.providerMetadata = providerMetadata;
+        this.taskScheduler = taskScheduler;
+        this.enabled = enabled;
+        this.document = new SnapshotDocument(restTemplate, providerMetadata.snapshot("jwks.json"));
+        this.refreshInterval = refreshInterval;
+        this.minRefetchIntervalMillis = minRefetchInterval.toMillis();
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        if (loadSnapshot()) {
+            taskScheduler.scheduleWithFixedDelay(this::refresh,
+                    Instant.now().plus(providerMetadata.startupDelay()), refreshInterval);
+            return;
+        }
+        // 没有快照时同步拉取一次，之后由后台定时刷新
+        refresh();
+        taskScheduler.scheduleWithFixedDelay(this::refresh, Instant.now().plus(refreshInterval), refreshInterval);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 按 kid 查找公钥，只读内存
+     *
+     * @return 找不到时返回 null，并在后台触发一次限流的重新拉取
+     */
+    public Key getKey(String kid) {
+        Map<String, Key> current = keys;
+        Key key = kid != null ? current.get(kid) : (current.size() == 1 ? current.values().iterator().next() : null);
+        if (key == null && enabled) {
+            requestRefetch(kid);
+        }
+        return key;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    private void requestRefetch(String kid) {
+        long now = System.currentTimeMillis();
+        long last = lastFetchMillis.get();
+        if (now - last < minRefetchIntervalMillis || !lastFetchMillis.compareAndSet(last, now)) {
+            return;
+        }
+        log.info("Unknown JWKS kid {}, scheduling key set refetch", kid);
+        taskScheduler.schedule(this::refresh, Instant.now());
+    }
+
+    void refresh() {
+        if (!fetching.compareAndSet(false, true)) {
+            return;
+        }
+        String jwksUri = providerMetadata.jwksUri();
+        try {
+            lastFetchMillis.set(System.currentTimeMillis());
+            String json = document.fetch(jwksUri, JwksKeyResolver::parse);
+            if (json == null) {
+                log.debug("JWKS not modified");
+                return;
+            }
+            keys = parse(json);
+            log.debug("✓ JWKS refreshed, {} keys loaded", keys.size());
+        } catch (Exception e) {
+            // 拉取失败时继续使用已有公钥
+            log.warn("✗ Failed to refresh JWKS from {}: {}", jwksUri, e.getMessage());
+        } finally {
+            fetching.set(false);
+        }
+    }
+
+    private boolean loadSnapshot() {
+        String json = document.loadSnapshot(providerMetadata.jwksUri());
+        if (json == null) {
+            return false;
+        }
+        try {
+            keys = parse(json);
+            log.info("✓ JWKS loaded from snapshot, {} keys", keys.size());
+            return true;
+        } catch (Exception e) {
+            log.warn("✗ Ignoring invalid JWKS snapshot: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    static Map<String, Key> parse(String json) {
+        JwkSet jwkSet = Jwks.setParser().build().parse(json);
+        Map<String, Key> parsed = new HashMap<>();
+        for (Jwk<?> jwk : jwkSet.getKeys()) {
+            // 只接受公钥，忽略对称密钥和私钥
+            if (jwk instanceof PublicJwk<?> publicJwk) {
+                parsed.put(jwk.getId() != null ? jwk.getId() : "", publicJwk.toKey());
+            }
+        }
+        return Collections.unmodifiableMap(parsed);
+    }
+}
@@ -1,5 +1,6 @@
 package com.oidc.client.util;
 
+import com.oidc.client.dto.AuthenticatedPrincipal;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
@@ -7,64 +8,281 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.Key;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 @Slf4j
 public class JwtTokenValidator {
 
-    @Value("${jwt.secret:this-is-a-very-secret-key-that-should-be-at-least-256-bits-long-for-hs256-algorithm}")
-    private String jwtSecret;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final JwksKeyResolver jwksKeyResolver;
+    private final AuthMetrics authMetrics;
+    private final AuthFailureLog authFailureLog;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    /**
+     * 作为用户名的 claim，默认 sub（与 getUsernameFromToken 原有行为一致）；
+     * 设为其他 claim（如 username）时，Token 缺少该 claim 则退回 sub。
+     * 用户名同时是 USER 维度限流的 key，修改后已有的限流状态不再对应。
+     */
+    private final String usernameClaim;
+
+    /**
+     * 当前生效的签名密钥和解析器，启动时构建一次，只在密钥轮换时整体替换
+     */
+    private final AtomicReference<VerificationEngine> engine = new AtomicReference<>();
+
+    public JwtTokenValidator(
+            VerifiedTokenCache verifiedTokenCache,
+            JwksKeyResolver jwksKeyResolver,
+            AuthMetrics authMetrics,
+            AuthFailureLog authFailureLog,
+            @Value("${jwt.secret:this-is-a-very-secret-key-that-should-be-at-least-256-bits-long-for-hs256-algorithm}") String jwtSecret,
+            @Value("${jwt.secret-file:}") String secretFile,
+            @Value("${jwt.username-claim:sub}") String usernameClaim) {
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.jwksKeyResolver = jwksKeyResolver;
+        this.authMetrics = authMetrics;
+        this.authFailureLog = authFailureLog;
+        this.usernameClaim = usernameClaim;
+        if (secretFile != null && !secretFile.isEmpty()) {
+            // 配置了 jwt.secret-file 时以文件为准，与 /api/admin/jwt/reload 读取的是同一个来源
+            try {
+                jwtSecret = readSecretFile(secretFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read JWT secret file " + secretFile, e);
+            }
+            log.info("✓ JWT signing key loaded from {}", secretFile);
+        }
+        this.engine.set(VerificationEngine.create(jwtSecret, jwksKeyResolver));
+    }
+
+    /**
+     * 读取 jwt.secret-file，去掉首尾空白（挂载的 Secret 通常以换行结尾）
+     */
+    public static String readSecretFile(String secretFile) throws IOException {
+        return Files.readString(Path.of(secretFile), StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * 轮换签名密钥
+     *
+     * 新密钥构建成功后才替换旧的解析器；用旧密钥验证过的缓存结果同时作废。
+     * 只作用于本节点，不经 ClusterReplicator 同步。
+     * 先替换解析器再推进缓存代数：验签前读到新代数的请求一定也读到新解析器。
+     *
+     * @throws io.jsonwebtoken.security.WeakKeyException 密钥长度不足 256 位
+     */
+    public void rotateSecret(String newSecret) {
+        VerificationEngine next = VerificationEngine.create(newSecret, jwksKeyResolver);
+        engine.set(next);
+        verifiedTokenCache.invalidateAll();
+        log.info("✓ JWT signing key rotated");
+    }
+
+    /**
+     * 验证 Token 并返回认证用户
+     *
+     * 同一个 Token 在有效期内只验签一次，之后直接命中缓存。
+     */
+    public AuthenticatedPrincipal authenticate(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String cacheKey = VerifiedTokenCache.digest(token);
+        AuthenticatedPrincipal cached = verifiedTokenCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        int generation = verifiedTokenCache.generation();
+        Claims claims = validateAndGetClaims(token);
+        if (claims == null) {
+            return null;
+        }
+        AuthenticatedPrincipal principal = toPrincipal(claims, cacheKey);
+        verifiedTokenCache.put(cacheKey, principal, generation);
+        return principal;
+    }
+
+    /**
+     * 与 authenticate 相同（共用缓存），失败时同时返回原因，供批量 introspection 使用
+     */
+    public TokenVerification verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return TokenVerification.failed(TokenFailureReason.EMPTY);
+        }
+        String cacheKey = VerifiedTokenCache.digest(token);
+        AuthenticatedPrincipal cached = verifiedTokenCache.get(cacheKey);
+        if (cached != null) {
+            return TokenVerification.verified(cached);
+        }
+
+        int generation = verifiedTokenCache.generation();
+        long start = System.nanoTime();
+        try {
+            Claims claims = parse(token);
+            authMetrics.tokenValidated(System.nanoTime() - start);
+            AuthenticatedPrincipal principal = toPrincipal(claims, cacheKey);
+            verifiedTokenCache.put(cacheKey, principal, generation);
+            return TokenVerification.verified(principal);
+        } catch (JwtException | IllegalArgumentException e) {
+            TokenFailureReason reason = TokenFailureReason.of(e);
+            rejected(reason, e, start);
+            return TokenVerification.failed(reason);
+        }
     }
 
     public Claims validateAndGetClaims(String token) {
+        long start = System.nanoTime();
         try {
-            return Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-        } catch (SecurityException e) {
-            log.error("Invalid JWT signature: {}", e.getMessage());
-        } catch (MalformedJwtException e) {
-            log.error("Invalid JWT token: {}", e.getMessage());
-        } catch (ExpiredJwtException e) {
-            log.error("Expired JWT token: {}", e.getMessage());
-        } catch (UnsupportedJwtException e) {
-            log.error("Unsupported JWT token: {}", e.getMessage());
-        } catch (IllegalArgumentException e) {
-            log.error("JWT claims string is empty: {}", e.getMessage());
+            Claims claims = parse(token);
+            authMetrics.tokenValidated(System.nanoTime() - start);
+            return claims;
+        } catch (JwtException | IllegalArgumentException e) {
+            rejected(TokenFailureReason.of(e), e, start);
         }
         return null;
     }
 
+    private Claims parse(String token) {
+        return engine.get().parser
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    private void rejected(TokenFailureReason reason, Exception e, long start) {
+        authMetrics.tokenRejected(reason, System.nanoTime() - start);
+        authFailureLog.record(reason.tag(), e.getMessage());
+    }
+
     public boolean validateToken(String token) {
-        return validateAndGetClaims(token) != null;
+        return authenticate(token) != null;
     }
 
     public Long getUserIdFromToken(String token) {
-        Claims claims = validateAndGetClaims(token);
-        if (claims == null) {
-            return null;
-        }
-        return Long.parseLong(claims.get("sub").toString());
+        AuthenticatedPrincipal principal = authenticate(token);
+        return principal != null ? principal.getUserId() : null;
     }
 
     public String getUsernameFromToken(String token) {
-        Claims claims = validateAndGetClaims(token);
-        if (claims == null) {
-            return null;
-        }
-        return claims.getSubject();
+        AuthenticatedPrincipal principal = authenticate(token);
+        return principal != null ? principal.getUsername() : null;
     }
 
     public String getClientIdFromToken(String token) {
-        Claims claims = validateAndGetClaims(token);
-        if (claims == null) {
+        AuthenticatedPrincipal principal = authenticate(token);
+        return principal != null ? principal.getClientId() : null;
+    }
+
+    private AuthenticatedPrincipal toPrincipal(Claims claims, String digest) {
+        String subject = claims.getSubject();
+        Object username = claims.get(usernameClaim);
+        Object clientId = claims.get("client_id");
+        Date expiration = claims.getExpiration();
+
+        return AuthenticatedPrincipal.builder()
+                .subject(subject)
+                .tokenId(claims.getId() != null ? claims.getId() : digest)
+                .userId(parseUserId(subject))
+                .username(username != null ? username.toString() : subject)
+                .clientId(clientId != null ? clientId.toString() : null)
+                .expiresAt(expiration != null ? expiration.toInstant() : null)
+                .scopes(parseScopes(claims.get("scope") != null ? claims.get("scope") : claims.get("scp")))
+                .build();
+    }
+
+    private static Long parseUserId(String subject) {
+        if (subject == null) {
             return null;
         }
-        return (String) claims.get("client_id");
+        try {
+            return Long.parseLong(subject);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * scope 可能是空格分隔的字符串（RFC 8693），也可能是数组（scp）
+     */
+    private static Set<String> parseScopes(Object scope) {
+        if (scope instanceof String value) {
+            Set<String> scopes = new LinkedHashSet<>();
+            for (String s : value.split(" ")) {
+                if (!s.isEmpty()) {
+                    scopes.add(s);
+                }
+            }
+            return Collections.unmodifiableSet(scopes);
+        }
+        if (scope instanceof Collection<?> values) {
+            Set<String> scopes = new LinkedHashSet<>();
+            for (Object s : values) {
+                scopes.add(String.valueOf(s));
+            }
+            return Collections.unmodifiableSet(scopes);
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * 不可变的密钥 + 解析器组合，JwtParser 本身线程安全，可被所有请求共享
+     */
+    private static final class VerificationEngine {
+        private final JwtParser parser;
+
+        private VerificationEngine(JwtParser parser) {
+            this.parser = parser;
+        }
+
+        private static VerificationEngine create(String secret, JwksKeyResolver jwksKeyResolver) {
+            SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+            JwtParser parser = Jwts.parser()
+                    .keyLocator(new SigningKeyLocator(key, jwksKeyResolver))
+                    .build();
+            return new VerificationEngine(parser);
+        }
+    }
+
+    /**
+     * 按 alg 选择验签密钥：HS* 使用共享密钥，其余（RS256 / ES256 等）按 kid 查 JWKS
+     *
+     * 密钥类型与 alg 不匹配时 jjwt 会拒绝，避免算法混淆攻击。
+     */
+    private static final class SigningKeyLocator extends LocatorAdapter<Key> {
+        private final SecretKey hmacKey;
+        private final JwksKeyResolver jwksKeyResolver;
+
+        private SigningKeyLocator(SecretKey hmacKey, JwksKeyResolver jwksKeyResolver) {
+            this.hmacKey = hmacKey;
+            this.jwksKeyResolver = jwksKeyResolver;
+        }
+
+        @Override
+        protected Key locate(JwsHeader header) {
+            String alg = header.getAlgorithm();
+            if (alg != null && alg.startsWith("HS")) {
+                return hmacKey;
+            }
+            if (!jwksKeyResolver.isEnabled()) {
+                throw new UnsupportedJwtException("Asymmetric JWT algorithm " + alg + " requires jwt.jwks.enabled");
+            }
+            Key key = jwksKeyResolver.getKey(header.getKeyId());
+            if (key == null) {
+                throw new UnsupportedJwtException("No JWKS key found for kid " + header.getKeyId());
+            }
+            return key;
+        }
     }
 }
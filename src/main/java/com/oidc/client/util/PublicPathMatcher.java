@@ -0,0 +1,118 @@
+package com.oidc.client.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 无需认证的路径判断，安全链（WebConfig）和 JwtTokenFilter 共用
+ *
+ * 启动时把 oidc.public-paths 编译成字符前缀树，判断一次只需遍历一遍路径（O(路径长度)），不缓存结果：
+ * FORWARD / ERROR 等二次分派的路径与首次不同，每次都按当前路径重新判断。
+ *
+ * 匹配的是容器解码并规范化之后的应用内路径（servletPath + pathInfo），而不是原始的 getRequestURI()：
+ * /static/../api/resources/data、/callback;x=1 这类原始 URI 按容器实际分派到的路径判断。
+ *
+ * 支持精确路径（/api/health）和前缀通配（/static/**）。
+ */
+@Component
+public class PublicPathMatcher implements RequestMatcher {
+
+    private final Node root = new Node();
+
+    public PublicPathMatcher(
+            @Value("${oidc.public-paths:/callback,/api/auth/authorize,/api/auth/token,/api/auth/refresh,/api/auth/health,/api/health,/static/**,/actuator/health}")
+            List<String> publicPaths) {
+        for (String path : publicPaths) {
+            add(path.trim());
+        }
+    }
+
+    @Override
+    public boolean matches(HttpServletRequest request) {
+        return matches(applicationPath(request));
+    }
+
+    /**
+     * 请求在应用内的规范化路径（不含 context path、已解码、已去除 . / .. 段和路径参数）；
+     * 没有 pathInfo 时（DispatcherServlet 映射到 /）不分配新字符串
+     */
+    public static String applicationPath(HttpServletRequest request) {
+        String servletPath = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        if (pathInfo == null) {
+            return servletPath;
+        }
+        return servletPath.isEmpty() ? pathInfo : servletPath + pathInfo;
+    }
+
+    public boolean matches(String path) {
+        Node node = root;
+        for (int i = 0; i < path.length(); i++) {
+            if (node.prefix) {
+                return true;
+            }
+            node = node.child(path.charAt(i));
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.terminal || node.prefix;
+    }
+
+    private void add(String pattern) {
+        if (pattern.isEmpty()) {
+            return;
+        }
+        boolean prefix = pattern.endsWith("/**");
+        String path = prefix ? pattern.substring(0, pattern.length() - 2) : pattern;
+
+        Node node = root;
+        for (int i = 0; i < path.length(); i++) {
+            node = node.getOrAddChild(path.charAt(i));
+            // /static/** 同时匹配 /static 本身
+            if (prefix && i == path.length() - 2) {
+                node.terminal = true;
+            }
+        }
+        if (prefix) {
+            node.prefix = true;
+        } else {
+            node.terminal = true;
+        }
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private boolean terminal;
+        private boolean prefix;
+
+        private Node child(char c) {
+            char[] k = keys;
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node getOrAddChild(char c) {
+            Node existing = child(c);
+            if (existing != null) {
+                return existing;
+            }
+            Node created = new Node();
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = c;
+            children[children.length - 1] = created;
+            return created;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.oidc.client.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内限流：按客户端 IP、client_id 和用户名分别限流
+ *
+ * 每个 key 一个 GCRA 令牌桶，只保存一个"理论到达时间"（TAT），放行时对它做一次 CAS，无锁；
+ * 被拒绝的请求不修改 TAT，持续重放的客户端不会把自己的等待时间越推越长，但也拿不到额外配额。
+ * 桶已回满的 key 与新 key 等价，定时清理；key 数达到 max-keys 时，新 key 共用该维度的一个溢出桶，内存有上限。
+ *
+ * 经过 IdP 的公开端点（换 Token、续期）单独按 IP 限流，并随 IdP 延迟自适应：
+ * 每个 adaptive.interval 统计 oidc.idp.requests 的平均耗时，超过 target-latency 时配额减半（不低于 min-factor），
+ * 恢复后逐步加回。
+ *
+ * 默认关闭。限流按 request.getRemoteAddr() 区分客户端，部署在负载均衡之后时所有请求都来自均衡器的地址、
+ * 共用一个桶，因此开启时必须显式设置 server.forward-headers-strategy（在代理之后为 native / framework，
+ * 直接暴露时为 none），否则启动失败。
+ */
+@Component
+@Slf4j
+public class RateLimiter {
+
+    public enum Scope {
+        /** 经过 IdP 的公开端点，按客户端 IP */
+        IDP("idp"),
+        /** 受保护接口，按客户端 IP */
+        IP("ip"),
+        /** 受保护接口，按 Token 中的用户名 */
+        USER("user"),
+        /** 受保护接口，按 Token 中的 client_id */
+        CLIENT("client");
+
+        private final String tag;
+
+        Scope(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private static final double ADDITIVE_STEP = 0.1;
+    private static final long MIN_FORCED_SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final String[] idpPaths;
+    private final Map<Scope, Buckets> buckets = new EnumMap<>(Scope.class);
+    private final int maxKeys;
+    private final MeterRegistry registry;
+    private final TaskScheduler taskScheduler;
+    private final Duration sweepInterval;
+    private final boolean adaptive;
+    private final long targetLatencyNanos;
+    private final double minFactor;
+    private final Duration adaptInterval;
+
+    /** IDP 维度当前的配额系数，1 为满额 */
+    private volatile double idpFactor = 1.0;
+    private long lastIdpCount;
+    private double lastIdpTotalNanos;
+
+    public RateLimiter(
+            MeterRegistry registry,
+            TaskScheduler taskScheduler,
+            @Value("${oidc.rate-limit.enabled:false}") boolean enabled,
+            @Value("${server.forward-headers-strategy:}") String forwardHeadersStrategy,
+            @Value("${oidc.rate-limit.idp-paths:/callback,/api/auth/authorize,/api/auth/token,/api/auth/refresh}") List<String> idpPaths,
+            @Value("${oidc.rate-limit.idp.rate:5}") double idpRate,
+            @Value("${oidc.rate-limit.idp.burst:20}") int idpBurst,
+            @Value("${oidc.rate-limit.ip.rate:100}") double ipRate,
+            @Value("${oidc.rate-limit.ip.burst:200}") int ipBurst,
+            @Value("${oidc.rate-limit.user.rate:20}") double userRate,
+            @Value("${oidc.rate-limit.user.burst:50}") int userBurst,
+            @Value("${oidc.rate-limit.client.rate:1000}") double clientRate,
+            @Value("${oidc.rate-limit.client.burst:2000}") int clientBurst,
+            @Value("${oidc.rate-limit.max-keys:100000}") int maxKeys,
+            @Value("${oidc.rate-limit.idle-sweep-interval:1m}") Duration sweepInterval,
+            @Value("${oidc.rate-limit.adaptive.enabled:true}") boolean adaptive,
+            @Value("${oidc.rate-limit.adaptive.target-latency:500ms}") Duration targetLatency,
+            @Value("${oidc.rate-limit.adaptive.min-factor:0.1}") double minFactor,
+            @Value("${oidc.rate-limit.adaptive.interval:5s}") Duration adaptInterval) {
+        if (enabled && (forwardHeadersStrategy == null || forwardHeadersStrategy.isBlank())) {
+            throw new IllegalStateException("oidc.rate-limit.enabled=true requires server.forward-headers-strategy "
+                    + "(native or framework behind a proxy, none when clients connect directly)");
+        }
+        this.registry = registry;
+        this.taskScheduler = taskScheduler;
+        this.enabled = enabled;
+        this.idpPaths = idpPaths.stream().map(String::trim).filter(p -> !p.isEmpty()).toArray(String[]::new);
+        this.maxKeys = maxKeys;
+        this.sweepInterval = sweepInterval;
+        this.adaptive = adaptive;
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.minFactor = minFactor;
+        this.adaptInterval = adaptInterval;
+
+        buckets.put(Scope.IDP, new Buckets(idpRate, idpBurst));
+        buckets.put(Scope.IP, new Buckets(ipRate, ipBurst));
+        buckets.put(Scope.USER, new Buckets(userRate, userBurst));
+        buckets.put(Scope.CLIENT, new Buckets(clientRate, clientBurst));
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled || taskScheduler == null) {
+            return;
+        }
+        taskScheduler.scheduleWithFixedDelay(this::sweep, sweepInterval);
+        if (adaptive && registry != null) {
+            taskScheduler.scheduleWithFixedDelay(this::adapt, adaptInterval);
+        }
+        log.info("✓ Rate limiting enabled (idp paths: {}, max keys per scope: {})", List.of(idpPaths), maxKeys);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 请求是否访问经过 IdP 的公开端点；与 PublicPathMatcher 一样按规范化的应用内路径比较
+     */
+    public boolean isIdpBound(HttpServletRequest request) {
+        if (!enabled) {
+            return false;
+        }
+        String path = PublicPathMatcher.applicationPath(request);
+        for (String idpPath : idpPaths) {
+            if (idpPath.equals(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 为 key 取一个令牌
+     *
+     * @return 0 表示放行；否则为还需等待的纳秒数
+     */
+    public long acquire(Scope scope, String key) {
+        return acquire(scope, key, 1);
+    }
+
+    /**
+     * 为 key 一次取 permits 个令牌（例如批量请求按条计费），要么全部取得，要么一个都不取
+     *
+     * @return 0 表示放行；否则为还需等待的纳秒数。permits 超过该维度的 burst 时永远不会放行
+     */
+    public long acquire(Scope scope, String key, int permits) {
+        if (!enabled || key == null || permits <= 0) {
+            return 0;
+        }
+        return buckets.get(scope).acquire(key, permits, scope == Scope.IDP ? idpFactor : 1.0, System.nanoTime());
+    }
+
+    public double idpFactor() {
+        return idpFactor;
+    }
+
+    /**
+     * 所有维度当前跟踪的 key 数
+     */
+    public int size() {
+        int size = 0;
+        for (Buckets scopeBuckets : buckets.values()) {
+            size += scopeBuckets.tats.size();
+        }
+        return size;
+    }
+
+    void sweep() {
+        long now = System.nanoTime();
+        int removed = 0;
+        for (Buckets scopeBuckets : buckets.values()) {
+            removed += scopeBuckets.sweep(now);
+        }
+        if (removed > 0 && log.isDebugEnabled()) {
+            log.debug("✓ Evicted {} idle rate limit keys", removed);
+        }
+    }
+
+    /**
+     * 按上一个周期的 IdP 平均耗时调整 IDP 维度的配额：超过目标时减半，否则每周期加回 0.1
+     */
+    void adapt() {
+        long count = 0;
+        double totalNanos = 0;
+        for (Timer timer : registry.find("oidc.idp.requests").timers()) {
+            count += timer.count();
+            totalNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+        long calls = count - lastIdpCount;
+        double meanNanos = calls > 0 ? (totalNanos - lastIdpTotalNanos) / calls : 0;
+        lastIdpCount = count;
+        lastIdpTotalNanos = totalNanos;
+
+        double previous = idpFactor;
+        double next = meanNanos > targetLatencyNanos
+                ? Math.max(minFactor, previous / 2)
+                : Math.min(1.0, previous + ADDITIVE_STEP);
+        if (next == previous) {
+            return;
+        }
+        idpFactor = next;
+        if (next < previous) {
+            log.warn("✗ IdP latency {}ms above target, tightening IdP-bound rate limit to {}%",
+                    TimeUnit.NANOSECONDS.toMillis((long) meanNanos), Math.round(next * 100));
+        } else if (next == 1.0) {
+            log.info("✓ IdP latency back to normal, IdP-bound rate limit restored");
+        }
+    }
+
+    /**
+     * 一个维度的全部令牌桶
+     */
+    private final class Buckets {
+
+        private final long emissionNanos;
+        private final int burst;
+        private final ConcurrentHashMap<String, AtomicLong> tats = new ConcurrentHashMap<>();
+        /** key 数达到上限后，新 key 共用这个桶 */
+        private final AtomicLong overflow = new AtomicLong(System.nanoTime());
+        private final AtomicLong lastForcedSweep = new AtomicLong(System.nanoTime() - MIN_FORCED_SWEEP_INTERVAL_NANOS);
+
+        Buckets(double ratePerSecond, int burst) {
+            this.emissionNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+            this.burst = Math.max(1, burst);
+        }
+
+        long acquire(String key, int permits, double factor, long now) {
+            long interval = (long) (emissionNanos / factor);
+            long capacity = interval * burst;
+            AtomicLong tat = bucket(key, now);
+            while (true) {
+                long current = tat.get();
+                long next = Math.max(current, now) + interval * permits;
+                long excess = next - now - capacity;
+                if (excess > 0) {
+                    return excess;
+                }
+                if (tat.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        private AtomicLong bucket(String key, long now) {
+            AtomicLong tat = tats.get(key);
+            if (tat != null) {
+                return tat;
+            }
+            if (tats.size() >= maxKeys) {
+                // 满了先尝试清理一次（最多每秒一次，避免每个新 key 都全表扫描）
+                long last = lastForcedSweep.get();
+                if (now - last >= MIN_FORCED_SWEEP_INTERVAL_NANOS && lastForcedSweep.compareAndSet(last, now)) {
+                    sweep(now);
+                }
+                if (tats.size() >= maxKeys) {
+                    return overflow;
+                }
+            }
+            return tats.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        /**
+         * TAT 不晚于当前时间说明桶已回满，移除后再访问得到的新桶状态相同。
+         * 与并发的 acquire 竞争时，至多有一个令牌记在了被移除的桶上。
+         */
+        int sweep(long now) {
+            int before = tats.size();
+            tats.values().removeIf(tat -> tat.get() <= now);
+            return before - tats.size();
+        }
+    }
+}
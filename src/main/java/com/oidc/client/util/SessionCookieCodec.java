@@ -0,0 +1,162 @@
+package com.oidc.client.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 紧凑会话 Cookie 的编解码
+ *
+ * 把 Access Token 和 Refresh Token 压缩（Deflate）后用 AES-GCM 加密，编码为一个 base64url 值：
+ * 版本(1 字节) | IV(12 字节) | 密文 + 认证标签。ID Token 服务端用不到，不放进会话。
+ *
+ * 未配置 oidc.session.key 时启动时随机生成密钥，重启后已有会话失效，多实例之间也互相无法解密；
+ * 因此 compact 模式和 file 类型 TokenStore 都要求配置密钥，随机密钥只用于不依赖它的模式。
+ */
+@Component
+@Slf4j
+public class SessionCookieCodec {
+
+    private static final byte VERSION = 1;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final char SEPARATOR = ' ';
+    // 解压后的上限，防止构造的小 Cookie 解压出大量数据
+    private static final int MAX_PLAINTEXT = 16 * 1024;
+
+    private static final ThreadLocal<Cipher> AES_GCM = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES/GCM not available", e);
+        }
+    });
+
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKeySpec key;
+    private final boolean keyConfigured;
+
+    public SessionCookieCodec(@Value("${oidc.session.key:}") String base64Key) {
+        byte[] keyBytes;
+        if (base64Key == null || base64Key.isBlank()) {
+            keyBytes = new byte[32];
+            random.nextBytes(keyBytes);
+            log.debug("No oidc.session.key configured, using a random session key");
+        } else {
+            keyBytes = Base64.getDecoder().decode(base64Key.trim());
+            if (keyBytes.length != 16 && keyBytes.length != 24 && keyBytes.length != 32) {
+                throw new IllegalArgumentException("oidc.session.key must be a base64 encoded 128, 192 or 256 bit key");
+            }
+        }
+        this.key = new SecretKeySpec(keyBytes, "AES");
+        this.keyConfigured = base64Key != null && !base64Key.isBlank();
+    }
+
+    /**
+     * @return 是否配置了 oidc.session.key；为 false 时密钥是本次启动随机生成的，重启后已加密的数据无法解密
+     */
+    public boolean isKeyConfigured() {
+        return keyConfigured;
+    }
+
+    public String encode(Session session) {
+        String plain = session.getRefreshToken() != null
+                ? session.getAccessToken() + SEPARATOR + session.getRefreshToken()
+                : session.getAccessToken();
+        byte[] compressed = deflate(plain.getBytes(StandardCharsets.US_ASCII));
+
+        byte[] iv = new byte[IV_LENGTH];
+        random.nextBytes(iv);
+        try {
+            Cipher cipher = AES_GCM.get();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+            byte[] out = new byte[1 + IV_LENGTH + cipher.getOutputSize(compressed.length)];
+            out[0] = VERSION;
+            System.arraycopy(iv, 0, out, 1, IV_LENGTH);
+            cipher.doFinal(compressed, 0, compressed.length, out, 1 + IV_LENGTH);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(out);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to encrypt session cookie", e);
+        }
+    }
+
+    /**
+     * @return 值被篡改、密钥不符或格式错误时返回 null
+     */
+    public Session decode(String value) {
+        try {
+            byte[] in = Base64.getUrlDecoder().decode(value);
+            if (in.length <= 1 + IV_LENGTH || in[0] != VERSION) {
+                return null;
+            }
+            Cipher cipher = AES_GCM.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, in, 1, IV_LENGTH));
+            byte[] compressed = cipher.doFinal(in, 1 + IV_LENGTH, in.length - 1 - IV_LENGTH);
+            String plain = new String(inflate(compressed), StandardCharsets.US_ASCII);
+
+            int separator = plain.indexOf(SEPARATOR);
+            return separator < 0
+                    ? new Session(plain, null)
+                    : new Session(plain.substring(0, separator), plain.substring(separator + 1));
+        } catch (IllegalArgumentException | GeneralSecurityException | DataFormatException e) {
+            log.debug("Rejected session cookie: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input) throws DataFormatException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 3);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated session cookie");
+                }
+                out.write(buffer, 0, n);
+                if (out.size() > MAX_PLAINTEXT) {
+                    throw new DataFormatException("Session cookie too large");
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @lombok.Value
+    public static class Session {
+        String accessToken;
+        String refreshToken;
+    }
+}
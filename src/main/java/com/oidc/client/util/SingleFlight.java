@@ -0,0 +1,107 @@
+package com.oidc.client.util;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * 同一个 key 的并发调用合并为一次
+ *
+ * 进行中的调用被所有并发请求共享；成功的结果在 retainFor 时间内继续复用，
+ * 用于吸收紧随其后的重复请求。失败、空结果或不满足 retainIf 的结果不保留。
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final long retainNanos;
+    private final Predicate<V> retainIf;
+
+    public SingleFlight(Duration retainFor) {
+        this(retainFor, value -> true);
+    }
+
+    public SingleFlight(Duration retainFor, Predicate<V> retainIf) {
+        this.retainNanos = retainFor.toNanos();
+        this.retainIf = retainIf;
+    }
+
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        long now = System.nanoTime();
+        Flight<V> flight = flights.get(key);
+        if (flight != null && flight.isReusable(now, retainNanos)) {
+            return flight.future;
+        }
+
+        Flight<V> created = new Flight<>();
+        flight = flights.compute(key, (k, existing) ->
+                existing != null && existing.isReusable(now, retainNanos) ? existing : created);
+        if (flight != created) {
+            return flight.future;
+        }
+
+        start(key, created, call);
+        purgeExpired(now);
+        return created.future;
+    }
+
+    /**
+     * 放入一个在别处（例如其他节点）得到的结果，在 retainFor 内供 execute 复用；
+     * 该 key 已有进行中的调用时不覆盖
+     */
+    public void offer(K key, V value) {
+        if (value == null || retainNanos <= 0 || !retainIf.test(value)) {
+            return;
+        }
+        Flight<V> offered = new Flight<>();
+        offered.completedAt = System.nanoTime();
+        offered.future.complete(value);
+        flights.compute(key, (k, existing) -> existing != null && !existing.future.isDone() ? existing : offered);
+    }
+
+    public int size() {
+        return flights.size();
+    }
+
+    private void start(K key, Flight<V> flight, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, error) -> {
+            if (error != null || value == null || retainNanos <= 0 || !retainIf.test(value)) {
+                flights.remove(key, flight);
+            } else {
+                flight.completedAt = System.nanoTime();
+            }
+            if (error != null) {
+                flight.future.completeExceptionally(error);
+            } else {
+                flight.future.complete(value);
+            }
+        });
+    }
+
+    private void purgeExpired(long now) {
+        if (flights.size() < 64) {
+            return;
+        }
+        flights.values().removeIf(f -> f.future.isDone() && now - f.completedAt > retainNanos);
+    }
+
+    private static final class Flight<V> {
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private volatile long completedAt;
+
+        private boolean isReusable(long now, long retainNanos) {
+            if (!future.isDone()) {
+                return true;
+            }
+            return !future.isCompletedExceptionally() && now - completedAt <= retainNanos;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.oidc.client.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 从 IdP 拉取的 JSON 文档（discovery 元数据、JWKS）及其本地快照
+ *
+ * 快照保存为 文件 + 同名 .etag 文件 + 同名 .source 文件（文档的来源 URL），先写临时文件再原子替换，
+ * 进程中途退出不会留下半个文件。来源 URL 与当前配置不同的快照（例如换了 IdP）不会被使用。
+ * 重新拉取时带 If-None-Match，IdP 返回 304 时不传输、不解析文档。
+ *
+ * snapshot 为 null 时只做条件请求，不落盘。
+ */
+@Slf4j
+public class SnapshotDocument {
+
+    private final RestTemplate restTemplate;
+    private final Path snapshot;
+    private final Path etagFile;
+    private final Path sourceFile;
+    private volatile String etag;
+
+    public SnapshotDocument(RestTemplate restTemplate, Path snapshot) {
+        this.restTemplate = restTemplate;
+        this.snapshot = snapshot;
+        this.etagFile = snapshot != null ? snapshot.resolveSibling(snapshot.getFileName() + ".etag") : null;
+        this.sourceFile = snapshot != null ? snapshot.resolveSibling(snapshot.getFileName() + ".source") : null;
+    }
+
+    /**
+     * 读取本地快照
+     *
+     * @param expectedSource 当前配置下文档的 URL，快照必须是从这个 URL 拉取的
+     * @return 快照内容；没有快照、来源不符或读取失败时返回 null
+     */
+    public String loadSnapshot(String expectedSource) {
+        if (snapshot == null || !Files.isRegularFile(snapshot)) {
+            return null;
+        }
+        try {
+            String source = Files.isRegularFile(sourceFile) ? Files.readString(sourceFile, StandardCharsets.UTF_8).trim() : null;
+            if (!expectedSource.equals(source)) {
+                log.info("Ignoring snapshot {} fetched from {}, expected {}", snapshot, source, expectedSource);
+                return null;
+            }
+            String body = Files.readString(snapshot, StandardCharsets.UTF_8);
+            etag = Files.isRegularFile(etagFile) ? Files.readString(etagFile, StandardCharsets.UTF_8).trim() : null;
+            return body;
+        } catch (IOException e) {
+            log.warn("✗ Failed to read snapshot {}: {}", snapshot, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 条件请求拉取文档，有变化时更新快照
+     *
+     * @param validator 调用方校验新文档（解析失败时抛出异常），校验通过后才写快照和 ETag
+     * @return 新文档内容；未变化（304）时返回 null
+     */
+    public String fetch(String url, DocumentValidator validator) {
+        HttpHeaders headers = new HttpHeaders();
+        String current = etag;
+        if (current != null && !current.isEmpty()) {
+            headers.setIfNoneMatch(current);
+        }
+        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+            return null;
+        }
+        String body = response.getBody();
+        if (body == null || body.isEmpty()) {
+            throw new IllegalStateException("Empty response from " + url);
+        }
+        validator.validate(body);
+        etag = response.getHeaders().getETag();
+        save(url, body, etag);
+        return body;
+    }
+
+    private void save(String url, String body, String newEtag) {
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(snapshot.toAbsolutePath().getParent());
+            replace(snapshot, body);
+            replace(sourceFile, url);
+            if (newEtag != null) {
+                replace(etagFile, newEtag);
+            } else {
+                Files.deleteIfExists(etagFile);
+            }
+        } catch (IOException e) {
+            // 快照只用于加快下次启动，写入失败不影响当前进程
+            log.warn("✗ Failed to write snapshot {}: {}", snapshot, e.getMessage());
+        }
+    }
+
+    private static void replace(Path target, String content) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.writeString(tmp, content, StandardCharsets.UTF_8);
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @FunctionalInterface
+    public interface DocumentValidator {
+        void validate(String body);
+    }
+}
@@ -0,0 +1,307 @@
+package com.oidc.client.util;
+
+import com.oidc.client.dto.StoredTokens;
+import com.oidc.client.dto.TokenResponse;
+import com.oidc.client.service.AuthStateEvent;
+import com.oidc.client.service.TokenStore;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Enumeration;
+import java.util.Locale;
+
+/**
+ * 认证相关 Cookie 的读写
+ *
+ * oidc.session.cookie-mode:
+ *   split     - access_token / id_token / refresh_token 分别写入 Cookie（默认）
+ *   compact   - Access Token 和 Refresh Token 加密压缩后写入一个 session Cookie，不下发 ID Token，
+ *               每个请求携带的 Cookie 字节数明显减少；需要配置 oidc.session.key，否则启动失败
+ *   reference - Token 保存在服务端 TokenStore，session Cookie 只是一个随机会话 ID
+ *
+ * 各模式下 username Cookie 都保留（前端需要显示）；compact / reference 模式读取时仍兼容 split 模式的旧 Cookie。
+ */
+@Component
+@Slf4j
+public class TokenCookies {
+
+    public static final String ACCESS_TOKEN = "access_token";
+    public static final String ID_TOKEN = "id_token";
+    public static final String REFRESH_TOKEN = "refresh_token";
+    public static final String USERNAME = "username";
+    public static final String SESSION = "session";
+    /** /api/auth/authorize 下发的浏览器随机数，回调时与 state 一起校验 */
+    public static final String LOGIN_BINDING = "oidc_login";
+
+    private static final long DEFAULT_EXPIRES_IN = 3600;
+    // 浏览器单个 Cookie 约 4KB 上限，超出时退回 split 模式
+    private static final int MAX_COOKIE_VALUE = 3800;
+    private static final String SESSION_ATTRIBUTE = TokenCookies.class.getName() + ".SESSION";
+
+    private final SessionCookieCodec sessionCookieCodec;
+    private final TokenStore tokenStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Mode mode;
+    private final int refreshTokenMaxAge;
+    private final SecureRandom random = new SecureRandom();
+
+    public TokenCookies(
+            SessionCookieCodec sessionCookieCodec,
+            TokenStore tokenStore,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${oidc.session.cookie-mode:split}") String cookieMode,
+            @Value("${oidc.refresh.cookie-max-age:7d}") Duration refreshTokenMaxAge) {
+        this.sessionCookieCodec = sessionCookieCodec;
+        this.tokenStore = tokenStore;
+        this.eventPublisher = eventPublisher;
+        this.mode = Mode.valueOf(cookieMode.trim().toUpperCase(Locale.ROOT));
+        if (mode == Mode.COMPACT && !sessionCookieCodec.isKeyConfigured()) {
+            // 随机密钥下每次重启、以及多实例之间，已下发的 session Cookie 都无法解密
+            throw new IllegalStateException("oidc.session.cookie-mode=compact requires oidc.session.key");
+        }
+        this.refreshTokenMaxAge = (int) refreshTokenMaxAge.toSeconds();
+    }
+
+    /**
+     * 写入刷新后的 Token Cookie，有效期跟随 expires_in；reference 模式沿用请求中的会话 ID
+     *
+     * @param request 当前请求，IdP 未轮换 Refresh Token 时从中取回原 Refresh Token（compact / reference 模式需要）
+     */
+    public void write(HttpServletRequest request, HttpServletResponse response, TokenResponse tokenResponse) {
+        write(request, response, tokenResponse, false);
+    }
+
+    /**
+     * 写入登录后的 Token Cookie
+     *
+     * 与 write 不同，不沿用请求带来的任何会话状态：reference 模式总是生成新的会话 ID 并删除旧会话，
+     * 防止攻击者预先种下的 session Cookie 在受害者登录后指向受害者的 Token（会话固定）。
+     */
+    public void writeLogin(HttpServletRequest request, HttpServletResponse response, TokenResponse tokenResponse) {
+        if (mode == Mode.REFERENCE && request != null) {
+            String previous = read(request, SESSION);
+            if (previous != null && !previous.isEmpty() && tokenStore.get(previous) != null) {
+                tokenStore.remove(previous);
+                eventPublisher.publishEvent(AuthStateEvent.sessionRemoved(previous));
+            }
+        }
+        write(request, response, tokenResponse, true);
+    }
+
+    private void write(HttpServletRequest request, HttpServletResponse response, TokenResponse tokenResponse,
+                       boolean login) {
+        int maxAge = (int) (tokenResponse.getExpiresIn() != null ? tokenResponse.getExpiresIn() : DEFAULT_EXPIRES_IN);
+
+        if (mode == Mode.SPLIT || !writeSession(request, response, tokenResponse, maxAge, login)) {
+            writeSplit(response, tokenResponse, maxAge);
+        }
+
+        // 用户名为普通 Cookie（前端需要显示）
+        if (tokenResponse.getUsername() != null) {
+            response.addCookie(cookie(USERNAME, tokenResponse.getUsername(), false, maxAge));
+        }
+    }
+
+    public void clear(HttpServletRequest request, HttpServletResponse response) {
+        if (mode == Mode.REFERENCE) {
+            String sessionId = read(request, SESSION);
+            if (sessionId != null) {
+                tokenStore.remove(sessionId);
+                eventPublisher.publishEvent(AuthStateEvent.sessionRemoved(sessionId));
+            }
+        }
+        response.addCookie(cookie(ACCESS_TOKEN, null, true, 0));
+        response.addCookie(cookie(ID_TOKEN, null, true, 0));
+        response.addCookie(cookie(REFRESH_TOKEN, null, true, 0));
+        response.addCookie(cookie(USERNAME, null, false, 0));
+        if (mode != Mode.SPLIT) {
+            response.addCookie(cookie(SESSION, null, true, 0));
+        }
+    }
+
+    /**
+     * 写入登录绑定 Cookie：HttpOnly、SameSite=Lax（IdP 重定向回 /callback 是顶层 GET 导航，仍会携带）
+     */
+    public static void writeLoginBinding(HttpServletResponse response, String browserNonce, Duration maxAge) {
+        Cookie cookie = cookie(LOGIN_BINDING, browserNonce, true, (int) maxAge.toSeconds());
+        cookie.setAttribute("SameSite", "Lax");
+        response.addCookie(cookie);
+    }
+
+    public static void clearLoginBinding(HttpServletResponse response) {
+        response.addCookie(cookie(LOGIN_BINDING, null, true, 0));
+    }
+
+    public String accessToken(HttpServletRequest request) {
+        SessionCookieCodec.Session session = session(request);
+        return session != null ? session.getAccessToken() : read(request, ACCESS_TOKEN);
+    }
+
+    public String refreshToken(HttpServletRequest request) {
+        SessionCookieCodec.Session session = session(request);
+        return session != null ? session.getRefreshToken() : read(request, REFRESH_TOKEN);
+    }
+
+    /**
+     * 直接扫描 Cookie 请求头查找指定 Cookie，不触发容器解析全部 Cookie 为 Cookie 对象
+     */
+    public static String read(HttpServletRequest request, String name) {
+        Enumeration<String> headers = request.getHeaders("Cookie");
+        if (headers == null) {
+            return null;
+        }
+        while (headers.hasMoreElements()) {
+            String value = find(headers.nextElement(), name);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    static String find(String header, String name) {
+        int length = header.length();
+        int i = 0;
+        while (i < length) {
+            // 跳过分隔符和空白
+            while (i < length && (header.charAt(i) == ' ' || header.charAt(i) == ';')) {
+                i++;
+            }
+            int end = header.indexOf(';', i);
+            if (end < 0) {
+                end = length;
+            }
+            if (header.startsWith(name, i) && i + name.length() < end && header.charAt(i + name.length()) == '=') {
+                String value = header.substring(i + name.length() + 1, end).trim();
+                if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+            i = end + 1;
+        }
+        return null;
+    }
+
+    private SessionCookieCodec.Session session(HttpServletRequest request) {
+        if (mode == Mode.SPLIT) {
+            return null;
+        }
+        Object cached = request.getAttribute(SESSION_ATTRIBUTE);
+        if (cached != null) {
+            return (SessionCookieCodec.Session) cached;
+        }
+        String value = read(request, SESSION);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        SessionCookieCodec.Session session;
+        if (mode == Mode.COMPACT) {
+            session = sessionCookieCodec.decode(value);
+        } else {
+            StoredTokens stored = tokenStore.get(value);
+            session = stored != null ? new SessionCookieCodec.Session(stored.getAccessToken(), stored.getRefreshToken()) : null;
+        }
+        if (session != null) {
+            request.setAttribute(SESSION_ATTRIBUTE, session);
+        }
+        return session;
+    }
+
+    private boolean writeSession(HttpServletRequest request, HttpServletResponse response,
+                                 TokenResponse tokenResponse, int maxAge, boolean login) {
+        String refreshToken = tokenResponse.getRefreshToken();
+        if ((refreshToken == null || refreshToken.isEmpty()) && request != null && !login) {
+            refreshToken = refreshToken(request);
+        }
+        SessionCookieCodec.Session session = new SessionCookieCodec.Session(
+                tokenResponse.getAccessToken(), refreshToken != null && !refreshToken.isEmpty() ? refreshToken : null);
+        // 会话含 Refresh Token 时有效期跟随 Refresh Token，否则跟随 expires_in
+        int sessionMaxAge = session.getRefreshToken() != null ? refreshTokenMaxAge : maxAge;
+
+        String value;
+        if (mode == Mode.COMPACT) {
+            value = sessionCookieCodec.encode(session);
+            if (value.length() > MAX_COOKIE_VALUE) {
+                log.warn("✗ Session cookie of {} bytes exceeds limit, falling back to split cookies", value.length());
+                return false;
+            }
+        } else {
+            value = storeSession(login ? null : request, session, tokenResponse.getUsername(), maxAge, sessionMaxAge);
+            if (value == null) {
+                return false;
+            }
+        }
+
+        response.addCookie(cookie(SESSION, value, true, sessionMaxAge));
+        if (request != null) {
+            request.setAttribute(SESSION_ATTRIBUTE, session);
+        }
+        return true;
+    }
+
+    /**
+     * 写入 TokenStore，刷新时沿用请求中已有的会话 ID；request 为 null（登录）时生成新 ID
+     *
+     * @return 会话 ID；存储拒绝写入时返回 null
+     */
+    private String storeSession(HttpServletRequest request, SessionCookieCodec.Session session,
+                                String username, int maxAge, int sessionMaxAge) {
+        String sessionId = request != null ? read(request, SESSION) : null;
+        if (sessionId == null || sessionId.isEmpty() || tokenStore.get(sessionId) == null) {
+            byte[] id = new byte[32];
+            random.nextBytes(id);
+            sessionId = Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+        }
+        long now = System.currentTimeMillis();
+        StoredTokens stored = StoredTokens.builder()
+                .accessToken(session.getAccessToken())
+                .refreshToken(session.getRefreshToken())
+                .username(username)
+                .accessExpiresAtMillis(now + maxAge * 1000L)
+                .expiresAtMillis(now + sessionMaxAge * 1000L)
+                .build();
+        if (!tokenStore.put(sessionId, stored)) {
+            log.warn("✗ Token store rejected session, falling back to split cookies");
+            return null;
+        }
+        eventPublisher.publishEvent(AuthStateEvent.sessionStored(sessionId, stored));
+        return sessionId;
+    }
+
+    private void writeSplit(HttpServletResponse response, TokenResponse tokenResponse, int maxAge) {
+        // Access Token 为 HttpOnly Cookie（防 XSS 攻击）
+        response.addCookie(cookie(ACCESS_TOKEN, tokenResponse.getAccessToken(), true, maxAge));
+
+        // ID Token（如果存在）
+        if (tokenResponse.getIdToken() != null && !tokenResponse.getIdToken().isEmpty()) {
+            response.addCookie(cookie(ID_TOKEN, tokenResponse.getIdToken(), true, maxAge));
+        }
+
+        // Refresh Token 比 Access Token 活得久，Access Token 过期后由它续期；IdP 未轮换时保留原 Cookie
+        if (tokenResponse.getRefreshToken() != null && !tokenResponse.getRefreshToken().isEmpty()) {
+            response.addCookie(cookie(REFRESH_TOKEN, tokenResponse.getRefreshToken(), true, refreshTokenMaxAge));
+        }
+    }
+
+    private enum Mode {
+        SPLIT, COMPACT, REFERENCE
+    }
+
+    private static Cookie cookie(String name, String value, boolean httpOnly, int maxAge) {
+        Cookie cookie = new Cookie(name, value);
+        cookie.setHttpOnly(httpOnly);
+        cookie.setSecure(false);    // 开发环境用 false，生产环境改为 true（需要 HTTPS）
+        cookie.setPath("/");
+        cookie.setMaxAge(maxAge);
+        return cookie;
+    }
+}
@@ -0,0 +1,54 @@
+package com.oidc.client.util;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SecurityException;
+
+/**
+ * Token 验证失败原因，对应 JwtTokenValidator 中的异常分支
+ */
+public enum TokenFailureReason {
+    EXPIRED("expired"),
+    MALFORMED("malformed"),
+    BAD_SIGNATURE("bad_signature"),
+    UNSUPPORTED("unsupported"),
+    EMPTY("empty"),
+    INVALID("invalid");
+
+    private final String tag;
+
+    TokenFailureReason(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * 按验证时抛出的异常归类
+     */
+    public static TokenFailureReason of(RuntimeException e) {
+        if (e instanceof ExpiredJwtException) {
+            return EXPIRED;
+        }
+        if (e instanceof SecurityException) {
+            return BAD_SIGNATURE;
+        }
+        if (e instanceof MalformedJwtException) {
+            return MALFORMED;
+        }
+        if (e instanceof UnsupportedJwtException) {
+            return UNSUPPORTED;
+        }
+        if (e instanceof IllegalArgumentException) {
+            return EMPTY;
+        }
+        // 其余 JwtException，如 nbf 未到（PrematureJwtException）
+        return INVALID;
+    }
+
+    /**
+     * 指标 tag / 日志中使用的名称
+     */
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,22 @@
+package com.oidc.client.util;
+
+import com.oidc.client.dto.AuthenticatedPrincipal;
+import lombok.Value;
+
+/**
+ * 单个 Token 的验证结果：成功时 principal 非空，失败时 failure 为原因
+ */
+@Value
+public class TokenVerification {
+    AuthenticatedPrincipal principal;
+
+    TokenFailureReason failure;
+
+    public static TokenVerification verified(AuthenticatedPrincipal principal) {
+        return new TokenVerification(principal, null);
+    }
+
+    public static TokenVerification failed(TokenFailureReason failure) {
+        return new TokenVerification(null, failure);
+    }
+}
@@ -0,0 +1,124 @@
+package com.oidc.client.util;
+
+import com.oidc.client.dto.AuthenticatedPrincipal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 已验签 Token 的认证结果缓存
+ *
+ * 以 Token 的 SHA-256 摘要为 key，条目在 Token 的 exp 时刻失效；
+ * 读路径只有一次 ConcurrentHashMap 查找，不加锁。
+ *
+ * 每个条目记录写入方验签前读到的代数（generation），invalidateAll 使代数加一，
+ * 与轮换并发、仍用旧密钥验签的结果即使在清空之后才写入，也不会再被读到。
+ */
+@Component
+@Slf4j
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final int maxSize;
+
+    public VerifiedTokenCache(@Value("${jwt.cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 计算 Token 摘要，避免把完整 Token 作为 key 常驻内存
+     */
+    public static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    public AuthenticatedPrincipal get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.generation != generation.get() || System.currentTimeMillis() >= entry.expiresAtMillis) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.principal;
+    }
+
+    /**
+     * 当前代数，须在读取验签密钥之前获取，再传给 put
+     */
+    public int generation() {
+        return generation.get();
+    }
+
+    public void put(String key, AuthenticatedPrincipal principal, int generation) {
+        if (generation != this.generation.get()) {
+            // 验签期间发生了轮换
+            return;
+        }
+        if (principal.getExpiresAt() == null || maxSize <= 0) {
+            // 没有 exp 的 Token 无法确定失效时间，不缓存
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        entries.put(key, new Entry(principal, principal.getExpiresAt().toEpochMilli(), generation));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 先清理已过期条目；仍然超限时按迭代顺序淘汰约 10% 的条目
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> now >= entry.expiresAtMillis);
+
+        int excess = entries.size() - maxSize + Math.max(1, maxSize / 10);
+        Iterator<String> it = entries.keySet().iterator();
+        while (excess-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        log.debug("Verified token cache evicted, size now {}", entries.size());
+    }
+
+    private static final class Entry {
+        private final AuthenticatedPrincipal principal;
+        private final long expiresAtMillis;
+        private final int generation;
+
+        private Entry(AuthenticatedPrincipal principal, long expiresAtMillis, int generation) {
+            this.principal = principal;
+            this.expiresAtMillis = expiresAtMillis;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.oidc.client;
+
+import com.oidc.client.service.IdpResilience;
+import com.oidc.client.service.OidcClientService;
+import com.oidc.client.service.OidcProviderMetadata;
+import com.oidc.client.service.RevocationService;
+import com.oidc.client.util.AuthFailureLog;
+import com.oidc.client.util.AuthMetrics;
+import com.oidc.client.util.JwksKeyResolver;
+import com.oidc.client.util.JwtTokenValidator;
+import com.oidc.client.util.VerifiedTokenCache;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 测试共用的组件装配，不启动 Spring 上下文；参数与 application.yml 默认配置一致
+ */
+public final class TestFixtures {
+
+    public static final String SECRET = "this-is-a-very-secret-key-that-should-be-at-least-256-bits-long-for-hs256-algorithm";
+
+    private TestFixtures() {
+    }
+
+    public static String token(String subject, long ttlMillis) {
+        return token(subject, ttlMillis, "openid profile email");
+    }
+
+    public static String token(String subject, long ttlMillis, String scope) {
+        return token(subject, ttlMillis, scope, "my-app");
+    }
+
+    public static String token(String subject, long ttlMillis, String scope, String clientId) {
+        return Jwts.builder()
+                .subject(subject)
+                .id(subject + "-" + System.nanoTime())
+                .claim("client_id", clientId)
+                .claim("scope", scope)
+                .expiration(new Date(System.currentTimeMillis() + ttlMillis))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+
+    public static AuthMetrics metrics() {
+        return new AuthMetrics(new SimpleMeterRegistry());
+    }
+
+    public static JwtTokenValidator validator(String serverUrl) {
+        RestTemplate restTemplate = new RestTemplate();
+        JwksKeyResolver jwks = new JwksKeyResolver(restTemplate, providerMetadata(restTemplate, serverUrl), null,
+                false, Duration.ofMinutes(5), Duration.ofSeconds(30));
+        return new JwtTokenValidator(new VerifiedTokenCache(1000), jwks, metrics(),
+                new AuthFailureLog(null, false, Duration.ofSeconds(10)), SECRET, "", "sub");
+    }
+
+    /**
+     * 不做 discovery、不落盘，直接使用 serverUrl 下的默认端点
+     */
+    public static OidcProviderMetadata providerMetadata(RestTemplate restTemplate, String serverUrl) {
+        return new OidcProviderMetadata(restTemplate, null, serverUrl, "/oidc/authorize", "/oidc/token",
+                "/oidc/userinfo", "/oidc/jwks", false, "", Duration.ofHours(1), Duration.ZERO);
+    }
+
+    public static RevocationService revocationService(ApplicationEventPublisher eventPublisher) {
+        return new RevocationService(null, eventPublisher, 10_000, 0.01, Duration.ofSeconds(60), Duration.ofDays(7));
+    }
+
+    /**
+     * 熔断窗口 windowSize 次调用（至少 windowSize / 2 次后开始计算失败率），重试退避 10ms，不对冲
+     */
+    public static IdpResilience resilience(int windowSize, int maxAttempts, Duration openDuration) {
+        return new IdpResilience(Duration.ofSeconds(2), 50f, Duration.ofSeconds(2), windowSize, openDuration,
+                64, Duration.ZERO, maxAttempts, Duration.ofMillis(10), false, Duration.ofMillis(50));
+    }
+
+    public static OidcClientService oidcClientService(String serverUrl, IdpResilience resilience,
+                                                      ApplicationEventPublisher eventPublisher) {
+        RestTemplate restTemplate = new RestTemplate();
+        return new OidcClientService(validator(serverUrl), metrics(), revocationService(event -> { }), resilience,
+                providerMetadata(restTemplate, serverUrl), eventPublisher, restTemplate, WebClient.create(),
+                new DefaultListableBeanFactory().getBeanProvider(AsyncTaskExecutor.class),
+                "my-app", "secret123", "http://localhost:8081/callback", "openid profile email",
+                Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(5));
+    }
+
+    /**
+     * 轮询等待后台线程（UDP 接收、定时任务）完成，最多 5 秒
+     */
+    public static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,50 @@
+package com.oidc.client.config;
+
+import com.oidc.client.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Actuator 只公开 health，指标端点需要带 SCOPE_metrics 的 Token
+ */
+@SpringBootTest(properties = {
+        "oidc.discovery.enabled=false",
+        "oidc.discovery.snapshot-dir="
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class ActuatorSecurityTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void healthIsPublic() throws Exception {
+        mockMvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    @Test
+    void prometheusRequiresAToken() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/metrics")).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void prometheusRequiresTheMetricsScope() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + TestFixtures.token("alice", 60_000)))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/prometheus")
+                        .header(HttpHeaders.AUTHORIZATION,
+                                "Bearer " + TestFixtures.token("scraper", 60_000, "openid metrics")))
+                .andExpect(status().isOk());
+    }
+}
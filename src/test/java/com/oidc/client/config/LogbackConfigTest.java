@@ -0,0 +1,65 @@
+package com.oidc.client.config;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.status.Status;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * logback-spring.xml：默认只有异步控制台输出；Spring Boot 导出 LOG_FILE（设置了 logging.file.*）时才加上异步文件输出
+ */
+class LogbackConfigTest {
+
+    @TempDir
+    Path dir;
+
+    private final LoggerContext context = new LoggerContext();
+
+    @AfterEach
+    void stop() {
+        context.stop();
+        System.clearProperty("LOG_FILE");
+    }
+
+    @Test
+    void withoutALogFileOnlyTheConsoleIsConfigured() throws Exception {
+        configure();
+
+        assertThat(rootAppenders()).containsExactly("ASYNC_CONSOLE");
+        assertThat(context.getStatusManager().getCopyOfStatusList())
+                .noneMatch(status -> status.getLevel() >= Status.WARN);
+    }
+
+    @Test
+    void logFileAddsAnAsyncFileAppenderToTheRootLogger() throws Exception {
+        Path file = dir.resolve("app.log");
+        System.setProperty("LOG_FILE", file.toString());
+
+        configure();
+
+        assertThat(rootAppenders()).containsExactly("ASYNC_CONSOLE", "ASYNC_FILE");
+        assertThat(file).exists();
+    }
+
+    private void configure() throws Exception {
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(context);
+        configurator.doConfigure(getClass().getClassLoader().getResource("logback-spring.xml"));
+    }
+
+    private List<String> rootAppenders() {
+        List<String> names = new ArrayList<>();
+        context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).iteratorForAppenders()
+                .forEachRemaining((Appender<?> appender) -> names.add(appender.getName()));
+        return names;
+    }
+}
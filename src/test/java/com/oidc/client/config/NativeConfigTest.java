@@ -0,0 +1,52 @@
+package com.oidc.client.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * native image 的提示指向真实存在的类：jjwt 升级后改名的实现类在这里失败，而不是到 native 运行时才失败
+ */
+class NativeConfigTest {
+
+    @Test
+    void jjwtImplementationsExistAndAreRegisteredForReflection() throws Exception {
+        RuntimeHints hints = new RuntimeHints();
+        new NativeConfig.JjwtRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        for (String type : NativeConfig.JjwtRuntimeHints.IMPLEMENTATIONS) {
+            Class<?> implementation = Class.forName(type);
+            assertThat(RuntimeHintsPredicates.reflection().onType(implementation)
+                    .withMemberCategories(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                            MemberCategory.INVOKE_PUBLIC_METHODS))
+                    .as(type).accepts(hints);
+        }
+    }
+
+    @Test
+    void jjwtServiceLoaderFilesAreIncluded() {
+        RuntimeHints hints = new RuntimeHints();
+        new NativeConfig.JjwtRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertThat(RuntimeHintsPredicates.resource().forResource("META-INF/services/io.jsonwebtoken.io.Serializer"))
+                .accepts(hints);
+        assertThat(RuntimeHintsPredicates.resource().forResource("META-INF/services/io.jsonwebtoken.io.Deserializer"))
+                .accepts(hints);
+        assertThat(getClass().getClassLoader().getResource("META-INF/services/io.jsonwebtoken.io.Deserializer"))
+                .isNotNull();
+    }
+
+    @Test
+    void conditionallyIncludedLogbackConfigIsIncluded() {
+        RuntimeHints hints = new RuntimeHints();
+        new NativeConfig.LogbackRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertThat(RuntimeHintsPredicates.resource().forResource(NativeConfig.LogbackRuntimeHints.FILE_APPENDER_CONFIG))
+                .accepts(hints);
+        assertThat(getClass().getClassLoader().getResource(NativeConfig.LogbackRuntimeHints.FILE_APPENDER_CONFIG))
+                .isNotNull();
+    }
+}
@@ -0,0 +1,140 @@
+package com.oidc.client.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * IdP 连接池：对进程内 HttpServer 桩按客户端端口统计实际建立的 TCP 连接
+ */
+class SecurityConfigTest {
+
+    private final SecurityConfig config = new SecurityConfig();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile long delayMillis;
+    private HttpServer idp;
+    private ExecutorService executor;
+    private String url;
+
+    @BeforeEach
+    void startIdp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        idp = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        idp.setExecutor(executor);
+        idp.createContext("/oidc/token", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            byte[] body = "{\"access_token\":\"t\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        idp.start();
+        url = "http://127.0.0.1:" + idp.getAddress().getPort() + "/oidc/token";
+    }
+
+    @AfterEach
+    void stopIdp() {
+        idp.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void restTemplateReusesOneKeepAliveConnectionForSequentialCalls() throws Exception {
+        try (PoolingHttpClientConnectionManager manager = connectionManager(20);
+             CloseableHttpClient httpClient = httpClient(manager)) {
+            RestTemplate restTemplate = config.restTemplate(httpClient);
+
+            for (int i = 0; i < 50; i++) {
+                assertThat(restTemplate.postForObject(url, null, String.class)).contains("access_token");
+            }
+
+            assertThat(clientPorts).hasSize(1);
+            assertThat(manager.getTotalStats().getAvailable()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void restTemplateOpensAtMostMaxPerRouteConnectionsUnderConcurrency() throws Exception {
+        delayMillis = 50;
+        try (PoolingHttpClientConnectionManager manager = connectionManager(4);
+             CloseableHttpClient httpClient = httpClient(manager)) {
+            RestTemplate restTemplate = config.restTemplate(httpClient);
+            ExecutorService callers = Executors.newFixedThreadPool(16);
+            try {
+                List<Future<String>> results = new ArrayList<>();
+                for (int i = 0; i < 32; i++) {
+                    results.add(callers.submit(() -> restTemplate.postForObject(url, null, String.class)));
+                }
+                for (Future<String> result : results) {
+                    assertThat(result.get()).contains("access_token");
+                }
+            } finally {
+                callers.shutdownNow();
+            }
+
+            assertThat(maxInFlight.get()).isLessThanOrEqualTo(4);
+            assertThat(clientPorts).hasSizeLessThanOrEqualTo(4);
+        }
+    }
+
+    @Test
+    void webClientReusesPooledConnections() {
+        ConnectionProvider provider = config.idpConnectionProvider(
+                4, Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ofMinutes(5));
+        try {
+            WebClient webClient = config.idpWebClient(WebClient.builder(), provider,
+                    Duration.ofSeconds(2), Duration.ofSeconds(5));
+
+            List<String> bodies = Flux.range(0, 40)
+                    .flatMap(i -> webClient.post().uri(url).retrieve().bodyToMono(String.class), 4)
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+
+            assertThat(bodies).hasSize(40).allMatch(body -> body.contains("access_token"));
+            assertThat(clientPorts).hasSizeLessThanOrEqualTo(4);
+        } finally {
+            provider.dispose();
+        }
+    }
+
+    private PoolingHttpClientConnectionManager connectionManager(int maxPerRoute) {
+        return config.idpConnectionManager(50, maxPerRoute, Duration.ofSeconds(2), Duration.ofSeconds(5),
+                Duration.ofMinutes(5));
+    }
+
+    private CloseableHttpClient httpClient(PoolingHttpClientConnectionManager manager) {
+        return config.idpHttpClient(manager, Duration.ofSeconds(5), Duration.ofSeconds(5), Duration.ofSeconds(30));
+    }
+}
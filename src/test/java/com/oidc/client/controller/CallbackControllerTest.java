@@ -0,0 +1,125 @@
+package com.oidc.client.controller;
+
+import com.oidc.client.TestFixtures;
+import com.oidc.client.util.TokenCookies;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 登录回调必须来自发起 /api/auth/authorize 的浏览器，state 只能绑定一个授权码
+ */
+@SpringBootTest(properties = {
+        "oidc.discovery.enabled=false",
+        "oidc.discovery.snapshot-dir="
+})
+@AutoConfigureMockMvc
+class CallbackControllerTest {
+
+    private static final AtomicInteger TOKEN_CALLS = new AtomicInteger();
+    private static final HttpServer IDP = startIdp();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @DynamicPropertySource
+    static void idp(DynamicPropertyRegistry registry) {
+        registry.add("oidc.server.url", () -> "http://127.0.0.1:" + IDP.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopIdp() {
+        IDP.stop(0);
+    }
+
+    @Test
+    void callbackFromTheBrowserThatStartedTheLoginSucceeds() throws Exception {
+        Login login = startLogin();
+
+        callback("code-1", login.state(), login.binding())
+                .andExpect(redirectedUrl("http://localhost:5173/callback?state=" + login.state()))
+                .andExpect(cookie().maxAge(TokenCookies.LOGIN_BINDING, 0));
+        // 同一个 state 不能再换另一个授权码
+        callback("code-2", login.state(), login.binding())
+                .andExpect(redirectedUrl("http://localhost:5173/?error=invalid_state"));
+    }
+
+    @Test
+    void callbackFromAnotherBrowserIsRejectedBeforeCallingTheIdp() throws Exception {
+        Login victim = startLogin();
+        Login attacker = startLogin();
+        int callsBefore = TOKEN_CALLS.get();
+
+        callback("code-3", attacker.state(), null)
+                .andExpect(redirectedUrl("http://localhost:5173/?error=invalid_state"));
+        callback("code-3", attacker.state(), victim.binding())
+                .andExpect(redirectedUrl("http://localhost:5173/?error=invalid_state"));
+
+        assertThat(TOKEN_CALLS.get()).isEqualTo(callsBefore);
+    }
+
+    private Login startLogin() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/auth/authorize"))
+                .andExpect(status().isFound())
+                .andExpect(cookie().httpOnly(TokenCookies.LOGIN_BINDING, true))
+                .andReturn();
+        String state = UriComponentsBuilder.fromUriString(result.getResponse().getRedirectedUrl()).build()
+                .getQueryParams().getFirst("state");
+        return new Login(state, result.getResponse().getCookie(TokenCookies.LOGIN_BINDING));
+    }
+
+    private ResultActions callback(String code, String state, Cookie binding) throws Exception {
+        MockHttpServletRequestBuilder request = get("/callback").param("code", code).param("state", state);
+        if (binding != null) {
+            request.cookie(binding);
+        }
+        MvcResult started = mockMvc.perform(request).andReturn();
+        return mockMvc.perform(asyncDispatch(started)).andExpect(status().isFound());
+    }
+
+    private static HttpServer startIdp() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/oidc/token", exchange -> {
+                TOKEN_CALLS.incrementAndGet();
+                byte[] body = ("{\"access_token\":\"" + TestFixtures.token("alice", 60_000)
+                        + "\",\"token_type\":\"Bearer\",\"expires_in\":3600}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Login(String state, Cookie binding) {
+    }
+}
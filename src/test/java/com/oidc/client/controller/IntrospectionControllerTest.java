@@ -0,0 +1,156 @@
+package com.oidc.client.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oidc.client.TestFixtures;
+import com.oidc.client.service.RevocationService;
+import com.oidc.client.util.JwtTokenValidator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 批量 introspection：批量上限、按 Token 计入调用方的 CLIENT 配额、结果按 index 对应请求、吊销和过期的 Token
+ */
+@SpringBootTest(properties = {
+        "oidc.discovery.enabled=false",
+        "oidc.discovery.snapshot-dir=",
+        "oidc.introspection.max-batch=8",
+        "oidc.introspection.chunk-size=2",
+        "oidc.rate-limit.enabled=true",
+        "server.forward-headers-strategy=none",
+        "oidc.rate-limit.client.rate=0.01",
+        "oidc.rate-limit.client.burst=10",
+        "oidc.rate-limit.adaptive.enabled=false"
+})
+@AutoConfigureMockMvc
+class IntrospectionControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtTokenValidator jwtTokenValidator;
+
+    @Autowired
+    private RevocationService revocationService;
+
+    @Test
+    void batchLargerThanMaxBatchIsRejected() throws Exception {
+        mockMvc.perform(introspect(caller("oversize-client"), tokens(9)))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    void resultsMapToTheirRequestIndexWhateverTheCompletionOrder() throws Exception {
+        List<String> tokens = tokens(8);
+
+        Map<Integer, JsonNode> results = byIndex(perform(introspect(caller("ordering-client"), tokens))
+                .andExpect(status().isOk()));
+
+        // 4 个分块并行完成，返回顺序不固定，用 index 对应请求
+        assertThat(results).containsOnlyKeys(IntStream.range(0, 8).boxed().toList());
+        results.forEach((index, result) -> {
+            assertThat(result.get("active").asBoolean()).isTrue();
+            assertThat(result.get("sub").asText()).isEqualTo("user-" + index);
+        });
+    }
+
+    @Test
+    void revokedExpiredAndMalformedTokensAreInactive() throws Exception {
+        String revoked = TestFixtures.token("revoked-user", 60_000);
+        revocationService.revoke(jwtTokenValidator.verify(revoked).getPrincipal());
+        List<String> tokens = List.of(
+                TestFixtures.token("active-user", 60_000, "openid metrics"),
+                revoked,
+                TestFixtures.token("expired-user", -3_600_000),
+                "not-a-jwt");
+
+        Map<Integer, JsonNode> results = byIndex(perform(introspect(caller("status-client"), tokens))
+                .andExpect(status().isOk()));
+
+        assertThat(results.get(0).get("active").asBoolean()).isTrue();
+        assertThat(results.get(0).get("scope").asText()).isEqualTo("openid metrics");
+        assertThat(results.get(0).has("exp")).isTrue();
+        assertThat(results.get(1).get("active").asBoolean()).isFalse();
+        assertThat(results.get(1).get("error").asText()).isEqualTo("revoked");
+        assertThat(results.get(2).get("active").asBoolean()).isFalse();
+        assertThat(results.get(2).get("error").asText()).isEqualTo("expired");
+        assertThat(results.get(2).has("sub")).isFalse();
+        assertThat(results.get(3).get("active").asBoolean()).isFalse();
+        assertThat(results.get(3).has("error")).isTrue();
+    }
+
+    @Test
+    void everyTokenIsChargedToTheCallersClientQuota() throws Exception {
+        String caller = caller("metered-client");
+        // 请求本身 1 个 + 批量中其余 7 个，burst 10 剩下 2 个
+        perform(introspect(caller, tokens(8))).andExpect(status().isOk());
+
+        // 请求本身再取 1 个，其余 2 个 Token 需要 2 个，只剩 1 个：整批拒绝
+        perform(introspect(caller, tokens(3)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+        // 其他调用方有自己的配额
+        perform(introspect(caller("other-client"), tokens(3))).andExpect(status().isOk());
+    }
+
+    private RequestBuilder introspect(String caller, List<String> tokens)
+            throws Exception {
+        return post("/api/auth/introspect")
+                .header("Authorization", "Bearer " + caller)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .content(objectMapper.writeValueAsString(tokens));
+    }
+
+    /**
+     * 正常结果以流式异步返回，需要 asyncDispatch；限流时 429 在开始流式响应前直接写出
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult started = actions.andReturn();
+        return started.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(started)) : actions;
+    }
+
+    private Map<Integer, JsonNode> byIndex(ResultActions actions) throws Exception {
+        List<JsonNode> results = new ArrayList<>();
+        for (String line : actions.andReturn().getResponse().getContentAsString().split("\n")) {
+            if (!line.isBlank()) {
+                results.add(objectMapper.readTree(line));
+            }
+        }
+        // 下标重复时 toMap 抛出异常
+        return results.stream().collect(Collectors.toMap(result -> result.get("index").asInt(), Function.identity()));
+    }
+
+    private static String caller(String clientId) {
+        return TestFixtures.token(clientId + "-caller", 60_000, "openid", clientId);
+    }
+
+    private static List<String> tokens(int count) {
+        return IntStream.range(0, count).mapToObj(i -> TestFixtures.token("user-" + i, 60_000)).toList();
+    }
+}
@@ -0,0 +1,92 @@
+package com.oidc.client.filter;
+
+import com.oidc.client.TestFixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 经过完整过滤器链的限流：超限请求在验签和访问 IdP 之前返回 429 和 Retry-After
+ */
+@SpringBootTest(properties = {
+        "oidc.discovery.enabled=false",
+        "oidc.discovery.snapshot-dir=",
+        "oidc.rate-limit.enabled=true",
+        "server.forward-headers-strategy=none",
+        "oidc.rate-limit.idp.rate=1",
+        "oidc.rate-limit.idp.burst=2",
+        "oidc.rate-limit.ip.rate=1",
+        "oidc.rate-limit.ip.burst=3",
+        "oidc.rate-limit.user.rate=1",
+        "oidc.rate-limit.user.burst=5",
+        "oidc.rate-limit.adaptive.enabled=false"
+})
+@AutoConfigureMockMvc
+class JwtTokenFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void protectedApiReturns429OncePerIpBurstIsSpent() throws Exception {
+        String token = TestFixtures.token("ip-limited", 60_000);
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(data(token, "10.0.1.1")).andExpect(status().isOk());
+        }
+
+        mockMvc.perform(data(token, "10.0.1.1"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.error").exists());
+        // 其他 IP 有自己的配额
+        mockMvc.perform(data(TestFixtures.token("other-ip", 60_000), "10.0.1.2")).andExpect(status().isOk());
+    }
+
+    @Test
+    void userQuotaAppliesAcrossIps() throws Exception {
+        String token = TestFixtures.token("roaming-user", 60_000);
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(data(token, "10.0.2." + i)).andExpect(status().isOk());
+        }
+
+        mockMvc.perform(data(token, "10.0.2.100")).andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void idpBoundEndpointsHaveTheirOwnSmallerQuota() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(authorize("10.0.3.1")).andExpect(status().isFound());
+        }
+
+        mockMvc.perform(authorize("10.0.3.1"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+        // 受保护接口的 IP 配额不受影响
+        mockMvc.perform(data(TestFixtures.token("idp-limited", 60_000), "10.0.3.1")).andExpect(status().isOk());
+    }
+
+    private static MockHttpServletRequestBuilder data(String token, String ip) {
+        return get("/api/resources/data")
+                .header("Authorization", "Bearer " + token)
+                .with(request -> {
+                    request.setRemoteAddr(ip);
+                    return request;
+                });
+    }
+
+    private static MockHttpServletRequestBuilder authorize(String ip) {
+        return get("/api/auth/authorize")
+                .with(request -> {
+                    request.setRemoteAddr(ip);
+                    return request;
+                });
+    }
+}
@@ -0,0 +1,104 @@
+package com.oidc.client.filter;
+
+import com.oidc.client.TestFixtures;
+import com.oidc.client.util.TokenCookies;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Filter 内的透明续期：成功时写回新 Token；IdP 拒绝 refresh_token 时清除 Cookie，且拒绝结果被复用
+ */
+@SpringBootTest(properties = {
+        "oidc.discovery.enabled=false",
+        "oidc.discovery.snapshot-dir="
+})
+@AutoConfigureMockMvc
+class TransparentRefreshTest {
+
+    private static final Map<String, AtomicInteger> REFRESH_CALLS = new ConcurrentHashMap<>();
+    private static final HttpServer IDP = startIdp();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @DynamicPropertySource
+    static void idp(DynamicPropertyRegistry registry) {
+        registry.add("oidc.server.url", () -> "http://127.0.0.1:" + IDP.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopIdp() {
+        IDP.stop(0);
+    }
+
+    @Test
+    void validRefreshTokenRenewsTheAccessToken() throws Exception {
+        mockMvc.perform(get("/api/resources/data").cookie(new Cookie(TokenCookies.REFRESH_TOKEN, "good-1")))
+                .andExpect(status().isOk())
+                .andExpect(cookie().exists(TokenCookies.ACCESS_TOKEN));
+
+        assertThat(calls("good-1")).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedRefreshTokenIsClearedAndNotSentToTheIdpAgain() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/api/resources/data").cookie(new Cookie(TokenCookies.REFRESH_TOKEN, "revoked-1")))
+                    .andExpect(status().isUnauthorized())
+                    .andExpect(cookie().maxAge(TokenCookies.REFRESH_TOKEN, 0));
+        }
+
+        // 浏览器丢弃 Cookie 之前的重复请求复用拒绝结果
+        assertThat(calls("revoked-1")).isEqualTo(1);
+    }
+
+    private static int calls(String refreshToken) {
+        AtomicInteger count = REFRESH_CALLS.get(refreshToken);
+        return count != null ? count.get() : 0;
+    }
+
+    private static HttpServer startIdp() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/oidc/token", exchange -> {
+                String form = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                String refreshToken = form.replaceAll(".*refresh_token=([^&]*).*", "$1");
+                REFRESH_CALLS.computeIfAbsent(refreshToken, k -> new AtomicInteger()).incrementAndGet();
+                boolean valid = refreshToken.startsWith("good");
+                byte[] body = (valid
+                        ? "{\"access_token\":\"" + TestFixtures.token("alice", 600_000)
+                        + "\",\"token_type\":\"Bearer\",\"expires_in\":600}"
+                        : "{\"error\":\"invalid_grant\"}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(valid ? 200 : 400, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
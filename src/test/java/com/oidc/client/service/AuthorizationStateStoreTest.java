@@ -0,0 +1,140 @@
+package com.oidc.client.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * state 只能由签发时的浏览器使用一次；同一授权码在重复提交窗口内的第二次提交放行
+ */
+class AuthorizationStateStoreTest {
+
+    @Test
+    void stateIsBoundToTheFirstCode() {
+        AuthorizationStateStore store = store(Duration.ofMinutes(10), Duration.ofSeconds(5), 100, 20);
+        AuthorizationStateStore.Issued issued = store.issue("10.0.0.1");
+
+        assertThat(store.claim(issued.getState(), "code-1", issued.getBrowserNonce())).isTrue();
+        // /callback 和 /api/auth/token 各提交一次
+        assertThat(store.claim(issued.getState(), "code-1", issued.getBrowserNonce())).isTrue();
+        assertThat(store.claim(issued.getState(), "code-2", issued.getBrowserNonce())).isFalse();
+    }
+
+    @Test
+    void duplicateSubmissionIsRejectedOutsideTheReuseWindow() throws Exception {
+        AuthorizationStateStore store = store(Duration.ofMinutes(10), Duration.ofMillis(50), 100, 20);
+        AuthorizationStateStore.Issued issued = store.issue("10.0.0.1");
+        assertThat(store.claim(issued.getState(), "code-1", issued.getBrowserNonce())).isTrue();
+
+        Thread.sleep(100);
+
+        assertThat(store.claim(issued.getState(), "code-1", issued.getBrowserNonce())).isFalse();
+    }
+
+    @Test
+    void stateFromAnotherBrowserIsRejected() {
+        AuthorizationStateStore store = store(Duration.ofMinutes(10), Duration.ofSeconds(5), 100, 20);
+        AuthorizationStateStore.Issued attacker = store.issue("10.0.0.1");
+        AuthorizationStateStore.Issued victim = store.issue("10.0.0.2");
+
+        assertThat(store.claim(attacker.getState(), "code-1", victim.getBrowserNonce())).isFalse();
+        assertThat(store.claim(attacker.getState(), "code-1", null)).isFalse();
+        // 被拒绝的提交不占用 state
+        assertThat(store.claim(attacker.getState(), "code-1", attacker.getBrowserNonce())).isTrue();
+    }
+
+    @Test
+    void unknownAndExpiredStatesAreRejected() throws Exception {
+        AuthorizationStateStore store = store(Duration.ofMillis(50), Duration.ofSeconds(5), 100, 20);
+        AuthorizationStateStore.Issued issued = store.issue("10.0.0.1");
+
+        assertThat(store.claim("forged", "code-1", issued.getBrowserNonce())).isFalse();
+        assertThat(store.claim(null, "code-1", issued.getBrowserNonce())).isFalse();
+        Thread.sleep(100);
+        assertThat(store.claim(issued.getState(), "code-1", issued.getBrowserNonce())).isFalse();
+    }
+
+    @Test
+    void outstandingStatesAreCappedPerClientUntilTheyExpire() throws Exception {
+        AuthorizationStateStore store = store(Duration.ofMillis(100), Duration.ofSeconds(5), 100, 3);
+        for (int i = 0; i < 3; i++) {
+            assertThat(store.issue("10.0.0.1")).isNotNull();
+        }
+
+        assertThat(store.issue("10.0.0.1")).isNull();
+        assertThat(store.issue("10.0.0.2")).isNotNull();
+        Thread.sleep(150);
+        assertThat(store.issue("10.0.0.1")).isNotNull();
+    }
+
+    @Test
+    void completedLoginReturnsTheClientSlotImmediately() {
+        AuthorizationStateStore store = store(Duration.ofMinutes(10), Duration.ofSeconds(5), 100, 2);
+
+        // 同一个出口地址（NAT、负载均衡）后面的用户依次完成登录，名额不会被占满
+        for (int i = 0; i < 10; i++) {
+            AuthorizationStateStore.Issued issued = store.issue("10.0.0.1");
+            assertThat(issued).isNotNull();
+            assertThat(store.claim(issued.getState(), "code-" + i, issued.getBrowserNonce())).isTrue();
+        }
+    }
+
+    @Test
+    void claimedStateIsDroppedOnceTheDuplicateWindowHasPassed() throws Exception {
+        AuthorizationStateStore store = store(Duration.ofMinutes(10), Duration.ofMillis(50), 100, 0);
+        AuthorizationStateStore.Issued claimed = store.issue("10.0.0.1");
+        store.claim(claimed.getState(), "code-1", claimed.getBrowserNonce());
+        AuthorizationStateStore.Issued pending = store.issue("10.0.0.1");
+
+        Thread.sleep(100);
+        store.issue("10.0.0.2");
+
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.claim(claimed.getState(), "code-1", claimed.getBrowserNonce())).isFalse();
+        assertThat(store.claim(pending.getState(), "code-2", pending.getBrowserNonce())).isTrue();
+    }
+
+    @Test
+    void perClientCapIsOffByDefaultAndRequiresForwardHeadersStrategy() {
+        AuthorizationStateStore unlimited = store(Duration.ofMinutes(10), Duration.ofSeconds(5), 100, 0);
+        for (int i = 0; i < 50; i++) {
+            assertThat(unlimited.issue("10.0.0.1")).isNotNull();
+        }
+
+        assertThatThrownBy(() -> new AuthorizationStateStore(true, Duration.ofMinutes(10), Duration.ofSeconds(5),
+                100, 20, ""))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("server.forward-headers-strategy");
+    }
+
+    @Test
+    void oldestStatesAreEvictedBeyondMaxSize() {
+        AuthorizationStateStore store = store(Duration.ofMinutes(10), Duration.ofSeconds(5), 3, 20);
+        AuthorizationStateStore.Issued oldest = store.issue("10.0.0.1");
+        for (int i = 0; i < 3; i++) {
+            store.issue("10.0.0." + (i + 2));
+        }
+
+        assertThat(store.size()).isEqualTo(3);
+        assertThat(store.claim(oldest.getState(), "code-1", oldest.getBrowserNonce())).isFalse();
+    }
+
+    @Test
+    void withoutValidationRequestsWithOrWithoutStateAreAccepted() {
+        AuthorizationStateStore store = new AuthorizationStateStore(false, Duration.ofMinutes(10),
+                Duration.ofSeconds(5), 100, 0, "");
+
+        assertThat(store.claim("client-generated", "code-1", null)).isTrue();
+        // 前端自行生成 state 时 /api/auth/token 的调用方可以不带 state
+        assertThat(store.claim(null, "code-2", null)).isTrue();
+        assertThat(store.claim("", "code-3", null)).isTrue();
+    }
+
+    private static AuthorizationStateStore store(Duration ttl, Duration duplicateWindow, int maxSize,
+                                                 int maxPerClient) {
+        return new AuthorizationStateStore(true, ttl, duplicateWindow, maxSize, maxPerClient, "none");
+    }
+}
@@ -0,0 +1,208 @@
+package com.oidc.client.service;
+
+import com.oidc.client.TestFixtures;
+import com.oidc.client.dto.AuthenticatedPrincipal;
+import com.oidc.client.dto.StoredTokens;
+import com.oidc.client.dto.TokenResponse;
+import com.oidc.client.util.VerifiedTokenCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 两个节点经 UDP 同步认证状态
+ *
+ * 节点 A 的报文先发到测试中的中继 socket，由测试决定何时、按什么顺序、转发几次给节点 B，
+ * 以模拟乱序和重放。B 的接收是单线程的：转发一个标记吊销并等到它生效，之前转发的报文都已处理完。
+ */
+class ClusterReplicatorTest {
+
+    private static final String SECRET = "cluster-test-secret";
+
+    private final AtomicInteger markers = new AtomicInteger();
+    private final List<Node> nodes = new ArrayList<>();
+    private DatagramSocket relay;
+    private Node a;
+    private Node b;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        relay = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        relay.setSoTimeout(5000);
+        b = node(SECRET);
+        a = node(SECRET, relay.getLocalPort());
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(node -> node.replicator.stop());
+        relay.close();
+    }
+
+    @Test
+    void revocationOnOneNodeRejectsTheTokenOnTheOther() throws Exception {
+        AuthenticatedPrincipal principal = AuthenticatedPrincipal.builder()
+                .tokenId("jti-1")
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+
+        a.revocations.revoke(principal);
+        forward(flush(a));
+        TestFixtures.await(() -> b.revocations.isRevoked(principal));
+    }
+
+    @Test
+    void sessionsAreStoredAndRemovedOnPeers() throws Exception {
+        a.publish(AuthStateEvent.sessionStored("s1", tokens("at-1", "rt-1")));
+        forward(flush(a));
+        TestFixtures.await(() -> b.store.get("s1") != null);
+        assertThat(b.store.get("s1").getAccessToken()).isEqualTo("at-1");
+
+        Thread.sleep(2);
+        a.publish(AuthStateEvent.sessionRemoved("s1"));
+        forward(flush(a));
+        TestFixtures.await(() -> b.store.get("s1") == null);
+    }
+
+    @Test
+    void staleStoreArrivingAfterRemovalDoesNotResurrectTheSession() throws Exception {
+        a.publish(AuthStateEvent.sessionStored("s1", tokens("at-1", "rt-1")));
+        byte[] stored = flush(a);
+        Thread.sleep(2);
+        a.publish(AuthStateEvent.sessionRemoved("s1"));
+        byte[] removed = flush(a);
+
+        forward(removed);
+        forward(stored);
+        sync();
+
+        assertThat(b.store.get("s1")).isNull();
+    }
+
+    @Test
+    void replayedPacketIsDropped() throws Exception {
+        a.publish(AuthStateEvent.sessionStored("s1", tokens("at-1", "rt-1")));
+        byte[] stored = flush(a);
+        forward(stored);
+        TestFixtures.await(() -> b.store.get("s1") != null);
+        b.store.remove("s1");
+
+        forward(stored);
+        sync();
+
+        assertThat(b.store.get("s1")).isNull();
+    }
+
+    @Test
+    void packetsSealedWithAnotherSecretAreDropped() throws Exception {
+        Node intruder = node("another-secret", b.port);
+
+        intruder.publish(AuthStateEvent.revoked("jti-forged", System.currentTimeMillis() + 60_000));
+        intruder.replicator.flush();
+        sync();
+
+        assertThat(b.revocations.snapshot()).doesNotContainKey("jti-forged");
+    }
+
+    @Test
+    void refreshResultIsReusedOnThePeerWithoutCallingTheIdp() throws Exception {
+        String refreshToken = "rt-1";
+        a.publish(AuthStateEvent.refreshed(VerifiedTokenCache.digest(refreshToken), tokens("at-2", "rt-2"),
+                System.currentTimeMillis() + 10_000));
+        forward(flush(a));
+        sync();
+
+        // B 的 IdP 地址不可达，只有复用同步过来的结果才会成功
+        IdpOutcome<TokenResponse> outcome = b.oidcClientService.refreshAccessTokenAsync(refreshToken)
+                .block(Duration.ofSeconds(5));
+
+        assertThat(outcome.isSuccess()).isTrue();
+        assertThat(outcome.getValue().getAccessToken()).isEqualTo("at-2");
+        assertThat(outcome.getValue().getRefreshToken()).isEqualTo("rt-2");
+    }
+
+    /**
+     * 经 A 发一个标记吊销给 B，等到它生效
+     */
+    private void sync() throws Exception {
+        String marker = "marker-" + markers.incrementAndGet();
+        a.publish(AuthStateEvent.revoked(marker, System.currentTimeMillis() + 60_000));
+        forward(flush(a));
+        TestFixtures.await(() -> b.revocations.snapshot().containsKey(marker));
+    }
+
+    private byte[] flush(Node node) throws Exception {
+        node.replicator.flush();
+        DatagramPacket packet = new DatagramPacket(new byte[64 * 1024], 64 * 1024);
+        relay.receive(packet);
+        return Arrays.copyOf(packet.getData(), packet.getLength());
+    }
+
+    private void forward(byte[] datagram) throws Exception {
+        relay.send(new DatagramPacket(datagram, datagram.length, InetAddress.getLoopbackAddress(), b.port));
+    }
+
+    private static StoredTokens tokens(String accessToken, String refreshToken) {
+        long now = System.currentTimeMillis();
+        return StoredTokens.builder()
+                .accessToken(accessToken)
+                .refreshToken(refreshToken)
+                .username("42")
+                .accessExpiresAtMillis(now + 60_000)
+                .expiresAtMillis(now + 600_000)
+                .build();
+    }
+
+    private Node node(String secret, int... peers) throws SocketException {
+        Node node = new Node(secret, freePort(), peers);
+        nodes.add(node);
+        return node;
+    }
+
+    private static int freePort() throws SocketException {
+        try (DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static final class Node {
+        private final int port;
+        private final RevocationService revocations;
+        private final InMemoryTokenStore store = new InMemoryTokenStore(16, 1000);
+        private final OidcClientService oidcClientService;
+        private final ClusterReplicator replicator;
+
+        private Node(String secret, int port, int... peers) throws SocketException {
+            this.port = port;
+            AtomicReference<ClusterReplicator> self = new AtomicReference<>();
+            this.revocations = TestFixtures.revocationService(
+                    event -> self.get().onAuthStateChanged((AuthStateEvent) event));
+            this.oidcClientService = TestFixtures.oidcClientService("http://127.0.0.1:1",
+                    TestFixtures.resilience(20, 1, Duration.ofSeconds(10)), event -> { });
+            List<String> peerAddresses = Arrays.stream(peers).mapToObj(p -> "127.0.0.1:" + p).toList();
+            // 定时发送和全量对账的间隔足够长，由测试手动 flush
+            this.replicator = new ClusterReplicator(revocations, store, oidcClientService, port, peerAddresses,
+                    secret, Duration.ofHours(1), Duration.ofHours(1), Duration.ofSeconds(30));
+            self.set(replicator);
+            replicator.start();
+        }
+
+        private void publish(AuthStateEvent event) {
+            replicator.onAuthStateChanged(event);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.oidc.client.service;
+
+import com.oidc.client.TestFixtures;
+import com.oidc.client.dto.TokenResponse;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 换 Token 的结果只在同一浏览器的重复提交之间复用，授权码本身不足以取回 Token
+ */
+class CodeExchangeTest {
+
+    private final AtomicInteger tokenCalls = new AtomicInteger();
+    private HttpServer idp;
+    private OidcClientService service;
+
+    @BeforeEach
+    void startIdp() throws Exception {
+        idp = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        idp.createContext("/oidc/token", exchange -> {
+            int call = tokenCalls.incrementAndGet();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"access_token\":\"at-" + call + "\",\"token_type\":\"Bearer\",\"expires_in\":3600}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        idp.setExecutor(Executors.newCachedThreadPool());
+        idp.start();
+        service = TestFixtures.oidcClientService("http://127.0.0.1:" + idp.getAddress().getPort(),
+                TestFixtures.resilience(20, 1, Duration.ofSeconds(10)), event -> { });
+    }
+
+    @AfterEach
+    void stopIdp() {
+        idp.stop(0);
+    }
+
+    @Test
+    void duplicateSubmissionFromTheSameBrowserReusesTheResult() {
+        IdpOutcome<TokenResponse> first = service.exchangeCodeForToken("code-1", "browser-a");
+        IdpOutcome<TokenResponse> second = service.exchangeCodeForToken("code-1", "browser-a");
+
+        assertThat(first.isSuccess()).isTrue();
+        assertThat(second.getValue().getAccessToken()).isEqualTo(first.getValue().getAccessToken());
+        assertThat(tokenCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void anotherBrowserPresentingTheSameCodeDoesNotGetTheCachedTokens() {
+        IdpOutcome<TokenResponse> owner = service.exchangeCodeForToken("code-1", "browser-a");
+        IdpOutcome<TokenResponse> other = service.exchangeCodeForToken("code-1", "browser-b");
+
+        assertThat(tokenCalls.get()).isEqualTo(2);
+        assertThat(other.getValue().getAccessToken()).isNotEqualTo(owner.getValue().getAccessToken());
+    }
+
+    @Test
+    void withoutABrowserNonceOnlyConcurrentCallsAreCoalesced() {
+        CompletableFuture<IdpOutcome<TokenResponse>> first = service.exchangeCodeForTokenAsync("code-1", null).toFuture();
+        CompletableFuture<IdpOutcome<TokenResponse>> concurrent =
+                service.exchangeCodeForTokenAsync("code-1", null).toFuture();
+        assertThat(first.join().getValue().getAccessToken())
+                .isEqualTo(concurrent.join().getValue().getAccessToken());
+        assertThat(tokenCalls.get()).isEqualTo(1);
+
+        service.exchangeCodeForToken("code-1", null);
+
+        assertThat(tokenCalls.get()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,227 @@
+package com.oidc.client.service;
+
+import com.oidc.client.TestFixtures;
+import com.oidc.client.dto.TokenResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdpResilienceTest {
+
+    private HttpServer idp;
+
+    @AfterEach
+    void stopIdp() {
+        if (idp != null) {
+            idp.stop(0);
+        }
+    }
+
+    @Test
+    void idempotentCallsAreRetriedOnServerErrors() {
+        IdpResilience resilience = TestFixtures.resilience(20, 3, Duration.ofSeconds(10));
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = resilience.decorate(Mono.defer(() -> attempts.incrementAndGet() < 3
+                ? Mono.error(status(503))
+                : Mono.just("ok")), true).block();
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts.get()).isEqualTo(3);
+    }
+
+    @Test
+    void nonIdempotentCallsAreRetriedOnlyWhenTheConnectionFailed() {
+        IdpResilience resilience = TestFixtures.resilience(20, 3, Duration.ofSeconds(10));
+        AtomicInteger serverErrors = new AtomicInteger();
+        AtomicInteger connectFailures = new AtomicInteger();
+
+        IdpOutcome<String> rejected = outcome(resilience.decorate(Mono.defer(() -> {
+            serverErrors.incrementAndGet();
+            return Mono.error(status(503));
+        }), false));
+        String connected = resilience.decorate(Mono.defer(() -> connectFailures.incrementAndGet() < 2
+                ? Mono.error(new ConnectException("Connection refused"))
+                : Mono.just("ok")), false).block();
+
+        assertThat(rejected.getStatus()).isEqualTo(IdpOutcome.Status.UNAVAILABLE);
+        assertThat(rejected.getHttpStatus()).isEqualTo(503);
+        assertThat(serverErrors.get()).isEqualTo(1);
+        assertThat(connected).isEqualTo("ok");
+        assertThat(connectFailures.get()).isEqualTo(2);
+    }
+
+    @Test
+    void clientErrorsAreNeitherRetriedNorCountedAgainstTheCircuit() {
+        IdpResilience resilience = TestFixtures.resilience(4, 3, Duration.ofSeconds(10));
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (int i = 0; i < 10; i++) {
+            IdpOutcome<String> outcome = outcome(resilience.decorate(Mono.defer(() -> {
+                attempts.incrementAndGet();
+                return Mono.error(status(400));
+            }), true));
+            assertThat(outcome.getStatus()).isEqualTo(IdpOutcome.Status.REJECTED);
+        }
+
+        assertThat(attempts.get()).isEqualTo(10);
+        assertThat(circuitBreaker(resilience).getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void circuitOpensAfterFailuresAndShortCircuitsFurtherCalls() {
+        IdpResilience resilience = TestFixtures.resilience(4, 1, Duration.ofSeconds(10));
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> failing = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(status(502));
+        });
+
+        for (int i = 0; i < 2; i++) {
+            assertThat(outcome(resilience.decorate(failing, true)).getStatus())
+                    .isEqualTo(IdpOutcome.Status.UNAVAILABLE);
+        }
+        IdpOutcome<String> shortCircuited = outcome(resilience.decorate(failing, true));
+
+        assertThat(circuitBreaker(resilience).getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(shortCircuited.getStatus()).isEqualTo(IdpOutcome.Status.CIRCUIT_OPEN);
+        assertThat(shortCircuited.isIdpUnavailable()).isTrue();
+        assertThat(attempts.get()).isEqualTo(2);
+    }
+
+    @Test
+    void circuitClosesAgainOnceTheIdpRecovers() throws Exception {
+        IdpResilience resilience = TestFixtures.resilience(2, 1, Duration.ofMillis(100));
+        outcome(resilience.decorate(Mono.error(status(503)), true));
+        assertThat(circuitBreaker(resilience).getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        Thread.sleep(150);
+        for (int i = 0; i < 2; i++) {
+            assertThat(resilience.decorate(Mono.just("ok"), true).block()).isEqualTo("ok");
+        }
+
+        assertThat(circuitBreaker(resilience).getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void slowCallsTimeOut() {
+        IdpResilience resilience = new IdpResilience(Duration.ofMillis(50), 50f, Duration.ofSeconds(2), 20,
+                Duration.ofSeconds(10), 64, Duration.ZERO, 1, Duration.ofMillis(10), false, Duration.ofMillis(50));
+
+        IdpOutcome<String> outcome = outcome(resilience.decorate(Mono.never(), true));
+
+        assertThat(outcome.getStatus()).isEqualTo(IdpOutcome.Status.TIMEOUT);
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondTheConcurrencyLimit() {
+        IdpResilience resilience = new IdpResilience(Duration.ofSeconds(2), 50f, Duration.ofSeconds(2), 20,
+                Duration.ofSeconds(10), 1, Duration.ZERO, 1, Duration.ofMillis(10), false, Duration.ofMillis(50));
+        Mono<String> slow = Mono.delay(Duration.ofMillis(300)).thenReturn("slow");
+
+        Mono<IdpOutcome<String>> first = toOutcome(resilience.decorate(slow, false));
+        Mono<IdpOutcome<String>> second = Mono.delay(Duration.ofMillis(50))
+                .then(toOutcome(resilience.decorate(slow, false)));
+        Tuple2<IdpOutcome<String>, IdpOutcome<String>> results = Mono.zip(first, second).block();
+
+        assertThat(results.getT1().isSuccess()).isTrue();
+        assertThat(results.getT2().getStatus()).isEqualTo(IdpOutcome.Status.BULKHEAD_FULL);
+    }
+
+    @Test
+    void hedgedRequestWinsWhenTheFirstAttemptIsSlow() {
+        IdpResilience resilience = new IdpResilience(Duration.ofSeconds(2), 50f, Duration.ofSeconds(2), 20,
+                Duration.ofSeconds(10), 64, Duration.ZERO, 1, Duration.ofMillis(10), true, Duration.ofMillis(50));
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> call = Mono.defer(() -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofSeconds(1)).thenReturn("slow")
+                : Mono.just("hedged"));
+
+        long start = System.nanoTime();
+        String result = resilience.decorate(call, true).block();
+
+        assertThat(result).isEqualTo("hedged");
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(900));
+    }
+
+    /**
+     * 经 OidcClientService 对真实 HTTP 桩：UserInfo（GET）在 5xx 后重试成功，换 Token（POST）5xx 不重试，4xx 为 REJECTED
+     */
+    @Test
+    void oidcClientServiceClassifiesIdpResponses() throws Exception {
+        Queue<Integer> userInfoStatuses = new ConcurrentLinkedQueue<>(List.of(503, 503, 200));
+        Queue<Integer> tokenStatuses = new ConcurrentLinkedQueue<>(List.of(503, 400));
+        AtomicInteger userInfoCalls = new AtomicInteger();
+        AtomicInteger tokenCalls = new AtomicInteger();
+        idp = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        idp.createContext("/oidc/userinfo", exchange -> {
+            userInfoCalls.incrementAndGet();
+            respond(exchange, userInfoStatuses.poll(), "{\"sub\":\"42\"}");
+        });
+        idp.createContext("/oidc/token", exchange -> {
+            tokenCalls.incrementAndGet();
+            respond(exchange, tokenStatuses.poll(), "{\"error\":\"invalid_grant\"}");
+        });
+        idp.start();
+        OidcClientService service = TestFixtures.oidcClientService(
+                "http://127.0.0.1:" + idp.getAddress().getPort(),
+                TestFixtures.resilience(20, 3, Duration.ofSeconds(10)), event -> { });
+
+        IdpOutcome<Map<String, Object>> userInfo = service.fetchUserInfoAsync("token").block();
+        IdpOutcome<TokenResponse> unavailable = service.exchangeCodeForTokenAsync("code-1", null).block();
+        IdpOutcome<TokenResponse> rejected = service.exchangeCodeForTokenAsync("code-2", null).block();
+
+        assertThat(userInfo.isSuccess()).isTrue();
+        assertThat(userInfo.getValue()).containsEntry("sub", "42");
+        assertThat(userInfoCalls.get()).isEqualTo(3);
+        assertThat(unavailable.getStatus()).isEqualTo(IdpOutcome.Status.UNAVAILABLE);
+        assertThat(unavailable.isIdpUnavailable()).isTrue();
+        assertThat(rejected.getStatus()).isEqualTo(IdpOutcome.Status.REJECTED);
+        assertThat(rejected.isIdpUnavailable()).isFalse();
+        assertThat(tokenCalls.get()).isEqualTo(2);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json)
+            throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    private static CircuitBreaker circuitBreaker(IdpResilience resilience) {
+        return resilience.getCircuitBreakerRegistry().circuitBreaker("idp");
+    }
+
+    private static WebClientResponseException status(int status) {
+        return WebClientResponseException.create(status, "IdP error", null, null, null);
+    }
+
+    private static IdpOutcome<String> outcome(Mono<String> call) {
+        return toOutcome(call).block();
+    }
+
+    private static Mono<IdpOutcome<String>> toOutcome(Mono<String> call) {
+        return call.map(IdpOutcome::success).onErrorResume(e -> Mono.just(IdpOutcome.failure(e)));
+    }
+}
@@ -0,0 +1,200 @@
+package com.oidc.client.service;
+
+import com.oidc.client.dto.StoredTokens;
+import com.oidc.client.util.SessionCookieCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 内存映射文件 TokenStore：读写、重启恢复，以及并发写入 / 删除 / 清理不会让槽位错配或让已登出的会话复活
+ */
+class MappedFileTokenStoreTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+    @TempDir
+    Path dir;
+
+    private final List<MappedFileTokenStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void close() throws Exception {
+        for (MappedFileTokenStore store : stores) {
+            store.close();
+        }
+    }
+
+    @Test
+    void storesReadsAndRemovesSessions() {
+        MappedFileTokenStore store = open(16);
+
+        assertThat(store.put("s1", tokens("alice", 60_000))).isTrue();
+        StoredTokens stored = store.get("s1");
+
+        assertThat(stored.getUsername()).isEqualTo("alice");
+        assertThat(stored.getAccessToken()).isEqualTo("at-alice");
+        assertThat(stored.getRefreshToken()).isEqualTo("rt-alice");
+        store.remove("s1");
+        assertThat(store.get("s1")).isNull();
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void liveSessionsSurviveARestartButRemovedAndExpiredOnesDoNot() throws Exception {
+        MappedFileTokenStore store = open(16);
+        store.put("kept", tokens("alice", 60_000));
+        store.put("logged-out", tokens("bob", 60_000));
+        store.put("expiring", tokens("carol", 50));
+        store.remove("logged-out");
+        store.close();
+        stores.remove(store);
+        Thread.sleep(100);
+
+        MappedFileTokenStore reopened = open(16);
+
+        assertThat(reopened.size()).isEqualTo(1);
+        assertThat(reopened.get("kept").getAccessToken()).isEqualTo("at-alice");
+        assertThat(reopened.get("logged-out")).isNull();
+        assertThat(reopened.get("expiring")).isNull();
+    }
+
+    @Test
+    void sweepFreesExpiredSlotsForReuse() throws Exception {
+        MappedFileTokenStore store = open(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(store.put("short-" + i, tokens("u" + i, 50))).isTrue();
+        }
+        assertThat(store.put("extra", tokens("extra", 60_000))).isFalse();
+
+        Thread.sleep(100);
+
+        // 没有空闲槽位时 put 先清理过期会话，释放出的槽位都能再分配
+        assertThat(store.put("extra", tokens("extra", 60_000))).isTrue();
+        assertThat(store.size()).isEqualTo(1);
+        for (int i = 0; i < 3; i++) {
+            assertThat(store.put("next-" + i, tokens("next-" + i, 60_000))).isTrue();
+        }
+        assertThat(store.get("short-0")).isNull();
+        assertThat(store.sweep(System.currentTimeMillis())).isZero();
+    }
+
+    @Test
+    void concurrentPutsAndRemovesNeverShareOrLeakSlots() throws Exception {
+        int slots = 32;
+        MappedFileTokenStore store = open(slots);
+        AtomicBoolean mismatch = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            String user = "user-" + t;
+            tasks.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 5_000; i++) {
+                    // 每两个线程共用一个会话 ID，制造同一会话上的 put / remove 竞争
+                    String sessionId = "session-" + (user.hashCode() & 3);
+                    if (i % 2 == 0) {
+                        store.put(sessionId, tokens(sessionId, 60_000));
+                        StoredTokens read = store.get(sessionId);
+                        if (read != null && !read.getUsername().equals(sessionId)) {
+                            mismatch.set(true);
+                        }
+                    } else {
+                        store.remove(sessionId);
+                    }
+                    if (i % 500 == 0) {
+                        store.sweep(System.currentTimeMillis());
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        for (int i = 0; i < 4; i++) {
+            store.remove("session-" + i);
+        }
+
+        assertThat(mismatch).isFalse();
+        assertThat(store.size()).isZero();
+        // 所有槽位都回到了空闲队列，且每个只出现一次：恰好能放下 slots 个新会话，互不覆盖
+        for (int i = 0; i < slots; i++) {
+            assertThat(store.put("fresh-" + i, tokens("fresh-" + i, 60_000))).isTrue();
+        }
+        assertThat(store.put("one-too-many", tokens("x", 60_000))).isFalse();
+        for (int i = 0; i < slots; i++) {
+            assertThat(store.get("fresh-" + i).getUsername()).isEqualTo("fresh-" + i);
+        }
+    }
+
+    @Test
+    void sessionRemovedDuringConcurrentWritesStaysRemovedAfterRestart() throws Exception {
+        MappedFileTokenStore store = open(8);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<?> writer = pool.submit(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                store.put("s1", tokens("alice", 60_000));
+            }
+        });
+        Future<?> remover = pool.submit(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                store.remove("s1");
+            }
+        });
+        writer.get(60, TimeUnit.SECONDS);
+        remover.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+        store.remove("s1");
+        store.close();
+        stores.remove(store);
+
+        MappedFileTokenStore reopened = open(8);
+
+        assertThat(reopened.get("s1")).isNull();
+        assertThat(reopened.size()).isZero();
+    }
+
+    @Test
+    void refusesToStartWithoutAConfiguredSessionKey() {
+        assertThatThrownBy(() -> new MappedFileTokenStore(new SessionCookieCodec(""),
+                dir.resolve("tokens.dat").toString(), 16, 1024))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("oidc.session.key");
+    }
+
+    private MappedFileTokenStore open(int slots) {
+        MappedFileTokenStore store = new MappedFileTokenStore(new SessionCookieCodec(KEY),
+                dir.resolve("tokens.dat").toString(), slots, 1024);
+        stores.add(store);
+        return store;
+    }
+
+    private static StoredTokens tokens(String username, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        return StoredTokens.builder()
+                .accessToken("at-" + username)
+                .refreshToken("rt-" + username)
+                .username(username)
+                .accessExpiresAtMillis(now + ttlMillis)
+                .expiresAtMillis(now + ttlMillis)
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package com.oidc.client.service;
+
+import com.oidc.client.TestFixtures;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * OIDC discovery：使用文档中的端点，issuer 不符的文档和来自其他 discovery 地址的快照都不使用，
+ * 从快照启动后以 ETag 重新验证
+ */
+class OidcProviderMetadataTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<String> conditions = new CopyOnWriteArrayList<>();
+    private volatile String issuer;
+    private HttpServer idp;
+    private ThreadPoolTaskScheduler scheduler;
+    private String serverUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        idp = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        idp.createContext(OidcProviderMetadata.WELL_KNOWN_PATH, exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            conditions.add(ifNoneMatch != null ? ifNoneMatch : "");
+            if ("\"d1\"".equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = ("{\"issuer\":\"" + issuer + "\",\"token_endpoint\":\"" + serverUrl + "/custom/token\","
+                    + "\"jwks_uri\":\"" + serverUrl + "/custom/jwks\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("ETag", "\"d1\"");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        idp.start();
+        serverUrl = "http://127.0.0.1:" + idp.getAddress().getPort();
+        issuer = serverUrl;
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+        idp.stop(0);
+    }
+
+    @Test
+    void endpointsComeFromTheDiscoveryDocument() {
+        OidcProviderMetadata metadata = metadata(serverUrl);
+        metadata.start();
+
+        assertThat(metadata.issuer()).isEqualTo(serverUrl);
+        assertThat(metadata.tokenEndpoint()).isEqualTo(serverUrl + "/custom/token");
+        assertThat(metadata.jwksUri()).isEqualTo(serverUrl + "/custom/jwks");
+        // 文档中没有的端点沿用配置
+        assertThat(metadata.userinfoEndpoint()).isEqualTo(serverUrl + "/oidc/userinfo");
+    }
+
+    @Test
+    void documentWithAnotherIssuerIsRejected() {
+        issuer = "https://attacker.example";
+        OidcProviderMetadata metadata = metadata(serverUrl);
+        metadata.start();
+
+        assertThat(metadata.issuer()).isEqualTo(serverUrl);
+        assertThat(metadata.tokenEndpoint()).isEqualTo(serverUrl + "/oidc/token");
+        assertThat(metadata.snapshot("openid-configuration.json")).doesNotExist();
+    }
+
+    @Test
+    void restartUsesTheSnapshotAndRevalidatesWithTheEtag() throws Exception {
+        metadata(serverUrl).start();
+        issuer = "https://changed.example";
+
+        OidcProviderMetadata restarted = metadata(serverUrl);
+        restarted.start();
+
+        // 快照立即生效，后台条件请求得到 304，端点不变
+        assertThat(restarted.tokenEndpoint()).isEqualTo(serverUrl + "/custom/token");
+        TestFixtures.await(() -> conditions.size() == 2);
+        assertThat(conditions).containsExactly("", "\"d1\"");
+        assertThat(restarted.tokenEndpoint()).isEqualTo(serverUrl + "/custom/token");
+    }
+
+    @Test
+    void snapshotFromAnotherDiscoveryUrlIsNotUsed() {
+        metadata(serverUrl).start();
+
+        // 同一个 IdP 换一个地址访问：快照来源不符，重新拉取，文档 issuer 与新地址不符，退回配置的端点
+        String otherUrl = "http://localhost:" + idp.getAddress().getPort();
+        OidcProviderMetadata metadata = metadata(otherUrl);
+        metadata.start();
+
+        assertThat(conditions).containsExactly("", "");
+        assertThat(metadata.issuer()).isEqualTo(otherUrl);
+        assertThat(metadata.tokenEndpoint()).isEqualTo(otherUrl + "/oidc/token");
+    }
+
+    private OidcProviderMetadata metadata(String url) {
+        return new OidcProviderMetadata(new RestTemplate(), scheduler, url, "/oidc/authorize", "/oidc/token",
+                "/oidc/userinfo", "/oidc/jwks", true, dir.toString(), Duration.ofHours(1), Duration.ZERO);
+    }
+}
@@ -0,0 +1,110 @@
+package com.oidc.client.service;
+
+import com.oidc.client.dto.AuthenticatedPrincipal;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 本地吊销列表：查询、容量已满时拒绝而不是淘汰、清理过期条目后重建 Bloom 过滤器
+ */
+class RevocationServiceTest {
+
+    private final List<Object> events = new ArrayList<>();
+
+    @Test
+    void revokedTokensAreFoundAndOthersAreNot() {
+        RevocationService service = service(100);
+
+        service.revoke(principal("jti-1", Instant.now().plusSeconds(60)));
+        service.revokeRefreshToken("refresh-1");
+
+        assertThat(service.isRevoked(principal("jti-1", Instant.now().plusSeconds(60)))).isTrue();
+        assertThat(service.isRevoked(principal("jti-2", Instant.now().plusSeconds(60)))).isFalse();
+        assertThat(service.isRevoked(principal(null, Instant.now().plusSeconds(60)))).isFalse();
+        assertThat(service.isRefreshTokenRevoked("refresh-1")).isTrue();
+        assertThat(service.isRefreshTokenRevoked("refresh-2")).isFalse();
+        // Access Token 的 jti 与 Refresh Token 的摘要分属不同的 key 空间
+        assertThat(service.isRefreshTokenRevoked("jti-1")).isFalse();
+        assertThat(events).hasSize(2);
+    }
+
+    @Test
+    void revokingTwiceOrAnExpiredTokenPublishesNothing() {
+        RevocationService service = service(100);
+
+        service.revoke(principal("jti-1", Instant.now().plusSeconds(60)));
+        service.revoke(principal("jti-1", Instant.now().plusSeconds(60)));
+        service.revoke(principal("jti-2", Instant.now().minusSeconds(1)));
+
+        assertThat(service.size()).isEqualTo(1);
+        assertThat(events).hasSize(1);
+    }
+
+    @Test
+    void fullListRejectsNewEntriesInsteadOfEvictingRevokedOnes() throws Exception {
+        RevocationService service = service(3);
+        service.revoke(principal("short-1", Instant.now().plusMillis(100)));
+        service.revoke(principal("long-1", Instant.now().plusSeconds(60)));
+        service.revoke(principal("long-2", Instant.now().plusSeconds(60)));
+
+        service.revoke(principal("rejected", Instant.now().plusSeconds(60)));
+
+        assertThat(service.isRevoked(principal("rejected", null))).isFalse();
+        assertThat(service.isRevoked(principal("long-1", null))).isTrue();
+        assertThat(service.size()).isEqualTo(3);
+        assertThat(events).hasSize(3);
+
+        // 过期条目被清理后腾出位置
+        Thread.sleep(150);
+        service.revoke(principal("accepted", Instant.now().plusSeconds(60)));
+
+        assertThat(service.isRevoked(principal("accepted", null))).isTrue();
+        assertThat(service.size()).isEqualTo(3);
+    }
+
+    @Test
+    void sweepRebuildsTheFilterWithoutLosingLiveEntries() throws Exception {
+        RevocationService service = service(1000);
+        for (int i = 0; i < 500; i++) {
+            service.revoke(principal("short-" + i, Instant.now().plusMillis(100)));
+            service.revoke(principal("long-" + i, Instant.now().plusSeconds(60)));
+        }
+        Thread.sleep(150);
+
+        service.sweep();
+
+        assertThat(service.size()).isEqualTo(500);
+        assertThat(service.snapshot()).doesNotContainKey("short-0").containsKey("long-0");
+        for (int i = 0; i < 500; i++) {
+            assertThat(service.isRevoked(principal("long-" + i, null))).as("long-" + i).isTrue();
+            assertThat(service.isRevoked(principal("short-" + i, null))).as("short-" + i).isFalse();
+        }
+        // 重建之后的吊销写入新的过滤器
+        service.revoke(principal("after-sweep", Instant.now().plusSeconds(60)));
+        assertThat(service.isRevoked(principal("after-sweep", null))).isTrue();
+    }
+
+    @Test
+    void replicatedRevocationsAreAppliedWithoutBeingPublishedAgain() {
+        RevocationService service = service(100);
+
+        service.applyReplicated("jti-remote", System.currentTimeMillis() + 60_000);
+
+        assertThat(service.isRevoked(principal("jti-remote", null))).isTrue();
+        assertThat(events).isEmpty();
+    }
+
+    private RevocationService service(int maxSize) {
+        return new RevocationService(null, events::add, maxSize, 0.01, Duration.ofSeconds(60), Duration.ofDays(7));
+    }
+
+    private static AuthenticatedPrincipal principal(String tokenId, Instant expiresAt) {
+        return AuthenticatedPrincipal.builder().subject("alice").tokenId(tokenId).expiresAt(expiresAt).build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.oidc.client.service;
+
+import com.oidc.client.TestFixtures;
+import com.oidc.client.dto.AuthenticatedPrincipal;
+import com.oidc.client.dto.UserInfo;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * UserInfo 缓存：TTL 内命中、stale-window 内先返回旧数据再后台刷新、并发未命中合并，
+ * 以及 sub 与 Token 不一致或缺失时不使用 IdP 的响应
+ */
+class UserInfoServiceTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile String responseSub = "alice";
+    private volatile long delayMillis;
+    private HttpServer idp;
+    private ExecutorService executor;
+    private OidcClientService oidcClientService;
+
+    @BeforeEach
+    void startIdp() throws Exception {
+        executor = Executors.newCachedThreadPool();
+        idp = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        idp.setExecutor(executor);
+        idp.createContext("/oidc/userinfo", exchange -> {
+            int call = calls.incrementAndGet();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"sub\":\"" + responseSub + "\",\"name\":\"Alice v" + call
+                    + "\",\"email\":\"alice@example.com\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        idp.start();
+        oidcClientService = TestFixtures.oidcClientService("http://127.0.0.1:" + idp.getAddress().getPort(),
+                TestFixtures.resilience(10, 1, Duration.ofSeconds(1)), event -> { });
+    }
+
+    @AfterEach
+    void stopIdp() {
+        idp.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void entryIsServedFromCacheUntilItExpires() throws Exception {
+        UserInfoService service = new UserInfoService(oidcClientService, Duration.ofMillis(200), Duration.ZERO, 100);
+
+        assertThat(get(service, "alice").getName()).isEqualTo("Alice v1");
+        assertThat(get(service, "alice").getName()).isEqualTo("Alice v1");
+        assertThat(calls.get()).isEqualTo(1);
+
+        Thread.sleep(300);
+
+        assertThat(get(service, "alice").getName()).isEqualTo("Alice v2");
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void staleEntryIsReturnedWhileItIsRefreshedInTheBackground() throws Exception {
+        UserInfoService service = new UserInfoService(oidcClientService, Duration.ofMillis(100), Duration.ofMinutes(1), 100);
+        get(service, "alice");
+        Thread.sleep(150);
+        delayMillis = 500;
+
+        // 过期但在 stale-window 内：不等 IdP，立即返回旧数据
+        long start = System.nanoTime();
+        assertThat(get(service, "alice").getName()).isEqualTo("Alice v1");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(400));
+
+        TestFixtures.await(() -> calls.get() == 2);
+        TestFixtures.await(() -> "Alice v2".equals(service.getUserInfo(principal("alice"), "token").join().getName()));
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentMissesForTheSameSubjectShareOneRequest() throws Exception {
+        UserInfoService service = new UserInfoService(oidcClientService, Duration.ofMinutes(5), Duration.ZERO, 100);
+        delayMillis = 200;
+
+        List<CompletableFuture<UserInfo>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(service.getUserInfo(principal("alice"), "token"));
+        }
+
+        for (CompletableFuture<UserInfo> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS).getName()).isEqualTo("Alice v1");
+        }
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void responseForAnotherSubjectIsNeitherUsedNorCached() throws Exception {
+        UserInfoService service = new UserInfoService(oidcClientService, Duration.ofMinutes(5), Duration.ZERO, 100);
+        responseSub = "mallory";
+
+        UserInfo userInfo = get(service, "alice");
+
+        assertThat(userInfo.getUsername()).isEqualTo("alice");
+        assertThat(userInfo.getName()).isNull();
+        assertThat(userInfo.getEmail()).isNull();
+        assertThat(service.size()).isZero();
+        get(service, "alice");
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void tokenWithoutSubjectOnlyReturnsTokenClaims() throws Exception {
+        UserInfoService service = new UserInfoService(oidcClientService, Duration.ofMinutes(5), Duration.ZERO, 100);
+
+        UserInfo userInfo = get(service, null);
+
+        assertThat(userInfo.getUsername()).isEqualTo("anonymous");
+        assertThat(userInfo.getName()).isNull();
+        assertThat(calls.get()).isZero();
+        assertThat(service.size()).isZero();
+    }
+
+    private static UserInfo get(UserInfoService service, String subject) throws Exception {
+        return service.getUserInfo(principal(subject), "token").get(5, TimeUnit.SECONDS);
+    }
+
+    private static AuthenticatedPrincipal principal(String subject) {
+        return AuthenticatedPrincipal.builder()
+                .subject(subject)
+                .username(subject != null ? subject : "anonymous")
+                .clientId("my-app")
+                .build();
+    }
+}
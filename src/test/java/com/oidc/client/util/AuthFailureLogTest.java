@@ -0,0 +1,109 @@
+package com.oidc.client.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthFailureLogTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(AuthFailureLog.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private Level previousLevel;
+
+    @BeforeEach
+    void attach() {
+        previousLevel = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void detach() {
+        logger.detachAppender(appender);
+        logger.setLevel(previousLevel);
+    }
+
+    @Test
+    void aggregatesFailureStormIntoOneSummaryPerInterval() {
+        AuthFailureLog failureLog = new AuthFailureLog(null, true, Duration.ofSeconds(10));
+
+        for (int i = 0; i < 1000; i++) {
+            failureLog.record("expired", "JWT expired " + i);
+        }
+        failureLog.record("bad_signature", "signature mismatch");
+        assertThat(appender.list).isEmpty();
+
+        failureLog.flush();
+
+        assertThat(appender.list).singleElement().satisfies(event -> {
+            assertThat(event.getLevel()).isEqualTo(Level.WARN);
+            assertThat(event.getFormattedMessage()).contains("10s").contains("bad_signature=1").contains("expired=1000");
+        });
+    }
+
+    @Test
+    void flushResetsCountersAndStaysQuietWithoutFailures() {
+        AuthFailureLog failureLog = new AuthFailureLog(null, true, Duration.ofSeconds(10));
+        failureLog.record("expired", "JWT expired");
+
+        failureLog.flush();
+        failureLog.flush();
+
+        assertThat(appender.list).hasSize(1);
+    }
+
+    @Test
+    void logsEachFailureWhenAggregationIsDisabled() {
+        AuthFailureLog failureLog = new AuthFailureLog(null, false, Duration.ofSeconds(10));
+
+        failureLog.record("expired", "JWT expired");
+        failureLog.record("malformed", "bad token");
+
+        assertThat(appender.list).extracting(ILoggingEvent::getFormattedMessage)
+                .containsExactly("✗ Authentication failed (expired): JWT expired",
+                        "✗ Authentication failed (malformed): bad token");
+    }
+
+    /**
+     * logback-spring.xml 改为异步输出后，logging.file.name（LOG_FILE）仍然写入文件
+     */
+    @Test
+    void asyncLoggingConfigurationStillWritesTheLogFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("app.log");
+        LoggerContext context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        context.putProperty("LOG_FILE", file.toString());
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(context);
+        configurator.doConfigure(getClass().getResource("/logback-spring.xml"));
+
+        try {
+            context.getLogger(AuthFailureLog.class).warn("✗ Authentication failures in the last 10s: {expired=3}");
+
+            // 由后台线程写入，等待队列排空
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (!Files.readString(file).contains("{expired=3}") && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(Files.readString(file)).contains("WARN").contains("Authentication failures in the last 10s: {expired=3}");
+        } finally {
+            context.stop();
+        }
+    }
+}
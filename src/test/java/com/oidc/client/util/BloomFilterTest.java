@@ -0,0 +1,50 @@
+package com.oidc.client.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bloom 过滤器：添加过的 key 一定命中，未添加的 key 误判率接近配置值
+ */
+class BloomFilterTest {
+
+    @Test
+    void neverReportsAnAddedKeyAsAbsent() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("token-" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("token-" + i)).as("token-" + i).isTrue();
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysCloseToTheConfiguredRateAtCapacity() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("token-" + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat((double) falsePositives / probes).isLessThan(0.02);
+        assertThat(filter.bitSize()).isGreaterThanOrEqualTo(95_851);
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(0, 0.01);
+
+        assertThat(filter.mightContain("")).isFalse();
+        assertThat(filter.mightContain("token")).isFalse();
+    }
+}
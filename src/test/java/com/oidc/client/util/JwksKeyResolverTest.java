@@ -0,0 +1,165 @@
+package com.oidc.client.util;
+
+import com.oidc.client.service.OidcProviderMetadata;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * JWKS 验签：进程内 HttpServer 提供公钥集，统计拉取次数
+ */
+class JwksKeyResolverTest {
+
+    private static final String SECRET = "this-is-a-very-secret-key-that-should-be-at-least-256-bits-long-for-hs256-algorithm";
+
+    private final KeyPair first = Jwts.SIG.RS256.keyPair().build();
+    private final KeyPair second = Jwts.SIG.RS256.keyPair().build();
+    private final AtomicInteger fetches = new AtomicInteger();
+    private volatile String jwks;
+    private HttpServer idp;
+    private ThreadPoolTaskScheduler scheduler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jwks = jwks("k1", first);
+        idp = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        idp.createContext("/oidc/jwks", exchange -> {
+            fetches.incrementAndGet();
+            byte[] body = jwks.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        idp.start();
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+        idp.stop(0);
+    }
+
+    @Test
+    void validatesRs256TokensAgainstPrefetchedKeySet() {
+        JwksKeyResolver resolver = resolver(Duration.ofSeconds(30));
+        resolver.start();
+        JwtTokenValidator validator = validator(resolver);
+
+        TokenVerification verification = validator.verify(token("k1", first));
+
+        assertThat(verification.getFailure()).isNull();
+        assertThat(verification.getPrincipal().getUsername()).isEqualTo("42");
+        assertThat(fetches.get()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsTokensSignedByAKeyOutsideTheSet() {
+        JwksKeyResolver resolver = resolver(Duration.ofSeconds(30));
+        resolver.start();
+
+        TokenVerification verification = validator(resolver).verify(token("k1", second));
+
+        assertThat(verification.getPrincipal()).isNull();
+        assertThat(verification.getFailure()).isEqualTo(TokenFailureReason.BAD_SIGNATURE);
+    }
+
+    @Test
+    void unknownKidTriggersBackgroundRefetchAfterKeyRotation() throws Exception {
+        JwksKeyResolver resolver = resolver(Duration.ZERO);
+        resolver.start();
+        JwtTokenValidator validator = validator(resolver);
+        jwks = jwks("k2", second);
+
+        // 当前请求按验签失败处理，不在请求线程上拉取
+        assertThat(validator.verify(token("k2", second)).getPrincipal()).isNull();
+        await(() -> resolver.size() == 1 && resolver.getKey("k2") != null);
+
+        assertThat(validator.verify(token("k2", second)).getPrincipal()).isNotNull();
+        assertThat(resolver.getKey("k1")).isNull();
+    }
+
+    @Test
+    void refetchesForUnknownKidsAreRateLimited() throws Exception {
+        JwksKeyResolver resolver = resolver(Duration.ofMillis(200));
+        resolver.start();
+        // 启动时的拉取也计入 min-refetch-interval
+        assertThat(resolver.getKey("unknown")).isNull();
+        Thread.sleep(300);
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(resolver.getKey("unknown-" + i)).isNull();
+        }
+        await(() -> fetches.get() >= 2);
+        Thread.sleep(100);
+
+        assertThat(fetches.get()).isEqualTo(2);
+    }
+
+    private JwksKeyResolver resolver(Duration minRefetchInterval) {
+        RestTemplate restTemplate = new RestTemplate();
+        OidcProviderMetadata metadata = new OidcProviderMetadata(restTemplate, scheduler,
+                "http://127.0.0.1:" + idp.getAddress().getPort(), "/oidc/authorize", "/oidc/token",
+                "/oidc/userinfo", "/oidc/jwks", false, "", Duration.ofHours(1), Duration.ZERO);
+        return new JwksKeyResolver(restTemplate, metadata, scheduler, true, Duration.ofHours(1), minRefetchInterval);
+    }
+
+    private static JwtTokenValidator validator(JwksKeyResolver resolver) {
+        return new JwtTokenValidator(new VerifiedTokenCache(1000), resolver,
+                new AuthMetrics(new SimpleMeterRegistry()), new AuthFailureLog(null, false, Duration.ofSeconds(10)),
+                SECRET, "", "sub");
+    }
+
+    private static String token(String kid, KeyPair keyPair) {
+        return Jwts.builder()
+                .header().keyId(kid).and()
+                .subject("42")
+                .claim("client_id", "my-app")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(keyPair.getPrivate(), Jwts.SIG.RS256)
+                .compact();
+    }
+
+    private static String jwks(String kid, KeyPair keyPair) {
+        RSAPublicKey key = (RSAPublicKey) keyPair.getPublic();
+        return "{\"keys\":[{\"kty\":\"RSA\",\"kid\":\"" + kid + "\",\"use\":\"sig\",\"alg\":\"RS256\",\"n\":\""
+                + unsigned(key.getModulus()) + "\",\"e\":\"" + unsigned(key.getPublicExponent()) + "\"}]}";
+    }
+
+    private static String unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,80 @@
+package com.oidc.client.util;
+
+import com.oidc.client.TestFixtures;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * HS256 签名密钥：启动时优先读取 jwt.secret-file，轮换后用旧密钥验证过的缓存结果立即失效
+ */
+class JwtTokenValidatorTest {
+
+    private static final String NEW_SECRET = "a-rotated-secret-that-is-also-at-least-256-bits-long-for-hs256-signing";
+
+    @TempDir
+    Path dir;
+
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(1000);
+
+    @Test
+    void rotationInvalidatesPrincipalsVerifiedWithTheOldKey() {
+        JwtTokenValidator validator = validator("");
+        String oldToken = TestFixtures.token("alice", 60_000);
+        assertThat(validator.authenticate(oldToken).getSubject()).isEqualTo("alice");
+        assertThat(cache.get(VerifiedTokenCache.digest(oldToken))).isNotNull();
+
+        validator.rotateSecret(NEW_SECRET);
+
+        assertThat(cache.get(VerifiedTokenCache.digest(oldToken))).isNull();
+        assertThat(validator.authenticate(oldToken)).isNull();
+        assertThat(validator.authenticate(token("bob", NEW_SECRET)).getSubject()).isEqualTo("bob");
+    }
+
+    @Test
+    void secretFileOverridesTheConfiguredSecretAtStartup() throws Exception {
+        Path file = dir.resolve("jwt-secret");
+        Files.writeString(file, NEW_SECRET + "\n");
+
+        JwtTokenValidator validator = validator(file.toString());
+
+        assertThat(validator.authenticate(TestFixtures.token("alice", 60_000))).isNull();
+        assertThat(validator.authenticate(token("bob", NEW_SECRET)).getSubject()).isEqualTo("bob");
+    }
+
+    @Test
+    void unreadableSecretFileFailsStartup() {
+        assertThatThrownBy(() -> validator(dir.resolve("missing").toString()))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasMessageContaining("missing");
+    }
+
+    private JwtTokenValidator validator(String secretFile) {
+        RestTemplate restTemplate = new RestTemplate();
+        JwksKeyResolver jwks = new JwksKeyResolver(restTemplate,
+                TestFixtures.providerMetadata(restTemplate, "http://127.0.0.1:1"), null, false,
+                Duration.ofMinutes(5), Duration.ofSeconds(30));
+        return new JwtTokenValidator(cache, jwks, TestFixtures.metrics(),
+                new AuthFailureLog(null, false, Duration.ofSeconds(10)), TestFixtures.SECRET, secretFile, "sub");
+    }
+
+    private static String token(String subject, String secret) {
+        return Jwts.builder()
+                .subject(subject)
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+}
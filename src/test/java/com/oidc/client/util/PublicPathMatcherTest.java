@@ -0,0 +1,70 @@
+package com.oidc.client.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 前缀树匹配与 Spring 的 AntPathMatcher 在 oidc.public-paths 支持的写法（精确路径、/xxx/**）上结果一致，
+ * 且按 servletPath + pathInfo 而不是原始 URI 判断
+ */
+class PublicPathMatcherTest {
+
+    private static final List<String> PUBLIC_PATHS = List.of("/callback", "/api/auth/authorize", "/api/auth/token",
+            "/api/auth/refresh", "/api/auth/health", "/api/health", "/static/**", "/actuator/health");
+
+    /** 容器规范化之后的路径（不含 //、. / .. 段和路径参数），这些在到达匹配器之前已经被处理 */
+    private static final List<String> PATHS = List.of(
+            "", "/", "/callback", "/callbackX", "/callback/", "/callback/x", "/callbac",
+            "/api", "/api/auth", "/api/auth/", "/api/auth/authorize", "/api/auth/authorizeX", "/api/auth/authorize/x",
+            "/api/auth/token", "/api/auth/tokens", "/api/auth/refresh", "/api/auth/health", "/api/health",
+            "/api/healthcheck", "/api/resources/data", "/api/admin/jwt/reload",
+            "/static", "/static/", "/static/app.js", "/static/css/site.css", "/staticX", "/staticX/app.js", "/stat",
+            "/actuator", "/actuator/health", "/actuator/healthz", "/actuator/health/liveness", "/actuator/prometheus",
+            "/actuator/metrics");
+
+    private final PublicPathMatcher matcher = new PublicPathMatcher(PUBLIC_PATHS);
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    @Test
+    void agreesWithAntPathMatcher() {
+        for (String path : PATHS) {
+            boolean expected = PUBLIC_PATHS.stream().anyMatch(pattern -> antPathMatcher.match(pattern, path));
+            assertThat(matcher.matches(path)).as(path).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void prefixPatternsMatchTheDirectoryButNotSiblingsSharingThePrefix() {
+        assertThat(matcher.matches("/static")).isTrue();
+        assertThat(matcher.matches("/static/app.js")).isTrue();
+        assertThat(matcher.matches("/staticX")).isFalse();
+        assertThat(matcher.matches("/callbackX")).isFalse();
+        assertThat(matcher.matches("/callback/x")).isFalse();
+    }
+
+    @Test
+    void matchesTheServletPathPlusPathInfoRatherThanTheRawUri() {
+        // DispatcherServlet 映射到 /：整个应用内路径都在 servletPath 里
+        assertThat(matcher.matches(request("/callback;x=1", "/callback", null))).isTrue();
+        assertThat(matcher.matches(request("/static/../api/resources/data", "/api/resources/data", null))).isFalse();
+        // Servlet 映射到 /api/*：路径分成 servletPath 和 pathInfo
+        assertThat(matcher.matches(request("/api/auth/token", "/api", "/auth/token"))).isTrue();
+        assertThat(matcher.matches(request("/api/resources/data", "/api", "/resources/data"))).isFalse();
+        // 默认 Servlet 映射到 /*：servletPath 为空
+        assertThat(matcher.matches(request("/static/app.js", "", "/static/app.js"))).isTrue();
+        assertThat(PublicPathMatcher.applicationPath(request("/api/auth/token", "/api", "/auth/token")))
+                .isEqualTo("/api/auth/token");
+    }
+
+    private static MockHttpServletRequest request(String requestUri, String servletPath, String pathInfo) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", requestUri);
+        request.setServletPath(servletPath);
+        request.setPathInfo(pathInfo);
+        return request;
+    }
+}
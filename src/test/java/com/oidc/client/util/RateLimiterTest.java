@@ -0,0 +1,125 @@
+package com.oidc.client.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimiterTest {
+
+    private static final List<String> IDP_PATHS = List.of("/callback", "/api/auth/authorize", "/api/auth/token",
+            "/api/auth/refresh");
+
+    @Test
+    void allowsTheBurstThenReportsTheWaitForTheNextToken() {
+        RateLimiter limiter = limiter(true, "none");
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(limiter.acquire(RateLimiter.Scope.IDP, "10.0.0.1")).isZero();
+        }
+        long retryAfter = limiter.acquire(RateLimiter.Scope.IDP, "10.0.0.1");
+
+        // idp.rate=5/s：下一个令牌约 200ms 后可用
+        assertThat(retryAfter).isPositive().isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    void rejectedRequestsDoNotPushTheWaitFurtherOut() {
+        RateLimiter limiter = limiter(true, "none");
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire(RateLimiter.Scope.IDP, "10.0.0.1");
+        }
+
+        long first = limiter.acquire(RateLimiter.Scope.IDP, "10.0.0.1");
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire(RateLimiter.Scope.IDP, "10.0.0.1");
+        }
+
+        assertThat(limiter.acquire(RateLimiter.Scope.IDP, "10.0.0.1")).isLessThanOrEqualTo(first);
+    }
+
+    @Test
+    void keysAndScopesHaveIndependentBuckets() {
+        RateLimiter limiter = limiter(true, "none");
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire(RateLimiter.Scope.IDP, "10.0.0.1");
+        }
+
+        assertThat(limiter.acquire(RateLimiter.Scope.IDP, "10.0.0.1")).isPositive();
+        assertThat(limiter.acquire(RateLimiter.Scope.IDP, "10.0.0.2")).isZero();
+        assertThat(limiter.acquire(RateLimiter.Scope.IP, "10.0.0.1")).isZero();
+    }
+
+    @Test
+    void batchesAreChargedPerPermitAllOrNothing() {
+        RateLimiter limiter = limiter(true, "none");
+
+        assertThat(limiter.acquire(RateLimiter.Scope.USER, "alice", 40)).isZero();
+        assertThat(limiter.acquire(RateLimiter.Scope.USER, "alice", 20)).isPositive();
+        // 被拒绝的批量请求不消耗令牌，剩下的 10 个仍可用
+        assertThat(limiter.acquire(RateLimiter.Scope.USER, "alice", 10)).isZero();
+        // 超过 burst 的批量请求永远不会放行
+        assertThat(limiter.acquire(RateLimiter.Scope.USER, "bob", 51)).isPositive();
+    }
+
+    @Test
+    void disabledLimiterAlwaysAllows() {
+        RateLimiter limiter = limiter(false, "");
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(limiter.acquire(RateLimiter.Scope.IDP, "10.0.0.1")).isZero();
+        }
+        assertThat(limiter.isIdpBound(request("/api/auth/token"))).isFalse();
+        assertThat(limiter.size()).isZero();
+    }
+
+    @Test
+    void enablingWithoutForwardHeadersStrategyFailsFast() {
+        assertThatThrownBy(() -> limiter(true, ""))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("server.forward-headers-strategy");
+    }
+
+    @Test
+    void idpBoundPathsAreMatchedOnTheApplicationPath() {
+        RateLimiter limiter = limiter(true, "none");
+        MockHttpServletRequest underContextPath = request("/api/auth/token");
+        underContextPath.setContextPath("/app");
+        underContextPath.setRequestURI("/app/api/auth/token");
+
+        assertThat(limiter.isIdpBound(request("/api/auth/token"))).isTrue();
+        assertThat(limiter.isIdpBound(underContextPath)).isTrue();
+        assertThat(limiter.isIdpBound(request("/callback"))).isTrue();
+        assertThat(limiter.isIdpBound(request("/api/resources/data"))).isFalse();
+    }
+
+    @Test
+    void idleKeysAreSweptOnceTheirBucketHasRefilled() throws Exception {
+        RateLimiter limiter = new RateLimiter(null, null, true, "none", IDP_PATHS, 1000, 2, 100, 200, 20, 50,
+                1000, 2000, 100_000, Duration.ofMinutes(1), false, Duration.ofMillis(500), 0.1, Duration.ofSeconds(5));
+        limiter.acquire(RateLimiter.Scope.IDP, "10.0.0.1");
+        assertThat(limiter.size()).isEqualTo(1);
+
+        Thread.sleep(10);
+        limiter.sweep();
+
+        assertThat(limiter.size()).isZero();
+    }
+
+    private static RateLimiter limiter(boolean enabled, String forwardHeadersStrategy) {
+        return new RateLimiter(null, null, enabled, forwardHeadersStrategy, IDP_PATHS, 5, 20, 100, 200, 20, 50,
+                1000, 2000, 100_000, Duration.ofMinutes(1), false, Duration.ofMillis(500), 0.1, Duration.ofSeconds(5));
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRequestURI(path);
+        request.setServletPath(path);
+        return request;
+    }
+}
@@ -0,0 +1,80 @@
+package com.oidc.client.util;
+
+import com.oidc.client.TestFixtures;
+import com.oidc.client.service.InMemoryTokenStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 紧凑会话 Cookie：往返编解码，篡改、换密钥和解压超限的值一律按无效处理
+ */
+class SessionCookieCodecTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private final SessionCookieCodec codec = new SessionCookieCodec(KEY);
+
+    @Test
+    void roundTripsAccessAndRefreshToken() {
+        String accessToken = TestFixtures.token("alice", 60_000);
+
+        SessionCookieCodec.Session decoded = codec.decode(
+                codec.encode(new SessionCookieCodec.Session(accessToken, "refresh-1")));
+
+        assertThat(decoded).isEqualTo(new SessionCookieCodec.Session(accessToken, "refresh-1"));
+    }
+
+    @Test
+    void roundTripsASessionWithoutRefreshToken() {
+        SessionCookieCodec.Session decoded = codec.decode(
+                codec.encode(new SessionCookieCodec.Session("access-only", null)));
+
+        assertThat(decoded).isEqualTo(new SessionCookieCodec.Session("access-only", null));
+    }
+
+    @Test
+    void tamperedValueIsRejected() {
+        byte[] raw = Base64.getUrlDecoder().decode(codec.encode(new SessionCookieCodec.Session("access", "refresh")));
+        raw[raw.length - 20] ^= 1;
+
+        assertThat(codec.decode(Base64.getUrlEncoder().withoutPadding().encodeToString(raw))).isNull();
+        assertThat(codec.decode("not base64 !")).isNull();
+        assertThat(codec.decode("")).isNull();
+    }
+
+    @Test
+    void valueSealedWithAnotherKeyIsRejected() {
+        SessionCookieCodec other = new SessionCookieCodec(Base64.getEncoder().encodeToString(new byte[16]));
+
+        assertThat(codec.decode(other.encode(new SessionCookieCodec.Session("access", "refresh")))).isNull();
+    }
+
+    @Test
+    void valueInflatingPastTheLimitIsRejected() {
+        // 高度重复的内容压缩后只有几十字节，解压超过 16KB 时必须在解压过程中中止
+        String huge = "a".repeat(64 * 1024);
+        String value = codec.encode(new SessionCookieCodec.Session(huge, null));
+
+        assertThat(value.length()).isLessThan(1024);
+        assertThat(codec.decode(value)).isNull();
+    }
+
+    @Test
+    void compactCookieModeRequiresAConfiguredKey() {
+        SessionCookieCodec randomKey = new SessionCookieCodec("");
+
+        assertThat(randomKey.isKeyConfigured()).isFalse();
+        assertThat(codec.isKeyConfigured()).isTrue();
+        assertThatThrownBy(() -> new TokenCookies(randomKey, new InMemoryTokenStore(1, 16), event -> { },
+                "compact", Duration.ofDays(7)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("oidc.session.key");
+        // 不加密 Cookie 的模式不需要密钥
+        new TokenCookies(randomKey, new InMemoryTokenStore(1, 16), event -> { }, "split", Duration.ofDays(7));
+    }
+}
@@ -0,0 +1,119 @@
+package com.oidc.client.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * IdP 文档快照：ETag 条件请求、快照与来源 URL 绑定、校验失败的文档不落盘
+ */
+class SnapshotDocumentTest {
+
+    @TempDir
+    Path dir;
+
+    /** 每次请求带的 If-None-Match（没有时为空串） */
+    private final List<String> conditions = new CopyOnWriteArrayList<>();
+    private volatile String body = "{\"version\":1}";
+    private volatile String etag = "\"v1\"";
+    private HttpServer idp;
+    private String url;
+
+    @BeforeEach
+    void startIdp() throws Exception {
+        idp = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        idp.createContext("/doc", exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            conditions.add(ifNoneMatch != null ? ifNoneMatch : "");
+            if (etag.equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("ETag", etag);
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        idp.start();
+        url = "http://127.0.0.1:" + idp.getAddress().getPort() + "/doc";
+    }
+
+    @AfterEach
+    void stopIdp() {
+        idp.stop(0);
+    }
+
+    @Test
+    void snapshotAndEtagSurviveARestartAndUnchangedDocumentsAreNotTransferred() {
+        assertThat(document().fetch(url, json -> { })).isEqualTo("{\"version\":1}");
+
+        SnapshotDocument restarted = document();
+
+        assertThat(restarted.loadSnapshot(url)).isEqualTo("{\"version\":1}");
+        assertThat(restarted.fetch(url, json -> { })).isNull();
+        assertThat(conditions).containsExactly("", "\"v1\"");
+
+        body = "{\"version\":2}";
+        etag = "\"v2\"";
+        assertThat(restarted.fetch(url, json -> { })).isEqualTo("{\"version\":2}");
+        assertThat(document().loadSnapshot(url)).isEqualTo("{\"version\":2}");
+    }
+
+    @Test
+    void snapshotFetchedFromAnotherSourceIsIgnored() {
+        document().fetch(url, json -> { });
+
+        SnapshotDocument restarted = document();
+
+        assertThat(restarted.loadSnapshot("http://other-idp.example/doc")).isNull();
+        // 来源不符时连同 ETag 一起忽略，下次拉取不带条件
+        assertThat(restarted.fetch(url, json -> { })).isEqualTo("{\"version\":1}");
+        assertThat(conditions).containsExactly("", "");
+    }
+
+    @Test
+    void rejectedDocumentIsNeitherSavedNorRememberedByEtag() {
+        SnapshotDocument document = document();
+        document.fetch(url, json -> { });
+        body = "{\"version\":\"bad\"}";
+        etag = "\"bad\"";
+
+        assertThatThrownBy(() -> document.fetch(url, json -> {
+            throw new IllegalArgumentException("invalid document");
+        })).hasMessage("invalid document");
+
+        assertThat(document().loadSnapshot(url)).isEqualTo("{\"version\":1}");
+        // 校验失败的 ETag 不会被记住，之后仍以上一份有效文档的 ETag 发条件请求
+        document.fetch(url, json -> { });
+        assertThat(conditions).containsExactly("", "\"v1\"", "\"v1\"");
+    }
+
+    @Test
+    void withoutSnapshotPathOnlyConditionalRequestsAreMade() {
+        SnapshotDocument document = new SnapshotDocument(new RestTemplate(), null);
+
+        assertThat(document.loadSnapshot(url)).isNull();
+        assertThat(document.fetch(url, json -> { })).isEqualTo("{\"version\":1}");
+        assertThat(document.fetch(url, json -> { })).isNull();
+        assertThat(dir).isEmptyDirectory();
+    }
+
+    private SnapshotDocument document() {
+        return new SnapshotDocument(new RestTemplate(), dir.resolve("doc.json"));
+    }
+}
@@ -0,0 +1,95 @@
+package com.oidc.client.util;
+
+import com.oidc.client.dto.AuthenticatedPrincipal;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 验签结果缓存：命中、在 exp 时刻失效、轮换代数作废旧结果、超过上限时淘汰
+ */
+class VerifiedTokenCacheTest {
+
+    @Test
+    void returnsTheCachedPrincipalUntilTheTokenExpires() throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        AuthenticatedPrincipal principal = principal("alice", Instant.now().plusMillis(200));
+        String key = VerifiedTokenCache.digest("token-alice");
+
+        cache.put(key, principal, cache.generation());
+
+        assertThat(cache.get(key)).isSameAs(principal);
+        assertThat(cache.get(VerifiedTokenCache.digest("token-bob"))).isNull();
+
+        Thread.sleep(250);
+
+        assertThat(cache.get(key)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void tokensWithoutExpiryAreNotCached() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+
+        cache.put("key", principal("alice", null), cache.generation());
+
+        assertThat(cache.get("key")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void invalidateAllDropsEntriesAndRejectsResultsVerifiedBeforeIt() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        cache.put("before", principal("alice", Instant.now().plusSeconds(60)), cache.generation());
+        // 验签开始时读到的代数，验签期间发生了轮换
+        int inFlight = cache.generation();
+
+        cache.invalidateAll();
+        cache.put("in-flight", principal("bob", Instant.now().plusSeconds(60)), inFlight);
+        cache.put("after", principal("carol", Instant.now().plusSeconds(60)), cache.generation());
+
+        assertThat(cache.get("before")).isNull();
+        assertThat(cache.get("in-flight")).isNull();
+        assertThat(cache.get("after").getSubject()).isEqualTo("carol");
+    }
+
+    @Test
+    void staysWithinTheSizeCapPreferringToEvictExpiredEntries() throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        for (int i = 0; i < 50; i++) {
+            cache.put("short-" + i, principal("s" + i, Instant.now().plusMillis(100)), cache.generation());
+        }
+        for (int i = 0; i < 50; i++) {
+            cache.put("long-" + i, principal("l" + i, Instant.now().plusSeconds(60)), cache.generation());
+        }
+        Thread.sleep(150);
+
+        // 超限时先清理已过期的条目，未过期的都保留
+        cache.put("next", principal("next", Instant.now().plusSeconds(60)), cache.generation());
+        assertThat(cache.size()).isEqualTo(51);
+        for (int i = 0; i < 50; i++) {
+            assertThat(cache.get("long-" + i)).isNotNull();
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put("more-" + i, principal("m" + i, Instant.now().plusSeconds(60)), cache.generation());
+            assertThat(cache.size()).isLessThanOrEqualTo(100);
+        }
+        assertThat(cache.get("more-999")).isNotNull();
+    }
+
+    @Test
+    void zeroSizeDisablesCaching() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(0);
+
+        cache.put("key", principal("alice", Instant.now().plusSeconds(60)), cache.generation());
+
+        assertThat(cache.get("key")).isNull();
+    }
+
+    private static AuthenticatedPrincipal principal(String subject, Instant expiresAt) {
+        return AuthenticatedPrincipal.builder().subject(subject).username(subject).expiresAt(expiresAt).build();
+    }
+}